@@ -0,0 +1,217 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.thedivazo.condlang.ParserExpression;
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+import org.thedivazo.condlang.utils.TernFunction;
+
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+/**
+ * Небольшой язык выражений (арифметика, сравнения, логика, тернарный оператор и функции), на котором работают бенчмарки.
+ */
+public final class BenchmarkExpressions {
+
+    private BenchmarkExpressions() {
+    }
+
+    public static BenchmarkParserExpression create() {
+        return create(0, 0);
+    }
+
+    /**
+     * @param priorityLevels количество дополнительных уровней приоритета бинарных операторов. Каждый уровень - это еще один шаг рекурсии парсера.
+     * @param conditionCount количество дополнительных regEx условий, которые проверяются лексером раньше основных
+     */
+    public static BenchmarkParserExpression create(int priorityLevels, int conditionCount) {
+        BenchmarkParserExpression parserExpression = new BenchmarkParserExpression();
+        parserExpression.addUnaryOperator(unary("-", value -> -(Double) value));
+        parserExpression.addBinaryOperator(
+                binary("*", (value1, value2) -> (Double) value1 * (Double) value2),
+                binary("/", (value1, value2) -> (Double) value1 / (Double) value2));
+        parserExpression.addBinaryOperator(
+                binary("+", (value1, value2) -> (Double) value1 + (Double) value2),
+                binary("-", (value1, value2) -> (Double) value1 - (Double) value2));
+        parserExpression.addBinaryOperator(
+                binary("<", (value1, value2) -> (Double) value1 < (Double) value2),
+                binary(">", (value1, value2) -> (Double) value1 > (Double) value2));
+        parserExpression.addBinaryOperator(binary("==", Object::equals));
+        parserExpression.addUnaryOperator(unary("!", value -> !(Boolean) value));
+        parserExpression.addBinaryOperator(binary("&&", (value1, value2) -> (Boolean) value1 && (Boolean) value2));
+        parserExpression.addBinaryOperator(binary("||", (value1, value2) -> (Boolean) value1 || (Boolean) value2));
+        return configure(parserExpression, priorityLevels, conditionCount);
+    }
+
+    /**
+     * Тот же язык, но арифметика, сравнения и логика добавлены как операторы над double и boolean
+     * ({@link ParserExpression.DoubleBinaryOperatorWrapper}).
+     */
+    public static BenchmarkParserExpression createPrimitive() {
+        BenchmarkParserExpression parserExpression = new BenchmarkParserExpression();
+        parserExpression.addUnaryOperator(doubleUnary("-", value -> -value));
+        parserExpression.addBinaryOperator(
+                doubleBinary("*", (value1, value2) -> value1 * value2),
+                doubleBinary("/", (value1, value2) -> value1 / value2));
+        parserExpression.addBinaryOperator(
+                doubleBinary("+", Double::sum),
+                doubleBinary("-", (value1, value2) -> value1 - value2));
+        parserExpression.addBinaryOperator(
+                doublePredicate("<", (value1, value2) -> value1 < value2),
+                doublePredicate(">", (value1, value2) -> value1 > value2));
+        parserExpression.addBinaryOperator(binary("==", Object::equals));
+        parserExpression.addUnaryOperator(unary("!", value -> !(Boolean) value));
+        parserExpression.addBinaryOperator(booleanBinary("&&", (value1, value2) -> value1 && value2));
+        parserExpression.addBinaryOperator(booleanBinary("||", (value1, value2) -> value1 || value2));
+        return configure(parserExpression, 0, 0);
+    }
+
+    private static BenchmarkParserExpression configure(BenchmarkParserExpression parserExpression, int priorityLevels, int conditionCount) {
+        parserExpression.addTernaryOperator(ternary("?", ":", (condition, value1, value2) -> condition ? value1 : value2));
+        for (int level = 0; level < priorityLevels; level++) {
+            parserExpression.addBinaryOperator(binary("~" + level + "~", (value1, value2) -> value1));
+        }
+
+        parserExpression.setFunction("cos", values -> Math.cos((Double) values.get(0)));
+        parserExpression.setFunction("max", values -> Math.max((Double) values.get(0), (Double) values.get(1)));
+
+        for (int condition = 0; condition < conditionCount; condition++) {
+            parserExpression.setCondition("condition" + condition + "_[a-z]+", name -> Boolean.TRUE);
+        }
+        parserExpression.setCondition("true", Boolean.TRUE);
+        parserExpression.setCondition("false", Boolean.FALSE);
+        parserExpression.setCondition("[0-9]+(\\.[0-9]+)?", Double::valueOf);
+
+        parserExpression.addDelimiter("\\,");
+        parserExpression.addSkipSymbols(" +");
+        parserExpression.addCompoundOperators("\\(", "\\)");
+        parserExpression.addVariableStartSymbols("\\$");
+        parserExpression.addMethodReferenceSymbols("#");
+        parserExpression.addMethod("[a-zA-Z0-9]+");
+        parserExpression.setCondition("[a-zA-Z0-9\\.]+");
+        return parserExpression;
+    }
+
+    /**
+     * Генерирует арифметическое выражение из size операндов. Каждые четыре операнда заключены в скобки.
+     * @return Возвращает выражение вида "(($x + 1 * $y - 2) / ...) > 0".
+     */
+    public static String expression(int size) {
+        String[] operators = {" + ", " * ", " - ", " / "};
+        StringBuilder expression = new StringBuilder("(");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                expression.append(operators[i % operators.length]);
+                if (i % 4 == 0) expression.append('(');
+            }
+            expression.append(i % 3 == 0 ? "$x" : i % 3 == 1 ? "$y" : String.valueOf(i));
+            if (i % 4 == 3 || i == size - 1) expression.append(')');
+        }
+        return expression.append(" > 0").toString();
+    }
+
+    public static ParserExpression.UnaryOperatorWrapper<Object, Object> unary(String sign, Function<Object, Object> operator) {
+        return new ParserExpression.UnaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public Function<Object, Object> getUnaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    public static ParserExpression.BinaryOperatorWrapper<Object, Object> binary(String sign, BiFunction<Object, Object, Object> operator) {
+        return new ParserExpression.BinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public BiFunction<Object, Object, Object> getBinaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    public static ParserExpression.DoubleUnaryOperatorWrapper<Object, Object> doubleUnary(String sign, DoubleUnaryOperator operator) {
+        return new ParserExpression.DoubleUnaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public DoubleUnaryOperator getDoubleUnaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    public static ParserExpression.DoubleBinaryOperatorWrapper<Object, Object> doubleBinary(String sign, DoubleBinaryOperator operator) {
+        return new ParserExpression.DoubleBinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public DoubleBinaryOperator getDoubleBinaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    public static ParserExpression.DoublePredicateWrapper<Object, Object> doublePredicate(String sign, DoubleBiPredicate predicate) {
+        return new ParserExpression.DoublePredicateWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public DoubleBiPredicate getDoublePredicate() {
+                return predicate;
+            }
+        };
+    }
+
+    public static ParserExpression.BooleanBinaryOperatorWrapper<Object, Object> booleanBinary(String sign, BooleanBinaryOperator operator) {
+        return new ParserExpression.BooleanBinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public BooleanBinaryOperator getBooleanBinaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    public static ParserExpression.TernaryOperatorWrapper<Object> ternary(String signOne, String signTwo, TernFunction<Boolean, Object, Object, Object> operator) {
+        return new ParserExpression.TernaryOperatorWrapper<>() {
+            @Override
+            public String getSignOne() {
+                return signOne;
+            }
+
+            @Override
+            public String getSignTwo() {
+                return signTwo;
+            }
+
+            @Override
+            public TernFunction<Boolean, Object, Object, Object> getTernaryOperator() {
+                return operator;
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.thedivazo.condlang.ParserExpression;
+import org.thedivazo.condlang.interpreter.Interpreter;
+import org.thedivazo.condlang.lexer.Lexer;
+import org.thedivazo.condlang.parser.Parser;
+
+/**
+ * Открывает доступ к {@link Lexer}, {@link Parser} и {@link Interpreter}, чтобы измерять этапы по отдельности.
+ */
+public class BenchmarkParserExpression extends ParserExpression<Object, Object, Object> {
+
+    @Override
+    public Lexer getLexer() {
+        return super.getLexer();
+    }
+
+    @Override
+    public Parser getParser() {
+        return super.getParser();
+    }
+
+    @Override
+    public Interpreter<Object, Object, Object> getInterpreter() {
+        return super.getInterpreter();
+    }
+}
@@ -0,0 +1,99 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.ParserExpression;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает обход AST дерева ({@link org.thedivazo.condlang.interpreter.Interpreter#execute(Node, Map)})
+ * с исполняемым деревом ({@link ExecutionStrategy#EVALUATOR_TREE}), сгенерированным классом ({@link ExecutionStrategy#BYTECODE})
+ * плоским деревом ({@link ExecutionStrategy#FLAT_TREE}) и стековой машиной ({@link ExecutionStrategy#STACK_MACHINE}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionStrategyBenchmark {
+
+    @Param({
+            "1 + 2 * 3 - 4 / 2 > 0 && $x < 10",
+            "max(cos($x), cos($y)) * 2 + 3 > 1 ? $x * $y : -($x + $y)",
+            "$x > 1 && $y > 1 || $x < 100 && !($y == 3) || $x + $y + 1 + 2 + 3 + 4 + 5 > 6"
+    })
+    public String code;
+
+    private final Map<String, Object> localArguments = Map.of("x", 5d, "y", 7d);
+
+    private ParserExpression<Object, Object, Object> evaluatorTreeExpression;
+
+    private ParserExpression<Object, Object, Object> bytecodeExpression;
+
+    private ParserExpression<Object, Object, Object> flatTreeExpression;
+
+    private ParserExpression<Object, Object, Object> stackMachineExpression;
+
+    private Node node;
+
+    private Serializable evaluatorTreeCode;
+
+    private Serializable bytecodeCode;
+
+    private Serializable flatTreeCode;
+
+    private Serializable stackMachineCode;
+
+    @Setup
+    public void setup() throws CompileException, InterpreterException {
+        evaluatorTreeExpression = BenchmarkExpressions.create();
+        bytecodeExpression = BenchmarkExpressions.create();
+        bytecodeExpression.setExecutionStrategy(ExecutionStrategy.BYTECODE);
+        flatTreeExpression = BenchmarkExpressions.create();
+        flatTreeExpression.setExecutionStrategy(ExecutionStrategy.FLAT_TREE);
+        stackMachineExpression = BenchmarkExpressions.create();
+        stackMachineExpression.setExecutionStrategy(ExecutionStrategy.STACK_MACHINE);
+        evaluatorTreeCode = evaluatorTreeExpression.compile(code);
+        bytecodeCode = bytecodeExpression.compile(code);
+        flatTreeCode = flatTreeExpression.compile(code);
+        stackMachineCode = stackMachineExpression.compile(code);
+        node = ((CompiledExpression<?>) evaluatorTreeCode).getNode();
+        evaluatorTreeExpression.execute(evaluatorTreeCode, localArguments);
+        bytecodeExpression.execute(bytecodeCode, localArguments);
+        flatTreeExpression.execute(flatTreeCode, localArguments);
+        stackMachineExpression.execute(stackMachineCode, localArguments);
+    }
+
+    @Benchmark
+    public Object treeWalk() throws InterpreterException {
+        return evaluatorTreeExpression.execute(node, localArguments);
+    }
+
+    @Benchmark
+    public Object evaluatorTree() throws InterpreterException {
+        return evaluatorTreeExpression.execute(evaluatorTreeCode, localArguments);
+    }
+
+    @Benchmark
+    public Object bytecode() throws InterpreterException {
+        return bytecodeExpression.execute(bytecodeCode, localArguments);
+    }
+
+    @Benchmark
+    public Object flatTree() throws InterpreterException {
+        return flatTreeExpression.execute(flatTreeCode, localArguments);
+    }
+
+    @Benchmark
+    public Object stackMachine() throws InterpreterException {
+        return stackMachineExpression.execute(stackMachineCode, localArguments);
+    }
+}
@@ -0,0 +1,110 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.lexer.Token;
+import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.parser.Parser;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Измеряет каждый этап по отдельности: лексер, парсер, компиляцию, обход AST дерева и выполнение.
+ * Размер выражения, количество уровней приоритета и количество regEx условий задаются параметрами.
+ * Аллокации: <code>./gradlew jmh -PjmhArgs="PhaseBenchmark -prof gc"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({"4", "32", "256"})
+    public int size;
+
+    @Param({"0", "16"})
+    public int priorityLevels;
+
+    @Param({"0", "64"})
+    public int conditionCount;
+
+    private final Map<String, Object> localArguments = Map.of("x", 5d, "y", 7d);
+
+    private BenchmarkParserExpression parserExpression;
+
+    private BenchmarkParserExpression uncachedParserExpression;
+
+    private String code;
+
+    private List<Token> tokens;
+
+    private Parser recursiveParser;
+
+    private Node node;
+
+    private Serializable compiledCode;
+
+    @Setup
+    public void setup() throws CompileException, InterpreterException {
+        parserExpression = BenchmarkExpressions.create(priorityLevels, conditionCount);
+        uncachedParserExpression = BenchmarkExpressions.create(priorityLevels, conditionCount);
+        uncachedParserExpression.disableCompilationCache();
+        code = BenchmarkExpressions.expression(size);
+        tokens = parserExpression.getLexer().analyze(code);
+        recursiveParser = BenchmarkExpressions.create(priorityLevels, conditionCount).getParser();
+        recursiveParser.setPrecedenceClimbing(false);
+        node = parserExpression.getParser().parsing(tokens);
+        compiledCode = parserExpression.compile(code);
+        parserExpression.execute(code, localArguments);
+    }
+
+    @Benchmark
+    public List<Token> lex() throws CompileException {
+        return parserExpression.getLexer().analyze(code);
+    }
+
+    @Benchmark
+    public Node parse() throws CompileException {
+        return parserExpression.getParser().parsing(tokens);
+    }
+
+    /**
+     * Рекурсивный спуск с вызовом на каждый уровень приоритета, для сравнения с {@link PhaseBenchmark#parse()}.
+     */
+    @Benchmark
+    public Node parseRecursive() throws CompileException {
+        return recursiveParser.parsing(tokens);
+    }
+
+    /**
+     * Лексер, парсер, оптимизация AST дерева и построение исполняемого дерева без кэша выражений.
+     */
+    @Benchmark
+    public Object compile() throws CompileException, InterpreterException {
+        return uncachedParserExpression.execute(uncachedParserExpression.compile(code), localArguments);
+    }
+
+    @Benchmark
+    public Object interpret() throws InterpreterException {
+        return parserExpression.getInterpreter().execute(node, localArguments);
+    }
+
+    @Benchmark
+    public Object executeCompiled() throws InterpreterException {
+        return parserExpression.execute(compiledCode, localArguments);
+    }
+
+    /**
+     * Выполнение исходного кода с кэшем выражений.
+     */
+    @Benchmark
+    public Object executeString() throws CompileException, InterpreterException {
+        return parserExpression.execute(code, localArguments);
+    }
+}
@@ -0,0 +1,54 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Арифметическое правило на обычных операторах против тех же операторов над double и boolean,
+ * между которыми значения не упаковываются. Выделение памяти видно с "-prof gc".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveOperatorBenchmark {
+
+    @Param({"16"})
+    public int size;
+
+    private BenchmarkParserExpression boxedParserExpression;
+
+    private BenchmarkParserExpression primitiveParserExpression;
+
+    private Serializable boxedCode;
+
+    private Serializable primitiveCode;
+
+    private final Map<String, Object> localArguments = Map.of("x", 3d, "y", 7d);
+
+    @Setup
+    public void setup() throws CompileException {
+        String code = BenchmarkExpressions.expression(size) + " && $x < $y";
+        boxedParserExpression = BenchmarkExpressions.create();
+        primitiveParserExpression = BenchmarkExpressions.createPrimitive();
+        boxedCode = boxedParserExpression.compile(code);
+        primitiveCode = primitiveParserExpression.compile(code);
+    }
+
+    @Benchmark
+    public Object boxed() throws InterpreterException {
+        return boxedParserExpression.execute(boxedCode, localArguments);
+    }
+
+    @Benchmark
+    public Object primitive() throws InterpreterException {
+        return primitiveParserExpression.execute(primitiveCode, localArguments);
+    }
+}
@@ -0,0 +1,63 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.RuleSet;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выполнение библиотеки правил с общими частями: каждое правило отдельно против {@link RuleSet},
+ * где общие части вычисляются один раз.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleSetBenchmark {
+
+    @Param({"100"})
+    public int ruleCount;
+
+    private BenchmarkParserExpression parserExpression;
+
+    private List<Serializable> compiledRules;
+
+    private RuleSet<Object> ruleSet;
+
+    private final Map<String, Object> localArguments = Map.of("x", 3d, "y", 7d);
+
+    @Setup
+    public void setup() throws CompileException {
+        parserExpression = BenchmarkExpressions.create();
+        compiledRules = new ArrayList<>();
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int rule = 0; rule < ruleCount; rule++) {
+            String code = BenchmarkExpressions.expression(8 + rule % 4) + " && cos($x) < " + rule;
+            rules.put("rule-" + rule, code);
+            compiledRules.add(parserExpression.compile(code));
+        }
+        ruleSet = parserExpression.compileRuleSet(rules);
+    }
+
+    @Benchmark
+    public void separately(Blackhole blackhole) throws InterpreterException {
+        for (Serializable compiledRule : compiledRules) {
+            blackhole.consume(parserExpression.execute(compiledRule, localArguments));
+        }
+    }
+
+    @Benchmark
+    public Object ruleSet() throws InterpreterException {
+        return ruleSet.execute(localArguments);
+    }
+}
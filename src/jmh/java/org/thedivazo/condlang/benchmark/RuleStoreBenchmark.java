@@ -0,0 +1,71 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.RuleStore;
+import org.thedivazo.condlang.exception.CompileException;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время запуска: компиляция всей библиотеки правил из исходного кода против открытия {@link RuleStore}
+ * и загрузки одного правила.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleStoreBenchmark {
+
+    @Param({"100", "10000"})
+    public int ruleCount;
+
+    private BenchmarkParserExpression parserExpression;
+
+    private Map<String, String> sources;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws CompileException, IOException {
+        parserExpression = BenchmarkExpressions.create();
+        parserExpression.disableCompilationCache();
+        sources = new HashMap<>();
+        Map<String, Serializable> rules = new HashMap<>();
+        for (int rule = 0; rule < ruleCount; rule++) {
+            String code = BenchmarkExpressions.expression(8 + rule % 16) + " || $x > " + rule;
+            sources.put("rule-" + rule, code);
+            rules.put("rule-" + rule, parserExpression.compile(code));
+        }
+        path = Files.createTempFile("rules", ".bin");
+        RuleStore.write(path, rules);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public Object compileAll() throws CompileException {
+        Map<String, Serializable> rules = new HashMap<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            rules.put(source.getKey(), parserExpression.compile(source.getValue()));
+        }
+        return rules;
+    }
+
+    @Benchmark
+    public Object openAndLoadOne() throws IOException {
+        try (RuleStore<Object> ruleStore = RuleStore.open(path)) {
+            return ruleStore.get("rule-" + (ruleCount / 2));
+        }
+    }
+}
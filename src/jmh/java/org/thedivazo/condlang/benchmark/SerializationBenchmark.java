@@ -0,0 +1,83 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает компактный двоичный формат ({@link CompiledExpression#writeTo(ByteBuffer)}) со стандартной сериализацией Java.
+ * Размеры обоих представлений выводятся при подготовке бенчмарка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"4", "32", "256"})
+    public int size;
+
+    private CompiledExpression<?> compiledExpression;
+
+    private byte[] binaryBytes;
+
+    private byte[] javaBytes;
+
+    private ByteBuffer directBuffer;
+
+    @Setup
+    public void setup() throws CompileException, IOException {
+        BenchmarkParserExpression parserExpression = BenchmarkExpressions.create();
+        parserExpression.setConstantFolding(false);
+        compiledExpression = (CompiledExpression<?>) parserExpression.compile(BenchmarkExpressions.expression(size));
+        binaryBytes = compiledExpression.toByteArray();
+        javaBytes = javaSerialize();
+        directBuffer = ByteBuffer.allocateDirect(binaryBytes.length);
+        directBuffer.put(binaryBytes).flip();
+        System.out.printf("%nsize=%d: binary %d bytes, java serialization %d bytes%n", size, binaryBytes.length, javaBytes.length);
+    }
+
+    @Benchmark
+    public byte[] binaryWrite() {
+        return compiledExpression.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] javaWrite() throws IOException {
+        return javaSerialize();
+    }
+
+    @Benchmark
+    public Object binaryRead() {
+        return CompiledExpression.readFrom(ByteBuffer.wrap(binaryBytes));
+    }
+
+    /**
+     * Чтение из буфера вне кучи, как из файла, отображенного в память.
+     */
+    @Benchmark
+    public Object binaryReadDirect() {
+        return CompiledExpression.readFrom(directBuffer.duplicate());
+    }
+
+    @Benchmark
+    public Object javaRead() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(javaBytes))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+    private byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(compiledExpression);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+package org.thedivazo.condlang.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.WrapperManager;
+import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цепочки вызовов методов через {@link WrapperManager}: напрямую через {@link WrapperObject#executeMethod(String, Object...)}
+ * и из выражения. Для сравнения есть обычный вызов Java.
+ * Аллокации: <code>./gradlew jmh -PjmhArgs="WrapperBenchmark -prof gc"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark {
+
+    public static class World {
+        public String getName() {
+            return "world";
+        }
+    }
+
+    public static class Location {
+        private final World world = new World();
+
+        public World getWorld() {
+            return world;
+        }
+
+        public double distance(double x, double y) {
+            return Math.sqrt(x * x + y * y);
+        }
+    }
+
+    public static class Player {
+        private final Location location = new Location();
+
+        public Location getLocation() {
+            return location;
+        }
+    }
+
+    @Param({"EVALUATOR_TREE", "BYTECODE"})
+    public ExecutionStrategy executionStrategy;
+
+    private final Player player = new Player();
+
+    private WrapperObject<Player> wrappedPlayer;
+
+    private Map<String, Object> localArguments;
+
+    private BenchmarkParserExpression parserExpression;
+
+    private Serializable chainCode;
+
+    private Serializable argumentsCode;
+
+    @Setup
+    public void setup() throws CompileException, InterpreterException {
+        wrappedPlayer = WrapperManager.generateWrapperObject(player, Player.class, Constable.class);
+        localArguments = Map.of("player", wrappedPlayer);
+        parserExpression = BenchmarkExpressions.create();
+        parserExpression.setExecutionStrategy(executionStrategy);
+        chainCode = parserExpression.compile("$player#getLocation()#getWorld()#getName()");
+        argumentsCode = parserExpression.compile("$player#getLocation()#distance(3, 4)");
+        parserExpression.execute(chainCode, localArguments);
+    }
+
+    @Benchmark
+    public Object javaChain() {
+        return player.getLocation().getWorld().getName();
+    }
+
+    @Benchmark
+    public Object wrapperChain() throws InterpreterException {
+        WrapperObject<?> location = (WrapperObject<?>) wrappedPlayer.executeMethod("getLocation");
+        WrapperObject<?> world = (WrapperObject<?>) location.executeMethod("getWorld");
+        return world.executeMethod("getName");
+    }
+
+    @Benchmark
+    public Object expressionChain() throws InterpreterException {
+        return parserExpression.execute(chainCode, localArguments);
+    }
+
+    @Benchmark
+    public Object expressionArguments() throws InterpreterException {
+        return parserExpression.execute(argumentsCode, localArguments);
+    }
+}
@@ -0,0 +1,99 @@
+package org.thedivazo.condlang;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Ограниченный по размеру потокобезопасный кэш откомпилированных выражений, ключом которого является исходный код.
+ * Вытеснение происходит по алгоритму LRU (Guava {@link Cache}), дополнительно записи могут удаляться по истечении времени с последнего обращения.
+ * Кэш полностью очищается, если изменилась версия правил ({@link ParserExpression#getModificationCount()}).
+ * @param <B> the type that returns the condition.
+ */
+public class CompilationCache<B> {
+
+    @FunctionalInterface
+    public interface Compiler<B> {
+        CompiledExpression<B> compile(String code) throws CompileException;
+    }
+
+    /**
+     * Статистика работы кэша.
+     */
+    public record Stats(long hitCount, long missCount, long evictionCount, long size) {
+        public double hitRate() {
+            long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+    }
+
+    private final Cache<String, CompiledExpression<B>> cache;
+
+    private final long maximumSize;
+
+    private final Duration expireAfterAccess;
+
+    private volatile long version = -1;
+
+    /**
+     * @param maximumSize максимальное количество выражений в кэше
+     * @param expireAfterAccess время с последнего обращения, после которого выражение удаляется из кэша. Может быть null.
+     */
+    public CompilationCache(long maximumSize, Duration expireAfterAccess) {
+        this.maximumSize = maximumSize;
+        this.expireAfterAccess = expireAfterAccess;
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats();
+        if (!Objects.isNull(expireAfterAccess)) cacheBuilder.expireAfterAccess(expireAfterAccess);
+        this.cache = cacheBuilder.build();
+    }
+
+    /**
+     * @param code исходный код
+     * @param version текущая версия правил лексера, парсера и интерпретатора
+     * @param compiler компилятор, который будет вызван, если выражения нет в кэше
+     * @return Возвращает откомпилированное выражение
+     * @throws CompileException исключение, генерируемое при возникновении ошибки компиляции
+     */
+    public CompiledExpression<B> get(String code, long version, Compiler<B> compiler) throws CompileException {
+        if (this.version != version) {
+            cache.invalidateAll();
+            this.version = version;
+        }
+        try {
+            return cache.get(code, () -> compiler.compile(code));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CompileException compileException) throw compileException;
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw e;
+        } catch (ExecutionError e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    /**
+     * @return Возвращает пустой кэш с такими же настройками.
+     */
+    public CompilationCache<B> emptyCopy() {
+        return new CompilationCache<>(maximumSize, expireAfterAccess);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Stats getStats() {
+        CacheStats cacheStats = cache.stats();
+        return new Stats(cacheStats.hitCount(), cacheStats.missCount(), cacheStats.evictionCount(), cache.size());
+    }
+}
@@ -2,26 +2,54 @@ package org.thedivazo.condlang;
 
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.intellij.lang.annotations.RegExp;
 import org.thedivazo.condlang.exception.CompileException;
 import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionBudget;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.Frame;
 import org.thedivazo.condlang.interpreter.Interpreter;
+import org.thedivazo.condlang.interpreter.PrimitiveHandlers;
+import org.thedivazo.condlang.interpreter.RuleSet;
+import org.thedivazo.condlang.interpreter.SlotLayout;
+import org.thedivazo.condlang.interpreter.evaluator.BatchTask;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationListener;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
 import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
 import org.thedivazo.condlang.lexer.Lexer;
 import org.thedivazo.condlang.lexer.TokenType;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.IncrementalParser;
 import org.thedivazo.condlang.parser.Node;
 import org.thedivazo.condlang.parser.OperatorType;
+import org.thedivazo.condlang.parser.ParseResult;
 import org.thedivazo.condlang.parser.Parser;
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+import org.thedivazo.condlang.utils.LazyTernFunction;
 import org.thedivazo.condlang.utils.TernFunction;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.regex.Pattern;
 
 /**
@@ -31,17 +59,61 @@ import java.util.regex.Pattern;
  * @param <R> The type of output data
  * @version 1.0
  */
-@RequiredArgsConstructor
 public class ParserExpression<T, R extends B, B> {
 
     @Getter(AccessLevel.PROTECTED)
-    private final Lexer lexer = new Lexer();
+    private final Lexer lexer;
 
     @Getter(AccessLevel.PROTECTED)
-    private final Parser parser = new Parser();
+    private final Parser parser;
 
     @Getter(AccessLevel.PROTECTED)
-    private final Interpreter<T, R, B> interpreter = new Interpreter<>();
+    private final Interpreter<T, R, B> interpreter;
+
+    public static final long DEFAULT_COMPILATION_CACHE_SIZE = 1024;
+
+    /**
+     * Кэш выражений, которые выполнялись через {@link ParserExpression#execute(String, Map)} и компилировались через {@link ParserExpression#compile(String)}.
+     * Может быть null, если кэш отключен.
+     */
+    private volatile CompilationCache<B> compilationCache;
+
+    public ParserExpression() {
+        this(new Lexer(), new Parser(), new Interpreter<>(), new CompilationCache<>(DEFAULT_COMPILATION_CACHE_SIZE, null));
+    }
+
+    protected ParserExpression(Lexer lexer, Parser parser, Interpreter<T, R, B> interpreter, CompilationCache<B> compilationCache) {
+        this.lexer = lexer;
+        this.parser = parser;
+        this.interpreter = interpreter;
+        this.compilationCache = compilationCache;
+    }
+
+    /**
+     * Создает неизменяемую копию со всеми операторами, условиями и функциями.
+     * Копия не требует синхронизации: ее можно одновременно использовать из любого количества потоков.
+     * Любая попытка изменить копию приводит к {@link UnsupportedOperationException}.
+     * @return Возвращает неизменяемую копию.
+     */
+    public ParserExpression<T, R, B> snapshot() {
+        return new ParserExpression<>(lexer.snapshot(), parser.snapshot(), interpreter.snapshot(), Objects.isNull(compilationCache) ? null : compilationCache.emptyCopy());
+    }
+
+    /**
+     * @return Возвращает true, если объект был создан через {@link ParserExpression#snapshot()} или {@link ParserExpressionBuilder#build()}.
+     */
+    public boolean isImmutable() {
+        return interpreter.isImmutable();
+    }
+
+    /**
+     * @param <T> The type that is the parent of the input data types
+     * @param <R> The type of output data
+     * @return Возвращает строитель неизменяемого {@link ParserExpression}.
+     */
+    public static <T, R extends B, B> ParserExpressionBuilder<T, R, B> builder() {
+        return new ParserExpressionBuilder<>();
+    }
 
 
     /**
@@ -53,19 +125,109 @@ public class ParserExpression<T, R extends B, B> {
         }
     }
 
-    public interface TernaryOperatorWrapper<V> {
+    /**
+     * Общие свойства обработчиков операторов.
+     */
+    public interface OperatorWrapper {
+        /**
+         * @return Возвращает true, если результат оператора зависит только от операндов. Такой оператор над константами вычисляется при компиляции.
+         */
+        default boolean isPure() {
+            return false;
+        }
+    }
+
+    public interface TernaryOperatorWrapper<V> extends OperatorWrapper {
         String getSignOne();
         String getSignTwo();
         TernFunction<Boolean, V, V, V> getTernaryOperator();
     }
 
-    public interface BinaryOperatorWrapper<V, D> {
+    public interface BinaryOperatorWrapper<V, D> extends OperatorWrapper {
         String getSign();
         BiFunction<V, V, D> getBinaryOperator();
     }
-    public interface UnaryOperatorWrapper<V, D> {
+
+    /**
+     * Бинарный оператор над double. Добавляется через {@link ParserExpression#addBinaryOperator(BinaryOperatorWrapper[])}
+     * вместе с обычными операторами того же приоритета. Операнды принимаются как {@link Number}, результат - {@link Double}.
+     * Между узлами таких операторов значения не упаковываются ({@link Interpreter#addDoubleBinaryOperator(String, DoubleBinaryOperator)}).
+     */
+    public interface DoubleBinaryOperatorWrapper<V, D> extends BinaryOperatorWrapper<V, D> {
+        DoubleBinaryOperator getDoubleBinaryOperator();
+
+        @Override
+        default BiFunction<V, V, D> getBinaryOperator() {
+            return PrimitiveHandlers.boxedDouble(getDoubleBinaryOperator());
+        }
+    }
+
+    /**
+     * Сравнение чисел ({@link DoubleBinaryOperatorWrapper}), результат - {@link Boolean}.
+     */
+    public interface DoublePredicateWrapper<V, D> extends BinaryOperatorWrapper<V, D> {
+        DoubleBiPredicate getDoublePredicate();
+
+        @Override
+        default BiFunction<V, V, D> getBinaryOperator() {
+            return PrimitiveHandlers.boxedPredicate(getDoublePredicate());
+        }
+    }
+
+    /**
+     * Логический оператор над boolean ({@link BooleanBinaryOperator}). Например, {@link BooleanBinaryOperator#and()}
+     * выполняется лениво, как "&&" в Java.
+     */
+    public interface BooleanBinaryOperatorWrapper<V, D> extends BinaryOperatorWrapper<V, D> {
+        BooleanBinaryOperator getBooleanBinaryOperator();
+
+        @Override
+        default BiFunction<V, V, D> getBinaryOperator() {
+            return PrimitiveHandlers.boxedBoolean(getBooleanBinaryOperator());
+        }
+    }
+
+    /**
+     * Тернарный оператор, который выполняет только нужную ветвь: ветви передаются через {@link java.util.function.Supplier}.
+     */
+    public interface LazyTernaryOperatorWrapper<V> extends OperatorWrapper {
+        String getSignOne();
+        String getSignTwo();
+        LazyTernFunction<Boolean, V, V, V> getTernaryOperator();
+    }
+
+    /**
+     * Бинарный оператор, получающий операнды через {@link java.util.function.Supplier}.
+     * Позволяет не выполнять второй операнд, если результат известен по первому (например, "&&" и "||").
+     */
+    public interface LazyBinaryOperatorWrapper<V, D> extends OperatorWrapper {
+        String getSign();
+        LazyBiFunction<V, V, D> getBinaryOperator();
+    }
+
+    /**
+     * Унарный оператор над double ({@link DoubleUnaryOperator}).
+     */
+    public interface DoubleUnaryOperatorWrapper<V, D> extends UnaryOperatorWrapper<V, D> {
+        DoubleUnaryOperator getDoubleUnaryOperator();
+
+        @Override
+        default Function<V, D> getUnaryOperator() {
+            return PrimitiveHandlers.boxedUnary(getDoubleUnaryOperator());
+        }
+    }
+
+    public interface UnaryOperatorWrapper<V, D> extends OperatorWrapper {
         String getSign();
         Function<V, D> getUnaryOperator();
+
+        /**
+         * @return Возвращает true, если двойное применение оператора возвращает исходное значение (например, "!!x" == x).
+         * Такие пары операторов удаляются при компиляции.
+         */
+        default boolean isInvolution() {
+            return false;
+        }
     }
 
     /**
@@ -76,7 +238,22 @@ public class ParserExpression<T, R extends B, B> {
         parser.addOperator(new Parser.OperatorData(operatorData.getSignOne(), OperatorType.TERNARY_1), new Parser.OperatorData(operatorData.getSignTwo(), OperatorType.TERNARY_2));
         lexer.putOperator(Pattern.quote(operatorData.getSignOne()),TokenType.OPERATOR);
         lexer.putOperator(Pattern.quote(operatorData.getSignTwo()),TokenType.OPERATOR);
-        interpreter.addTernaryOperator(operatorData.getSignOne(), operatorData.getSignTwo(), operatorData.getTernaryOperator());
+        TernFunction<Boolean, B, B, B> ternaryOperator = operatorData.getTernaryOperator();
+        interpreter.addTernaryOperator(operatorData.getSignOne(), operatorData.getSignTwo(), ternaryOperator);
+        if (operatorData.isPure()) interpreter.markPure(ternaryOperator);
+    }
+
+    /**
+     * <p>adds support for the above lazy ternary operator</p>
+     * @param operatorData Object that indicate ternary operator
+     */
+    public void addLazyTernaryOperator(LazyTernaryOperatorWrapper<B> operatorData) {
+        parser.addOperator(new Parser.OperatorData(operatorData.getSignOne(), OperatorType.TERNARY_1), new Parser.OperatorData(operatorData.getSignTwo(), OperatorType.TERNARY_2));
+        lexer.putOperator(Pattern.quote(operatorData.getSignOne()),TokenType.OPERATOR);
+        lexer.putOperator(Pattern.quote(operatorData.getSignTwo()),TokenType.OPERATOR);
+        LazyTernFunction<Boolean, B, B, B> ternaryOperator = operatorData.getTernaryOperator();
+        interpreter.addLazyTernaryOperator(operatorData.getSignOne(), operatorData.getSignTwo(), ternaryOperator);
+        if (operatorData.isPure()) interpreter.markPure(ternaryOperator);
     }
 
     /**
@@ -84,6 +261,7 @@ public class ParserExpression<T, R extends B, B> {
      * @param operatorsData Objects that indicate binary operator.
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public final void addBinaryOperator(BinaryOperatorWrapper<B, R>... operatorsData) {
         parser.addOperator(
                 Arrays
@@ -93,15 +271,57 @@ public class ParserExpression<T, R extends B, B> {
                         .toArray(new Parser.OperatorData[]{}));
         for (BinaryOperatorWrapper<B, R> operatorData : operatorsData) {
             lexer.putOperator(Pattern.quote(operatorData.getSign()), TokenType.OPERATOR);
-            interpreter.addBinaryOperator(operatorData.getSign(),operatorData.getBinaryOperator());
+            Object binaryOperator = putBinaryOperator(operatorData);
+            if (operatorData.isPure()) interpreter.markPure(binaryOperator);
+        }
+    }
+
+    /**
+     * @return Возвращает оператор в том виде, в котором он хранится в интерпретаторе.
+     */
+    private Object putBinaryOperator(BinaryOperatorWrapper<B, R> operatorData) {
+        String sign = operatorData.getSign();
+        if (operatorData instanceof DoubleBinaryOperatorWrapper<B, R> doubleOperatorData) {
+            return interpreter.addDoubleBinaryOperator(sign, doubleOperatorData.getDoubleBinaryOperator());
+        }
+        if (operatorData instanceof DoublePredicateWrapper<B, R> predicateData) {
+            return interpreter.addDoublePredicate(sign, predicateData.getDoublePredicate());
         }
+        if (operatorData instanceof BooleanBinaryOperatorWrapper<B, R> booleanOperatorData) {
+            return interpreter.addBooleanBinaryOperator(sign, booleanOperatorData.getBooleanBinaryOperator());
+        }
+        BiFunction<B, B, R> binaryOperator = operatorData.getBinaryOperator();
+        interpreter.addBinaryOperator(sign, binaryOperator);
+        return binaryOperator;
     }
 
 
+    /**
+     * <p>adds support for the above lazy binary operator</p>
+     * @param operatorsData Objects that indicate binary operator.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final void addLazyBinaryOperator(LazyBinaryOperatorWrapper<B, R>... operatorsData) {
+        parser.addOperator(
+                Arrays
+                        .stream(operatorsData)
+                        .map(binaryOperatorWrapper -> new Parser.OperatorData(binaryOperatorWrapper.getSign(), OperatorType.BINARY))
+                        .toList()
+                        .toArray(new Parser.OperatorData[]{}));
+        for (LazyBinaryOperatorWrapper<B, R> operatorData : operatorsData) {
+            lexer.putOperator(Pattern.quote(operatorData.getSign()), TokenType.OPERATOR);
+            LazyBiFunction<B, B, R> binaryOperator = operatorData.getBinaryOperator();
+            interpreter.addLazyBinaryOperator(operatorData.getSign(), binaryOperator);
+            if (operatorData.isPure()) interpreter.markPure(binaryOperator);
+        }
+    }
+
     /**
      * @param operatorsData группа приоритетно-равных по отношению друг к другу унарных операторов.
      */
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public final void addUnaryOperator(UnaryOperatorWrapper<B, R>... operatorsData) {
         parser.addOperator(
                 Arrays
@@ -111,7 +331,16 @@ public class ParserExpression<T, R extends B, B> {
                         .toArray(new Parser.OperatorData[]{}));
         for (UnaryOperatorWrapper<B, R> operatorData : operatorsData) {
             lexer.putOperator(Pattern.quote(operatorData.getSign()), TokenType.OPERATOR);
-            interpreter.addUnaryOperator(operatorData.getSign(),operatorData.getUnaryOperator());
+            Function<B, R> unaryOperator;
+            if (operatorData instanceof DoubleUnaryOperatorWrapper<B, R> doubleOperatorData) {
+                unaryOperator = interpreter.addDoubleUnaryOperator(operatorData.getSign(), doubleOperatorData.getDoubleUnaryOperator());
+            }
+            else {
+                unaryOperator = operatorData.getUnaryOperator();
+                interpreter.addUnaryOperator(operatorData.getSign(), unaryOperator);
+            }
+            if (operatorData.isPure()) interpreter.markPure(unaryOperator);
+            if (operatorData.isInvolution()) interpreter.markInvolution(unaryOperator);
         }
     }
 
@@ -125,8 +354,19 @@ public class ParserExpression<T, R extends B, B> {
      * @param condition функция, являющееся обработчиком условия, принимающая на вход {@link String} и возвращающая R ({@link ParserExpression})
      */
     public void setCondition(@RegExp String regEx, Function<String,B> condition) {
+        setCondition(regEx, condition, false);
+    }
+
+    /**
+     * @param regEx {@link ParserExpression#setCondition(String, Function)}
+     * @param condition {@link ParserExpression#setCondition(String, Function)}
+     * @param pure true, если значение условия зависит только от его имени. Такое условие вычисляется при компиляции
+     *             и больше не заменяется локальными аргументами.
+     */
+    public void setCondition(@RegExp String regEx, Function<String,B> condition, boolean pure) {
         lexer.putOperator(regEx, TokenType.CONDITION);
         interpreter.addCondition(regEx, condition);
+        if (pure) interpreter.markPure(condition);
     }
 
     public void setCondition(@RegExp String regEx) {
@@ -134,7 +374,33 @@ public class ParserExpression<T, R extends B, B> {
     }
 
     /**
-     * Аналогичен {@link ParserExpression#setCondition(String, Function)}, только возвращается статичное значение
+     * Аналогичен {@link ParserExpression#setCondition(String, Function, boolean)}, но обработчик возвращает double.
+     * Операторы над double ({@link DoubleBinaryOperatorWrapper}) получают его значение без упаковки.
+     */
+    public void setDoubleCondition(@RegExp String regEx, ToDoubleFunction<String> condition, boolean pure) {
+        lexer.putOperator(regEx, TokenType.CONDITION);
+        Function<String, B> boxedCondition = interpreter.addDoubleCondition(regEx, condition);
+        if (pure) interpreter.markPure(boxedCondition);
+    }
+
+    public void setDoubleCondition(@RegExp String regEx, ToDoubleFunction<String> condition) {
+        setDoubleCondition(regEx, condition, false);
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#setCondition(String, Function)}, но обработчик возвращает {@link CompletionStage}
+     * и не должен блокировать поток (например, запрос к базе данных).
+     * Такие условия запрашиваются одновременно в {@link ParserExpression#executeAsync(Serializable, Map, Executor)}.
+     */
+    public void setAsyncCondition(@RegExp String regEx, Function<String, CompletionStage<B>> condition) {
+        lexer.putOperator(regEx, TokenType.CONDITION);
+        interpreter.addAsyncCondition(regEx, condition);
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#setCondition(String, Function)}, только возвращается статичное значение.
+     * Условие не считается чистым, поэтому локальный аргумент с тем же именем по-прежнему его заменяет.
+     * Чтобы значение подставлялось при компиляции, используйте {@link ParserExpression#setCondition(String, Function, boolean)}.
      * @param regEx {@link ParserExpression#setCondition(String, Function)}
      * @param result статичное значение R ({@link ParserExpression})
      */
@@ -148,9 +414,19 @@ public class ParserExpression<T, R extends B, B> {
      * @param function тело функции
      */
     public void setFunction(String sign, Function<List<B>,R> function) {
+        setFunction(sign, function, false);
+    }
+
+    /**
+     * @param sign {@link ParserExpression#setFunction(String, Function)}
+     * @param function {@link ParserExpression#setFunction(String, Function)}
+     * @param pure true, если результат функции зависит только от аргументов. Такая функция от констант вычисляется при компиляции.
+     */
+    public void setFunction(String sign, Function<List<B>,R> function, boolean pure) {
         lexer.putOperator(sign, TokenType.FUNCTION);
         //parser.addNumberFunctionArgument(sign, argumentCompare);
         interpreter.addFunctionOperator(sign, function);
+        if (pure) interpreter.markPure(function);
     }
 
 
@@ -209,7 +485,54 @@ public class ParserExpression<T, R extends B, B> {
      * @param alternativeConditionParser функция, принимающая {@link String} на вход и возвращающая R ({@link ParserExpression})
      */
     public void setAlternativeConditionParser(Function<String, R> alternativeConditionParser) {
+        setAlternativeConditionParser(alternativeConditionParser, false);
+    }
+
+    /**
+     * @param alternativeConditionParser {@link ParserExpression#setAlternativeConditionParser(Function)}
+     * @param pure true, если обработчик только разбирает литерал (например, число) и его результат зависит только от имени условия.
+     */
+    public void setAlternativeConditionParser(Function<String, R> alternativeConditionParser, boolean pure) {
         interpreter.setAlternativeConditionParser(alternativeConditionParser);
+        if (pure && !Objects.isNull(alternativeConditionParser)) interpreter.markPure(alternativeConditionParser);
+    }
+
+    /**
+     * Включает или отключает оптимизацию выражений при компиляции: свертку констант и удаление двойных инволюций.
+     * По умолчанию включена. Сворачиваются только чистые операторы, функции и условия.
+     */
+    public void setConstantFolding(boolean constantFolding) {
+        interpreter.setConstantFolding(constantFolding);
+    }
+
+    /**
+     * Включает или отключает запоминание значений на время одного выполнения. По умолчанию включено:
+     * обработчик каждого условия вызывается не больше одного раза за выполнение, сколько бы раз условие ни встречалось
+     * в выражении, так же как и одинаковые вызовы чистых методов ({@link ParserExpression#setPureMethod(String)}).
+     */
+    public void setMemoization(boolean memoization) {
+        interpreter.setMemoization(memoization);
+    }
+
+    /**
+     * Помечает метод как чистый: одинаковые вызовы метода у одного и того же объекта (например, $player#getWorld())
+     * выполняются один раз за выполнение выражения.
+     * @param methodName название метода
+     */
+    public void setPureMethod(String methodName) {
+        interpreter.markPureMethod(methodName);
+    }
+
+    /**
+     * Устанавливает способ, которым откомпилированные выражения ({@link ParserExpression#compile(String)}) будут превращаться в исполняемый код.
+     * @param executionStrategy способ исполнения, по умолчанию {@link ExecutionStrategy#EVALUATOR_TREE}
+     */
+    public void setExecutionStrategy(ExecutionStrategy executionStrategy) {
+        interpreter.setExecutionStrategy(executionStrategy);
+    }
+
+    public ExecutionStrategy getExecutionStrategy() {
+        return interpreter.getExecutionStrategy();
     }
 
     /**
@@ -220,7 +543,7 @@ public class ParserExpression<T, R extends B, B> {
      * @throws InterpreterException исключение, генерируемое при возникновении ошибки выполнения
      */
     public B execute(String code, Map<String, B> localArguments) throws CompileException, InterpreterException {
-        return interpreter.execute(parser.parsing(lexer.analyze(code)),localArguments);
+        return getEvaluator(compileExpression(code)).evaluate(new EvaluationContext<>(localArguments));
     }
 
     /**
@@ -230,10 +553,63 @@ public class ParserExpression<T, R extends B, B> {
      * @throws InterpreterException исключение, генерируемое при возникновении ошибки выполнения
      */
     public B execute(Serializable objectNode, Map<String, B> localArguments) throws InterpreterException {
+        if(objectNode instanceof CompiledExpression<?> compiledExpression) return getEvaluator(compiledExpression).evaluate(new EvaluationContext<>(localArguments));
         if(!(objectNode instanceof Node nodeMain)) throw new IllegalArgumentException("This object is not a code to be executed");
         return interpreter.execute(nodeMain ,localArguments);
     }
 
+    /**
+     * Аналогичен {@link ParserExpression#execute(Serializable, Map)}, но выполнение ограничено бюджетом: количеством узлов
+     * и/или сроком. Исполняемое дерево с проверками бюджета ({@link Interpreter#compileBudgeted(Node)}) строится тем же способом
+     * исполнения, что и обычное, и хранится в {@link CompiledExpression} рядом с ним, поэтому повторное выполнение его не пересобирает.
+     * @param budget бюджет выполнения
+     * @throws org.thedivazo.condlang.exception.BudgetExceededException если бюджет превышен
+     */
+    @SuppressWarnings("unchecked")
+    public B execute(Serializable objectNode, Map<String, B> localArguments, ExecutionBudget<B> budget) throws InterpreterException {
+        Evaluator<B> evaluator;
+        if (objectNode instanceof CompiledExpression<?> compiledExpression) evaluator = ((CompiledExpression<B>) compiledExpression).getBudgetedEvaluator(interpreter);
+        else if (objectNode instanceof Node nodeMain) evaluator = interpreter.compileBudgeted(nodeMain);
+        else throw new IllegalArgumentException("This object is not a code to be executed");
+        return evaluator.evaluate(new EvaluationContext<>(localArguments, 0, Objects.requireNonNull(budget)));
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#execute(Serializable, Map)}, но каждый узел сообщает о своем выполнении слушателю,
+     * например {@link org.thedivazo.condlang.interpreter.EvaluationProfiler}. Для этого строится отдельное исполняемое дерево
+     * ({@link Interpreter#compileInstrumented(Node, EvaluationListener)}), поэтому способ исполнения не учитывается,
+     * а обычное выполнение остается без изменений.
+     * @param listener слушатель выполнения
+     */
+    public B execute(Serializable objectNode, Map<String, B> localArguments, EvaluationListener<B> listener) throws InterpreterException {
+        Node node;
+        if (objectNode instanceof CompiledExpression<?> compiledExpression) node = compiledExpression.getNode();
+        else if (objectNode instanceof Node nodeMain) node = nodeMain;
+        else throw new IllegalArgumentException("This object is not a code to be executed");
+        return interpreter.compileInstrumented(node, listener).evaluate(new EvaluationContext<>(localArguments));
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#execute(Serializable, Map)}, но локальные аргументы передаются массивом по слотам,
+     * без поиска по именам. Слоты выражения: {@link CompiledExpression#getSlotLayout()}.
+     * @param compiledExpression откомпилированный объект, представляющий собой результат работы {@link ParserExpression#compile(String)}
+     * @param frame значения локальных аргументов по слотам. null в ячейке означает, что аргумента нет.
+     * @return Возвращает значение R ({@link ParserExpression})
+     * @throws InterpreterException исключение, генерируемое при возникновении ошибки выполнения
+     */
+    public B executeFrame(Serializable compiledExpression, Object[] frame) throws InterpreterException {
+        if(!(compiledExpression instanceof CompiledExpression<?> expression)) throw new IllegalArgumentException("This object is not a compiled code");
+        return getEvaluator(expression).evaluate(new EvaluationContext<>(frame));
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#executeFrame(Serializable, Object[])}.
+     * @param frame набор локальных аргументов, созданный {@link CompiledExpression#newFrame()} этого же выражения
+     */
+    public B executeFrame(Serializable compiledExpression, Frame frame) throws InterpreterException {
+        return executeFrame(compiledExpression, frame.getValues());
+    }
+
     /**
      * Аналогичен {@link ParserExpression#execute(Serializable, Map)}, но только без локальных аргументов
      * @param objectNode {@link ParserExpression#execute(Serializable, Map)}
@@ -241,8 +617,78 @@ public class ParserExpression<T, R extends B, B> {
      * @throws InterpreterException {@link ParserExpression#execute(Serializable, Map)}
      */
     public B execute(Serializable objectNode) throws InterpreterException {
-        if(!(objectNode instanceof Node nodeMain)) throw new IllegalArgumentException("This object is not a code to be executed");
-        return interpreter.execute(nodeMain);
+        return execute(objectNode, null);
+    }
+
+    /**
+     * Выполняет одно выражение для каждого набора локальных аргументов. Исполняемое дерево строится один раз на весь набор.
+     * @param objectNode откомпилированный объект, представляющий собой результат работы {@link ParserExpression#compile(String)}
+     * @param localArgumentsList наборы локальных аргументов, например по одному на сущность
+     * @param results массив, в который записывается результат для каждого набора аргументов (results[i] для localArgumentsList.get(i))
+     * @throws InterpreterException исключение, генерируемое при возникновении ошибки выполнения
+     */
+    public void executeBatch(Serializable objectNode, List<? extends Map<String, B>> localArgumentsList, B[] results) throws InterpreterException {
+        createBatchTask(objectNode, localArgumentsList, results).executeSequentially();
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#executeBatch(Serializable, List, Object[])}, но делит наборы аргументов на части
+     * и выполняет их в forkJoinPool. Обработчики условий, операторов и функций должны быть потокобезопасными.
+     * @param forkJoinPool пул, в котором выполняется выражение
+     */
+    public void executeBatch(Serializable objectNode, List<? extends Map<String, B>> localArgumentsList, B[] results, ForkJoinPool forkJoinPool) throws InterpreterException {
+        try {
+            forkJoinPool.invoke(createBatchTask(objectNode, localArgumentsList, results));
+        } catch (UncheckedInterpreterException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#executeBatch(Serializable, List, Object[])}, но возвращает результаты списком.
+     */
+    @SuppressWarnings("unchecked")
+    public List<B> executeBatch(Serializable objectNode, List<? extends Map<String, B>> localArgumentsList) throws InterpreterException {
+        B[] results = (B[]) new Object[localArgumentsList.size()];
+        executeBatch(objectNode, localArgumentsList, results);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Аналогичен {@link ParserExpression#executeAsync(Serializable, Map, Executor)} с {@link ForkJoinPool#commonPool()}.
+     */
+    public CompletableFuture<B> executeAsync(Serializable objectNode, Map<String, B> localArguments) {
+        return executeAsync(objectNode, localArguments, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Выполняет выражение, не блокируя вызывающий поток: асинхронные условия ({@link ParserExpression#setAsyncCondition(String, Function)})
+     * запрашиваются одновременно, а выражение выполняется, когда все они получены ({@link Interpreter#executeAsync(Evaluator, SlotLayout, Map, Executor)}).
+     * @param objectNode откомпилированный объект, представляющий собой результат работы {@link ParserExpression#compile(String)}
+     * @param localArguments локальные аргументы (условие, переменные). Они будут обработаны в первую очередь.
+     * @param executor выполняет обработчики условий и само выражение, например пул виртуальных потоков
+     * @return Возвращает результат выражения. Ошибки выполнения приходят как {@link java.util.concurrent.CompletionException}.
+     */
+    public CompletableFuture<B> executeAsync(Serializable objectNode, Map<String, B> localArguments, Executor executor) {
+        CompiledExpression<?> compiledExpression;
+        if (objectNode instanceof CompiledExpression<?> expression) compiledExpression = expression;
+        else if (objectNode instanceof Node node) compiledExpression = new CompiledExpression<>(node);
+        else throw new IllegalArgumentException("This object is not a code to be executed");
+        return interpreter.executeAsync(getEvaluator(compiledExpression), compiledExpression.getSlotLayout(), localArguments, Objects.requireNonNull(executor));
+    }
+
+    protected BatchTask<B> createBatchTask(Serializable objectNode, List<? extends Map<String, B>> localArgumentsList, B[] results) {
+        if (results.length < localArgumentsList.size()) throw new IllegalArgumentException("The results array is shorter than the list of arguments");
+        CompiledExpression<?> compiledExpression;
+        if (objectNode instanceof CompiledExpression<?> expression) compiledExpression = expression;
+        else if (objectNode instanceof Node node) compiledExpression = new CompiledExpression<>(node);
+        else throw new IllegalArgumentException("This object is not a code to be executed");
+        return new BatchTask<>(getEvaluator(compiledExpression), localArgumentsList, results, 0, localArgumentsList.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Evaluator<B> getEvaluator(CompiledExpression<?> compiledExpression) {
+        return ((CompiledExpression<B>) compiledExpression).getEvaluator(interpreter);
     }
 
     /**
@@ -251,15 +697,110 @@ public class ParserExpression<T, R extends B, B> {
      * @return {@link ParserExpression#execute(String, Map)}
      */
     public B execute(String code) throws CompileException, InterpreterException {
-        return interpreter.execute(parser.parsing(lexer.analyze(code)));
+        return execute(code, null);
     }
 
     /**
      * компилирует код для последующего использования в {@link ParserExpression#execute(Serializable, Map)}
      * @param code код
-     * @return Возвращает объект, представляющий собой AST дерево. Данный код можно безопасно хранить и передавать.
+     * @return Возвращает {@link CompiledExpression}, который хранит AST дерево и исполняемое дерево, построенное по нему.
+     * Данный код можно безопасно хранить и передавать. Константы в AST дереве сворачиваются при компиляции,
+     * поэтому значения чистых обработчиков фиксируются на момент вызова этого метода.
      */
     public Serializable compile(String code) throws CompileException {
-        return parser.parsing(lexer.analyze(code));
+        return compileExpression(code);
+    }
+
+    /**
+     * Компилирует несколько правил в один {@link RuleSet}: одинаковые части правил вычисляются один раз за выполнение.
+     * @param rules исходный код правил по их идентификаторам
+     * @return Возвращает набор правил, привязанный к текущим обработчикам.
+     */
+    public RuleSet<B> compileRuleSet(Map<String, String> rules) throws CompileException {
+        Map<String, Node> nodes = new LinkedHashMap<>(rules.size() * 2);
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            nodes.put(rule.getKey(), compileExpression(rule.getValue()).getNode());
+        }
+        return RuleSet.compile(interpreter, nodes);
+    }
+
+    /**
+     * Разбирает код для последующих правок через {@link ParserExpression#reparse(ParseResult, int, int, String)}.
+     * @param code код
+     * @return Возвращает AST дерево и ошибки разбора ({@link ParseResult#getDiagnostics()}).
+     */
+    public ParseResult parseIncremental(String code) {
+        return new IncrementalParser(lexer, parser).parse(code);
+    }
+
+    /**
+     * Разбирает код после правки, заново анализируя только измененную часть (см. {@link IncrementalParser}).
+     * @param previous результат разбора кода до правки
+     * @param offset позиция правки
+     * @param removedLength количество удаленных символов
+     * @param insertedText вставленный текст
+     * @return Возвращает AST дерево и ошибки разбора измененного кода.
+     */
+    public ParseResult reparse(ParseResult previous, int offset, int removedLength, String insertedText) {
+        return new IncrementalParser(lexer, parser).reparse(previous, offset, removedLength, insertedText);
+    }
+
+    /**
+     * Компилирует результат {@link ParserExpression#parseIncremental(String)} или {@link ParserExpression#reparse(ParseResult, int, int, String)}
+     * так же, как {@link ParserExpression#compile(String)}. AST дерево результата при этом не изменяется.
+     * @param parseResult результат разбора
+     * @return Возвращает {@link CompiledExpression}.
+     * @throws CompileException если при разборе были ошибки
+     */
+    public Serializable compile(ParseResult parseResult) throws CompileException {
+        if (parseResult.hasErrors()) throw parseResult.getError();
+        return newCompiledExpression(interpreter.optimize(FlatTree.of(parseResult.getNode()).toNode()));
+    }
+
+    protected void checkMutable() {
+        if (isImmutable()) throw new UnsupportedOperationException("The parser expression is immutable");
+    }
+
+    protected CompiledExpression<B> compileExpression(String code) throws CompileException {
+        CompilationCache<B> compilationCache = this.compilationCache;
+        if (Objects.isNull(compilationCache)) return newCompiledExpression(interpreter.optimize(parser.parsing(lexer.analyze(code))));
+        return compilationCache.get(code, getModificationCount(), sourceCode -> newCompiledExpression(interpreter.optimize(parser.parsing(lexer.analyze(sourceCode)))));
+    }
+
+    /**
+     * @return Возвращает выражение в плоском виде ({@link FlatTree}), если выбран {@link ExecutionStrategy#FLAT_TREE}.
+     */
+    protected CompiledExpression<B> newCompiledExpression(Node mainNode) {
+        if (interpreter.getExecutionStrategy() == ExecutionStrategy.FLAT_TREE) return new CompiledExpression<>(FlatTree.of(mainNode));
+        return new CompiledExpression<>(mainNode);
+    }
+
+    /**
+     * @return Возвращает версию правил. Меняется при любом изменении {@link Lexer}, {@link Parser} или {@link Interpreter}.
+     */
+    public long getModificationCount() {
+        return (long) lexer.getModificationCount() + parser.getModificationCount() + interpreter.getModificationCount();
+    }
+
+    /**
+     * Заменяет кэш откомпилированных выражений.
+     * @param maximumSize максимальное количество выражений в кэше
+     * @param expireAfterAccess время с последнего обращения, после которого выражение удаляется из кэша. Может быть null.
+     */
+    public void setCompilationCache(long maximumSize, Duration expireAfterAccess) {
+        checkMutable();
+        compilationCache = new CompilationCache<>(maximumSize, expireAfterAccess);
+    }
+
+    public void disableCompilationCache() {
+        checkMutable();
+        compilationCache = null;
+    }
+
+    /**
+     * @return Возвращает статистику кэша откомпилированных выражений или null, если кэш отключен.
+     */
+    public CompilationCache.Stats getCompilationCacheStats() {
+        return Objects.isNull(compilationCache) ? null : compilationCache.getStats();
     }
 }
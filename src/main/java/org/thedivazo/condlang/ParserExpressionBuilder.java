@@ -0,0 +1,195 @@
+package org.thedivazo.condlang;
+
+import org.intellij.lang.annotations.RegExp;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Строитель неизменяемого {@link ParserExpression}. Все операторы, условия и функции добавляются один раз,
+ * после чего {@link ParserExpressionBuilder#build()} возвращает потокобезопасный объект, который можно
+ * использовать из любого количества потоков без синхронизации.
+ * Методы повторяют одноименные методы {@link ParserExpression}.
+ * @param <T> The type that is the parent of the input data types
+ * @param <R> The type of output data
+ */
+public final class ParserExpressionBuilder<T, R extends B, B> {
+
+    private final ParserExpression<T, R, B> parserExpression = new ParserExpression<>();
+
+    ParserExpressionBuilder() {
+    }
+
+    public ParserExpressionBuilder<T, R, B> addVariableStartSymbols(String... startVariableSymbols) {
+        parserExpression.addVariableStartSymbols(startVariableSymbols);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addTernaryOperator(ParserExpression.TernaryOperatorWrapper<B> operatorData) {
+        parserExpression.addTernaryOperator(operatorData);
+        return this;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final ParserExpressionBuilder<T, R, B> addBinaryOperator(ParserExpression.BinaryOperatorWrapper<B, R>... operatorsData) {
+        parserExpression.addBinaryOperator(operatorsData);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addLazyTernaryOperator(ParserExpression.LazyTernaryOperatorWrapper<B> operatorData) {
+        parserExpression.addLazyTernaryOperator(operatorData);
+        return this;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final ParserExpressionBuilder<T, R, B> addLazyBinaryOperator(ParserExpression.LazyBinaryOperatorWrapper<B, R>... operatorsData) {
+        parserExpression.addLazyBinaryOperator(operatorsData);
+        return this;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final ParserExpressionBuilder<T, R, B> addUnaryOperator(ParserExpression.UnaryOperatorWrapper<B, R>... operatorsData) {
+        parserExpression.addUnaryOperator(operatorsData);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setCondition(@RegExp String regEx, Function<String, B> condition) {
+        parserExpression.setCondition(regEx, condition);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setCondition(@RegExp String regEx, Function<String, B> condition, boolean pure) {
+        parserExpression.setCondition(regEx, condition, pure);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setCondition(@RegExp String regEx) {
+        parserExpression.setCondition(regEx);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setCondition(@RegExp String regEx, R result) {
+        parserExpression.setCondition(regEx, result);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setDoubleCondition(@RegExp String regEx, ToDoubleFunction<String> condition) {
+        parserExpression.setDoubleCondition(regEx, condition);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setDoubleCondition(@RegExp String regEx, ToDoubleFunction<String> condition, boolean pure) {
+        parserExpression.setDoubleCondition(regEx, condition, pure);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setAsyncCondition(@RegExp String regEx, Function<String, CompletionStage<B>> condition) {
+        parserExpression.setAsyncCondition(regEx, condition);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setFunction(String sign, Function<List<B>, R> function) {
+        parserExpression.setFunction(sign, function);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setFunction(String sign, Function<List<B>, R> function, boolean pure) {
+        parserExpression.setFunction(sign, function, pure);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addMethods(Set<String> methods) {
+        parserExpression.addMethods(methods);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addMethod(@RegExp String method) {
+        parserExpression.addMethod(method);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addCompoundOperators(@RegExp String compoundStartSign, @RegExp String compoundEndSign) {
+        parserExpression.addCompoundOperators(compoundStartSign, compoundEndSign);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addDelimiter(@RegExp String delimiter) {
+        parserExpression.addDelimiter(delimiter);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addSkipSymbols(String... skipSymbols) {
+        parserExpression.addSkipSymbols(skipSymbols);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> addMethodReferenceSymbols(String... methodReferenceSymbols) {
+        parserExpression.addMethodReferenceSymbols(methodReferenceSymbols);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setAlternativeConditionParser(Function<String, R> alternativeConditionParser) {
+        parserExpression.setAlternativeConditionParser(alternativeConditionParser);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setAlternativeConditionParser(Function<String, R> alternativeConditionParser, boolean pure) {
+        parserExpression.setAlternativeConditionParser(alternativeConditionParser, pure);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setConstantFolding(boolean constantFolding) {
+        parserExpression.setConstantFolding(constantFolding);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setMemoization(boolean memoization) {
+        parserExpression.setMemoization(memoization);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setPureMethod(String methodName) {
+        parserExpression.setPureMethod(methodName);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setExecutionStrategy(ExecutionStrategy executionStrategy) {
+        parserExpression.setExecutionStrategy(executionStrategy);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> setCompilationCache(long maximumSize, Duration expireAfterAccess) {
+        parserExpression.setCompilationCache(maximumSize, expireAfterAccess);
+        return this;
+    }
+
+    public ParserExpressionBuilder<T, R, B> disableCompilationCache() {
+        parserExpression.disableCompilationCache();
+        return this;
+    }
+
+    /**
+     * Позволяет настроить {@link ParserExpression} методами, для которых в строителе нет аналога.
+     * @param configurator функция, получающая изменяемый {@link ParserExpression}
+     */
+    public ParserExpressionBuilder<T, R, B> configure(Consumer<ParserExpression<T, R, B>> configurator) {
+        configurator.accept(parserExpression);
+        return this;
+    }
+
+    /**
+     * @return Возвращает неизменяемый {@link ParserExpression} ({@link ParserExpression#snapshot()}).
+     */
+    public ParserExpression<T, R, B> build() {
+        return parserExpression.snapshot();
+    }
+}
@@ -0,0 +1,243 @@
+package org.thedivazo.condlang;
+
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.parser.BinaryNodeFormat;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Хранилище откомпилированных выражений в одном файле. Файл отображается в память ({@link FileChannel#map}),
+ * а выражения декодируются ({@link BinaryNodeFormat}) только при первом обращении к ним, поэтому время открытия
+ * не зависит от количества правил, а неиспользуемые правила не занимают место в куче.
+ * <pre>
+ * magic (4 байта "CLRS") | версия (int) | количество правил (int)
+ * индекс: для каждого правила смещение id, длина id, смещение выражения, длина выражения (4 int),
+ *         отсортирован по UTF-8 байтам id
+ * id правил (UTF-8) | выражения в формате {@link BinaryNodeFormat}
+ * </pre>
+ * Поиск правила - двоичный поиск по индексу, сравнение идет по байтам прямо в отображенном буфере.
+ * Экземпляр потокобезопасен.
+ * @param <B> the type that returns the condition.
+ */
+public final class RuleStore<B> implements Closeable {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x434C5253;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer byteBuffer;
+
+    private final int size;
+
+    private final AtomicReferenceArray<CompiledExpression<B>> expressions;
+
+    private volatile boolean closed;
+
+    private RuleStore(ByteBuffer byteBuffer) {
+        if (byteBuffer.limit() < HEADER_SIZE || byteBuffer.getInt(0) != MAGIC) throw new IllegalArgumentException("The data is not a rule store");
+        if (byteBuffer.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported rule store version: " + byteBuffer.getInt(4));
+        this.size = byteBuffer.getInt(8);
+        if (size < 0 || HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE > byteBuffer.limit()) throw new IllegalArgumentException("The rule store index is corrupted");
+        this.byteBuffer = byteBuffer;
+        this.expressions = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Открывает файл, записанный {@link RuleStore#write(Path, Map)}. Файл отображается в память только для чтения,
+     * сами выражения при этом не читаются.
+     * @param path путь к файлу
+     * @throws IOException исключение, генерируемое при ошибке чтения файла
+     */
+    public static <B> RuleStore<B> open(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            return new RuleStore<>(mappedByteBuffer);
+        }
+    }
+
+    /**
+     * Аналогичен {@link RuleStore#open(Path)}, но данные берутся из уже готового буфера.
+     */
+    public static <B> RuleStore<B> wrap(ByteBuffer byteBuffer) {
+        return new RuleStore<>(byteBuffer.slice());
+    }
+
+    /**
+     * Записывает правила в файл. Файл сначала пишется во временный файл рядом, а затем заменяет старый,
+     * поэтому уже открытые хранилища продолжают читать прежнюю версию.
+     * @param path путь к файлу
+     * @param rules откомпилированные выражения ({@link ParserExpression#compile(String)}) по id правил
+     * @throws IOException исключение, генерируемое при ошибке записи файла
+     * @throws IllegalArgumentException если выражение нельзя записать ({@link BinaryNodeFormat#toByteArray(Node)}), файл при этом не меняется
+     */
+    public static void write(Path path, Map<String, ? extends Serializable> rules) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path temporaryPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryPath, toByteArray(rules));
+            Files.move(temporaryPath, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    /**
+     * @param rules откомпилированные выражения ({@link ParserExpression#compile(String)}) по id правил
+     * @return Возвращает хранилище в виде массива байт, который можно прочитать через {@link RuleStore#wrap(ByteBuffer)}.
+     * @throws IllegalArgumentException если выражение нельзя записать ({@link BinaryNodeFormat#toByteArray(Node)})
+     */
+    public static byte[] toByteArray(Map<String, ? extends Serializable> rules) {
+        int count = rules.size();
+        byte[][] ids = new byte[count][];
+        byte[][] data = new byte[count][];
+        int index = 0;
+        for (Map.Entry<String, ? extends Serializable> rule : rules.entrySet()) {
+            ids[index] = rule.getKey().getBytes(StandardCharsets.UTF_8);
+            data[index] = BinaryNodeFormat.toByteArray(toNode(rule.getValue()));
+            index++;
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (first, second) -> Arrays.compareUnsigned(ids[first], ids[second]));
+
+        long totalSize = HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE;
+        for (int i = 0; i < count; i++) totalSize += ids[i].length + data[i].length;
+        if (totalSize > Integer.MAX_VALUE) throw new IllegalArgumentException("The rule store is too large");
+
+        ByteBuffer output = ByteBuffer.allocate((int) totalSize);
+        output.putInt(MAGIC).putInt(VERSION).putInt(count);
+        int offset = HEADER_SIZE + count * INDEX_ENTRY_SIZE;
+        int idsSize = 0;
+        for (int i = 0; i < count; i++) idsSize += ids[i].length;
+        int idOffset = offset;
+        int dataOffset = offset + idsSize;
+        for (int i = 0; i < count; i++) {
+            int rule = order[i];
+            output.putInt(idOffset).putInt(ids[rule].length).putInt(dataOffset).putInt(data[rule].length);
+            idOffset += ids[rule].length;
+            dataOffset += data[rule].length;
+        }
+        for (int i = 0; i < count; i++) output.put(ids[order[i]]);
+        for (int i = 0; i < count; i++) output.put(data[order[i]]);
+        return output.array();
+    }
+
+    private static Node toNode(Serializable objectNode) {
+        if (objectNode instanceof CompiledExpression<?> compiledExpression) return compiledExpression.getNode();
+        if (objectNode instanceof Node node) return node;
+        throw new IllegalArgumentException("This object is not a code to be executed");
+    }
+
+    /**
+     * @return Возвращает количество правил в хранилище.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String id) {
+        checkOpen();
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Возвращает правило, декодируя его при первом обращении. Последующие обращения возвращают тот же объект,
+     * поэтому построенное для него исполняемое дерево тоже переиспользуется.
+     * @param id id правила
+     * @return Возвращает откомпилированное выражение для {@link ParserExpression#execute(Serializable, Map)} или null, если правила нет.
+     */
+    public CompiledExpression<B> get(String id) {
+        checkOpen();
+        int index = indexOf(id);
+        if (index < 0) return null;
+        CompiledExpression<B> compiledExpression = expressions.get(index);
+        if (compiledExpression != null) return compiledExpression;
+        int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+        ByteBuffer data = byteBuffer.slice(byteBuffer.getInt(entry + 8), byteBuffer.getInt(entry + 12));
+        compiledExpression = CompiledExpression.readFrom(data);
+        CompiledExpression<B> existing = expressions.compareAndExchange(index, null, compiledExpression);
+        return existing == null ? compiledExpression : existing;
+    }
+
+    /**
+     * @return Возвращает id всех правил в порядке их UTF-8 байт.
+     */
+    public List<String> getIds() {
+        checkOpen();
+        List<String> ids = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+            byte[] id = new byte[byteBuffer.getInt(entry + 4)];
+            byteBuffer.get(byteBuffer.getInt(entry), id);
+            ids.add(new String(id, StandardCharsets.UTF_8));
+        }
+        return ids;
+    }
+
+    /**
+     * @return Возвращает количество уже декодированных правил.
+     */
+    public int getLoadedCount() {
+        int loadedCount = 0;
+        for (int index = 0; index < size; index++) {
+            if (expressions.get(index) != null) loadedCount++;
+        }
+        return loadedCount;
+    }
+
+    private int indexOf(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compareId(middle, key);
+            if (compare < 0) low = middle + 1;
+            else if (compare > 0) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    private int compareId(int index, byte[] key) {
+        int entry = HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+        int offset = byteBuffer.getInt(entry);
+        int length = byteBuffer.getInt(entry + 4);
+        int commonLength = Math.min(length, key.length);
+        for (int i = 0; i < commonLength; i++) {
+            int compare = Byte.compareUnsigned(byteBuffer.get(offset + i), key[i]);
+            if (compare != 0) return compare;
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("The rule store is closed");
+    }
+
+    /**
+     * Закрывает хранилище. Уже полученные выражения остаются рабочими, так как они не ссылаются на файл.
+     * Само отображение освобождается сборщиком мусора.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
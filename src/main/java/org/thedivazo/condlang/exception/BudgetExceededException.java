@@ -0,0 +1,54 @@
+package org.thedivazo.condlang.exception;
+
+/**
+ * Выбрасывается, когда выполнение превысило бюджет ({@link org.thedivazo.condlang.interpreter.ExecutionBudget}):
+ * количество выполненных узлов или время. Содержит, сколько успело выполниться.
+ */
+public class BudgetExceededException extends InterpreterException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Количество узлов, выполнение которых было начато до прерывания.
+     */
+    private final long steps;
+
+    /**
+     * Время от создания бюджета до прерывания, в наносекундах.
+     */
+    private final long elapsedTime;
+
+    /**
+     * Имя узла (оператор, функция, условие, метод или значение константы), перед которым выполнение было прервано.
+     */
+    private final String node;
+
+    private final boolean deadlineExceeded;
+
+    public BudgetExceededException(String message, long steps, long elapsedTime, String node, boolean deadlineExceeded) {
+        super(message);
+        this.steps = steps;
+        this.elapsedTime = elapsedTime;
+        this.node = node;
+        this.deadlineExceeded = deadlineExceeded;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return Возвращает true, если прошел срок выполнения, и false, если закончились шаги.
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+}
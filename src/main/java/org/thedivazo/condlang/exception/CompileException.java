@@ -5,9 +5,14 @@ package org.thedivazo.condlang.exception;
  */
 public class CompileException extends Exception {
 
+    /**
+     * Позиция символа в коде, на котором произошла ошибка, или -1, если она неизвестна.
+     */
+    private final int position;
 
     public CompileException(String message) {
         super(message);
+        this.position = -1;
     }
 
     /**
@@ -32,6 +37,11 @@ public class CompileException extends Exception {
                 + invalidCode + "\n"
                 + getSpace(position)
         );
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
     }
 
 }
@@ -0,0 +1,19 @@
+package org.thedivazo.condlang.exception;
+
+/**
+ * Переносит {@link InterpreterException} через ленивые операнды ({@link java.util.function.Supplier}),
+ * которые не могут выбрасывать проверяемые исключения.
+ */
+public class UncheckedInterpreterException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedInterpreterException(InterpreterException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized InterpreterException getCause() {
+        return (InterpreterException) super.getCause();
+    }
+}
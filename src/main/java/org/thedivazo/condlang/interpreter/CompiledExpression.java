@@ -0,0 +1,140 @@
+package org.thedivazo.condlang.interpreter;
+
+import lombok.Getter;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.parser.BinaryNodeFormat;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Откомпилированное выражение. Хранит AST дерево и исполняемое дерево ({@link Evaluator}), построенное по нему.
+ * Сериализуется только AST дерево, исполняемое дерево строится заново при первом выполнении,
+ * а также при изменении обработчиков {@link Interpreter}.
+ * @param <B> the type that returns the condition.
+ */
+public final class CompiledExpression<B> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * AST дерево. null, если выражение хранится в плоском виде.
+     */
+    private final Node node;
+
+    /**
+     * AST дерево в плоском виде. null, если выражение хранится в виде дерева {@link Node}.
+     */
+    @Getter
+    private final FlatTree flatTree;
+
+    /**
+     * Слоты локальных аргументов. Совпадают со слотами исполняемого дерева, так как строятся по тому же AST дереву.
+     */
+    @Getter
+    private final SlotLayout slotLayout;
+
+    private transient volatile Binding<B> binding;
+
+    /**
+     * Исполняемое дерево с проверками бюджета ({@link Interpreter#compileBudgeted(Node)}). Строится при первом выполнении с бюджетом.
+     */
+    private transient volatile Binding<B> budgetedBinding;
+
+    private record Binding<B>(Interpreter<?, ?, B> interpreter, int modificationCount, Evaluator<B> evaluator) {}
+
+    public CompiledExpression(Node node) {
+        this.node = Objects.requireNonNull(node);
+        this.flatTree = null;
+        this.slotLayout = SlotLayout.of(node);
+    }
+
+    public CompiledExpression(FlatTree flatTree) {
+        this.node = null;
+        this.flatTree = Objects.requireNonNull(flatTree);
+        this.slotLayout = SlotLayout.of(flatTree);
+    }
+
+    /**
+     * @return Возвращает AST дерево. Если выражение хранится в плоском виде, каждый вызов строит новое дерево.
+     */
+    public Node getNode() {
+        return Objects.isNull(node) ? flatTree.toNode() : node;
+    }
+
+    /**
+     * @return Возвращает это же выражение, хранящееся в плоском виде ({@link FlatTree}).
+     */
+    public CompiledExpression<B> flatten() {
+        return Objects.isNull(node) ? this : new CompiledExpression<>(FlatTree.of(node));
+    }
+
+    /**
+     * @param interpreter интерпретатор, обработчики которого будут использованы
+     * @return Возвращает исполняемое дерево, актуальное для данного интерпретатора.
+     */
+    public Evaluator<B> getEvaluator(Interpreter<?, ?, B> interpreter) {
+        Binding<B> currentBinding = binding;
+        if (Objects.isNull(currentBinding) || currentBinding.interpreter() != interpreter || currentBinding.modificationCount() != interpreter.getModificationCount()) {
+            currentBinding = new Binding<>(interpreter, interpreter.getModificationCount(), Objects.isNull(node) ? interpreter.compile(flatTree) : interpreter.compile(node));
+            binding = currentBinding;
+        }
+        return currentBinding.evaluator();
+    }
+
+    /**
+     * @param interpreter интерпретатор, обработчики которого будут использованы
+     * @return Возвращает исполняемое дерево с проверками бюджета ({@link Interpreter#compileBudgeted(Node)}), актуальное для данного интерпретатора.
+     */
+    public Evaluator<B> getBudgetedEvaluator(Interpreter<?, ?, B> interpreter) {
+        Binding<B> currentBinding = budgetedBinding;
+        if (Objects.isNull(currentBinding) || currentBinding.interpreter() != interpreter || currentBinding.modificationCount() != interpreter.getModificationCount()) {
+            currentBinding = new Binding<>(interpreter, interpreter.getModificationCount(), Objects.isNull(node) ? interpreter.compileBudgeted(flatTree) : interpreter.compileBudgeted(node));
+            budgetedBinding = currentBinding;
+        }
+        return currentBinding.evaluator();
+    }
+
+    /**
+     * @return Возвращает пустой набор локальных аргументов для этого выражения. Его можно переиспользовать между выполнениями.
+     */
+    public Frame newFrame() {
+        return new Frame(slotLayout);
+    }
+
+    /**
+     * Записывает AST дерево в компактном двоичном формате ({@link BinaryNodeFormat}).
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        BinaryNodeFormat.writeTo(getNode(), outputStream);
+    }
+
+    /**
+     * Записывает AST дерево в компактном двоичном формате ({@link BinaryNodeFormat}) с текущей позиции буфера.
+     */
+    public void writeTo(ByteBuffer byteBuffer) {
+        BinaryNodeFormat.writeTo(getNode(), byteBuffer);
+    }
+
+    public byte[] toByteArray() {
+        return BinaryNodeFormat.toByteArray(getNode());
+    }
+
+    /**
+     * Читает выражение, записанное {@link CompiledExpression#writeTo(ByteBuffer)}, с текущей позиции буфера.
+     * Буфер может быть отображен в память ({@link java.nio.MappedByteBuffer}).
+     */
+    public static <B> CompiledExpression<B> readFrom(ByteBuffer byteBuffer) {
+        return new CompiledExpression<>(BinaryNodeFormat.readFrom(byteBuffer));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.isNull(node) ? flatTree.toString() : node.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.parser.AST.*;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Оптимизирует AST дерево перед выполнением:
+ * <ul>
+ *     <li>условия с чистым обработчиком заменяются на {@link ConstantNode};</li>
+ *     <li>чистые операторы и функции, все аргументы которых являются константами, вычисляются и заменяются на {@link ConstantNode};</li>
+ *     <li>двойное применение унарного оператора-инволюции (например, "!!x") удаляется.</li>
+ * </ul>
+ * Вызовы методов не сворачиваются никогда. Если вычисление при компиляции завершилось исключением
+ * ({@link InterpreterException} или исключением обработчика) или результат не {@link Serializable}, узел остается как есть:
+ * узел может находиться в ветке, которая при выполнении не вычисляется (например, операнд ленивого оператора),
+ * а иначе ошибка возникнет при выполнении.
+ * @param <B> the type that returns the condition.
+ */
+final class ConstantFolder<B> {
+
+    private final Interpreter<?, ?, B> interpreter;
+
+    /**
+     * Узлы, свернутые, но еще не присоединенные к родителю.
+     */
+    private final Deque<Node> results = new ArrayDeque<>();
+
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+    ConstantFolder(Interpreter<?, ?, B> interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * Обходит дерево без рекурсии (через стек задач, как {@link org.thedivazo.condlang.interpreter.vm.StackCompiler}),
+     * поэтому глубина дерева ограничена только памятью.
+     */
+    Node fold(Node mainNode) {
+        tasks.push(() -> visit(mainNode));
+        while (!tasks.isEmpty()) {
+            tasks.pop().run();
+        }
+        return results.pop();
+    }
+
+    private void visit(Node node) {
+        if (node instanceof ConditionNode conditionNode) {
+            Object condition = interpreter.getCondition(conditionNode.getNodeName());
+            results.push(Objects.isNull(condition) || !interpreter.isPure(condition) ? node : evaluate(node));
+        }
+        else if (node instanceof MethodOperatorNode methodOperatorNode) {
+            tasks.push(() -> {
+                foldChildren(methodOperatorNode);
+                methodOperatorNode.setContext(results.pop());
+                results.push(methodOperatorNode);
+            });
+            scheduleChildren(methodOperatorNode);
+            tasks.push(() -> visit(methodOperatorNode.getContext()));
+        }
+        else if (node instanceof OperatorNode operatorNode) {
+            tasks.push(() -> results.push(foldOperator(operatorNode, foldChildren(operatorNode))));
+            scheduleChildren(operatorNode);
+        }
+        else results.push(node);
+    }
+
+    /**
+     * Добавляет задачи сворачивания дочерних узлов так, чтобы они выполнились по порядку.
+     */
+    private void scheduleChildren(OperatorNode operatorNode) {
+        List<Node> childrenNodes = operatorNode.getChildrenNodes();
+        for (int i = childrenNodes.size() - 1; i >= 0; i--) {
+            Node childNode = childrenNodes.get(i);
+            tasks.push(() -> visit(childNode));
+        }
+    }
+
+    private Node foldOperator(OperatorNode node, boolean constantChildren) {
+        if (node instanceof UnaryOperatorNode) {
+            Object unaryOperator = interpreter.getUnaryOperator(node.getNodeName());
+            Node child = node.getChildrenNodes().get(0);
+            if (child instanceof UnaryOperatorNode && child.getNodeName().equals(node.getNodeName()) && interpreter.isInvolution(unaryOperator)) {
+                return child.getChildrenNodes().get(0);
+            }
+            return constantChildren && interpreter.isPure(unaryOperator) ? evaluate(node) : node;
+        }
+        return constantChildren && interpreter.isPure(getOperator(node)) ? evaluate(node) : node;
+    }
+
+    /**
+     * Заменяет дочерние узлы свернутыми, которые лежат на вершине стека результатов.
+     * @return Возвращает true, если все дочерние узлы стали константами.
+     */
+    private boolean foldChildren(OperatorNode operatorNode) {
+        List<Node> childrenNodes = operatorNode.getChildrenNodes();
+        Node[] foldedNodes = new Node[childrenNodes.size()];
+        boolean changed = false;
+        boolean constant = true;
+        for (int i = foldedNodes.length - 1; i >= 0; i--) {
+            foldedNodes[i] = results.pop();
+            changed |= foldedNodes[i] != childrenNodes.get(i);
+            constant &= foldedNodes[i] instanceof ConstantNode;
+        }
+        if (changed) operatorNode.setNodes(foldedNodes);
+        return constant;
+    }
+
+    private Object getOperator(Node node) {
+        String sign = node.getNodeName();
+        if (node instanceof TernaryOperatorNode) return firstNonNull(interpreter.getLazyTernaryOperator(sign), interpreter.getTernaryOperator(sign));
+        if (node instanceof BinaryOperatorNode) return firstNonNull(interpreter.getLazyBinaryOperator(sign), interpreter.getBinaryOperator(sign));
+        if (node instanceof FunctionOperatorNode) return interpreter.getFunctionOperator(sign);
+        return null;
+    }
+
+    private static Object firstNonNull(Object first, Object second) {
+        return Objects.isNull(first) ? second : first;
+    }
+
+    private Node evaluate(Node node) {
+        Object value;
+        try {
+            value = interpreter.compileEvaluatorTree(node).evaluate(new EvaluationContext<>());
+        } catch (InterpreterException | RuntimeException e) {
+            return node;
+        }
+        if (!Objects.isNull(value) && !(value instanceof Serializable)) return node;
+        return new ConstantNode((Serializable) value);
+    }
+}
@@ -0,0 +1,240 @@
+package org.thedivazo.condlang.interpreter;
+
+import lombok.Getter;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationListener;
+import org.thedivazo.condlang.parser.AST.MethodOperatorNode;
+import org.thedivazo.condlang.parser.Node;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Профилировщик выполнения ({@link EvaluationListener}). Для каждого узла считает количество выполнений, общее время
+ * (вместе с операндами), собственное время (без операндов) и количество исключений {@link InterpreterException}.
+ * <p>
+ * Статистика собирается в дерево вызовов ({@link ProfileNode}): узел определяется выражением, в котором он выполнялся,
+ * и своей позицией в {@link Node#toString()} этого выражения. Поэтому выполнения одного и того же выражения складываются,
+ * даже если AST дерево каждый раз строится заново (например, из {@link org.thedivazo.condlang.parser.FlatTree}).
+ * <p>
+ * Профилировщик не потокобезопасен: одно выполнение за раз.
+ * @param <B> the type that returns the condition.
+ */
+public final class EvaluationProfiler<B> implements EvaluationListener<B> {
+
+    /**
+     * Статистика узла в дереве вызовов.
+     */
+    public static final class ProfileNode {
+
+        /**
+         * Имя узла ({@link Node#getNodeName()}).
+         */
+        @Getter
+        private final String name;
+
+        /**
+         * Позиция текста узла в {@link Node#toString()} корня.
+         */
+        @Getter
+        private final int position;
+
+        /**
+         * Длина текста узла ({@link Node#toString()}).
+         */
+        @Getter
+        private final int length;
+
+        /**
+         * Дочерние узлы по номерам операндов ({@link Interpreter#operandsOf(Node)}). null, если операнд не выполнялся.
+         */
+        private final ProfileNode[] children;
+
+        @Getter
+        private long count;
+
+        /**
+         * Время выполнения узла вместе с операндами, в наносекундах.
+         */
+        @Getter
+        private long totalTime;
+
+        /**
+         * Время выполнения самого узла без операндов, в наносекундах.
+         */
+        @Getter
+        private long selfTime;
+
+        @Getter
+        private long exceptionCount;
+
+        private ProfileNode(Node node, int position) {
+            this.name = node.getNodeName();
+            this.position = position;
+            this.length = node.toString().length();
+            this.children = new ProfileNode[Interpreter.operandsOf(node).size()];
+        }
+
+        /**
+         * @return Возвращает дочерние узлы, которые выполнялись хотя бы раз, в порядке операндов.
+         */
+        public List<ProfileNode> getChildren() {
+            return Arrays.stream(children).filter(Objects::nonNull).toList();
+        }
+    }
+
+    /**
+     * Узел, который сейчас выполняется.
+     */
+    private static final class ActiveNode {
+
+        private final Node node;
+
+        private final ProfileNode profileNode;
+
+        private final long start;
+
+        private long childrenTime;
+
+        private ActiveNode(Node node, ProfileNode profileNode, long start) {
+            this.node = node;
+            this.profileNode = profileNode;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Корни деревьев вызовов по тексту выражения.
+     */
+    private final Map<String, ProfileNode> roots = new LinkedHashMap<>();
+
+    private final Deque<ActiveNode> activeNodes = new ArrayDeque<>();
+
+    @Override
+    public void enter(Node node) {
+        ActiveNode parent = activeNodes.peek();
+        ProfileNode profileNode;
+        if (Objects.isNull(parent)) profileNode = roots.computeIfAbsent(node.toString(), text -> new ProfileNode(node, 0));
+        else {
+            List<Node> operands = Interpreter.operandsOf(parent.node);
+            int index = 0;
+            while (index < operands.size() && operands.get(index) != node) index++;
+            if (index == operands.size()) throw new IllegalStateException("The node is not an operand of the node being executed: " + node);
+            profileNode = parent.profileNode.children[index];
+            if (Objects.isNull(profileNode)) {
+                profileNode = new ProfileNode(node, parent.profileNode.position + operandOffset(parent.node, index));
+                parent.profileNode.children[index] = profileNode;
+            }
+        }
+        activeNodes.push(new ActiveNode(node, profileNode, System.nanoTime()));
+    }
+
+    @Override
+    public void exit(Node node, B value) {
+        leave();
+    }
+
+    @Override
+    public void exception(Node node, Throwable exception) {
+        ProfileNode profileNode = leave();
+        if (exception instanceof InterpreterException || exception instanceof UncheckedInterpreterException) profileNode.exceptionCount++;
+    }
+
+    private ProfileNode leave() {
+        ActiveNode activeNode = activeNodes.pop();
+        long time = System.nanoTime() - activeNode.start;
+        ProfileNode profileNode = activeNode.profileNode;
+        profileNode.count++;
+        profileNode.totalTime += time;
+        profileNode.selfTime += time - activeNode.childrenTime;
+        ActiveNode parent = activeNodes.peek();
+        if (!Objects.isNull(parent)) parent.childrenTime += time;
+        return profileNode;
+    }
+
+    /**
+     * @return Возвращает смещение текста операнда index в {@link Node#toString()} узла: "name(a,b)" или "name(a,b).context".
+     */
+    private static int operandOffset(Node node, int index) {
+        List<Node> childrenNodes = node.getChildrenNodes();
+        int offset = node.getNodeName().length() + 1;
+        if (node instanceof MethodOperatorNode) {
+            if (index == 0) return offset + childrenNodes.stream().mapToInt(child -> child.toString().length()).sum() + Math.max(childrenNodes.size() - 1, 0) + 2;
+            index--;
+        }
+        for (int i = 0; i < index; i++) {
+            offset += childrenNodes.get(i).toString().length() + 1;
+        }
+        return offset;
+    }
+
+    /**
+     * @param expression текст выражения ({@link Node#toString()} корневого узла)
+     * @return Возвращает корень дерева вызовов выражения или null, если выражение не выполнялось.
+     */
+    public ProfileNode getRoot(String expression) {
+        return roots.get(expression);
+    }
+
+    /**
+     * @return Возвращает тексты выполнявшихся выражений в порядке первого выполнения.
+     */
+    public Set<String> getExpressions() {
+        return Collections.unmodifiableSet(roots.keySet());
+    }
+
+    public void reset() {
+        if (!activeNodes.isEmpty()) throw new IllegalStateException("The expression is being executed");
+        roots.clear();
+    }
+
+    /**
+     * Отчет в виде дерева: для каждого выражения его текст, затем узлы с отступом по вложенности.
+     * Узел подписан позицией и текстом в выражении, например "[4,13) cos(PI/2)".
+     */
+    public String toTreeReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, ProfileNode> root : roots.entrySet()) {
+            report.append(root.getKey()).append('\n');
+            appendTree(report, root.getKey(), root.getValue(), 1);
+        }
+        return report.toString();
+    }
+
+    private static void appendTree(StringBuilder report, String expression, ProfileNode profileNode, int depth) {
+        report.append("  ".repeat(depth))
+                .append(String.format(Locale.ROOT, "[%d,%d) %s calls=%d total=%.3fms self=%.3fms exceptions=%d",
+                        profileNode.position, profileNode.position + profileNode.length,
+                        expression.substring(profileNode.position, profileNode.position + profileNode.length),
+                        profileNode.count, toMillis(profileNode.totalTime), toMillis(profileNode.selfTime), profileNode.exceptionCount))
+                .append('\n');
+        for (ProfileNode child : profileNode.getChildren()) {
+            appendTree(report, expression, child, depth + 1);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Отчет в формате "collapsed stacks" (flamegraph.pl, speedscope): одна строка на узел с собственным временем в наносекундах.
+     * Кадр стека - это имя узла и его позиция в выражении, например "cos@4", первый кадр - текст выражения.
+     */
+    public String toFlameGraph() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, ProfileNode> root : roots.entrySet()) {
+            appendStacks(report, root.getKey().replace(';', ','), root.getValue());
+        }
+        return report.toString();
+    }
+
+    private static void appendStacks(StringBuilder report, String stack, ProfileNode profileNode) {
+        String frame = stack + ';' + profileNode.name.replace(';', ',') + '@' + profileNode.position;
+        if (profileNode.selfTime > 0) report.append(frame).append(' ').append(profileNode.selfTime).append('\n');
+        for (ProfileNode child : profileNode.getChildren()) {
+            appendStacks(report, frame, child);
+        }
+    }
+}
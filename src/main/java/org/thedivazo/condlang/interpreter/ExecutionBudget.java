@@ -0,0 +1,118 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.exception.BudgetExceededException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationListener;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+import java.time.Duration;
+
+/**
+ * Бюджет выполнения ({@link EvaluationListener}): максимальное количество выполненных узлов, срок по {@link System#nanoTime()} или и то, и другое.
+ * Бюджет проверяется перед выполнением каждого узла, при превышении выбрасывается {@link BudgetExceededException}.
+ * Время внутри одного узла (например, долгого условия) не прерывается, проверка будет перед следующим узлом.
+ * <p>
+ * Бюджет передается через {@link org.thedivazo.condlang.interpreter.evaluator.EvaluationContext} и проверяется исполняемым деревом,
+ * скомпилированным с проверками ({@link Interpreter#compileBudgeted(Node)}) тем же способом исполнения, что и обычное.
+ * Обычное исполняемое дерево проверок не содержит, поэтому выполнение без бюджета ничего на них не тратит.
+ * <p>
+ * Шаги накапливаются: один бюджет можно разделить на несколько выполнений подряд. Бюджет не потокобезопасен.
+ * @param <B> the type that returns the condition.
+ */
+public final class ExecutionBudget<B> implements EvaluationListener<B> {
+
+    private final long maxSteps;
+
+    private final boolean hasDeadline;
+
+    private final long deadline;
+
+    private final long startTime;
+
+    private long steps;
+
+    private ExecutionBudget(long maxSteps, boolean hasDeadline, long deadline) {
+        if (maxSteps < 0) throw new IllegalArgumentException("The number of steps cannot be negative");
+        this.maxSteps = maxSteps;
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * @param maxSteps максимальное количество узлов, которые можно выполнить
+     */
+    public static <B> ExecutionBudget<B> ofSteps(long maxSteps) {
+        return new ExecutionBudget<>(maxSteps, false, 0);
+    }
+
+    /**
+     * @param deadline срок в единицах {@link System#nanoTime()}
+     */
+    public static <B> ExecutionBudget<B> ofDeadline(long deadline) {
+        return new ExecutionBudget<>(Long.MAX_VALUE, true, deadline);
+    }
+
+    /**
+     * @param timeout время выполнения, отсчитывается от создания бюджета
+     */
+    public static <B> ExecutionBudget<B> ofTimeout(Duration timeout) {
+        return ofDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static <B> ExecutionBudget<B> of(long maxSteps, long deadline) {
+        return new ExecutionBudget<>(maxSteps, true, deadline);
+    }
+
+    @Override
+    public void enter(Node node) throws InterpreterException {
+        step(node);
+    }
+
+    /**
+     * Учитывает начало выполнения узла node.
+     * @throws BudgetExceededException если шаги закончились или прошел срок
+     */
+    public void step(Node node) throws BudgetExceededException {
+        if (exhausted()) throw exceeded(node.getNodeName());
+        steps++;
+    }
+
+    /**
+     * Аналогичен {@link ExecutionBudget#step(Node)} для узла плоского дерева.
+     */
+    public void step(FlatTree tree, int node) throws BudgetExceededException {
+        if (exhausted()) throw exceeded(tree.getKind(node) == FlatTree.CONSTANT ? String.valueOf(tree.getConstant(node)) : tree.getName(node));
+        steps++;
+    }
+
+    private boolean exhausted() {
+        // Сравнение через разность, так как значения nanoTime могут переполняться.
+        return steps == maxSteps || hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @param node имя узла. Текст всего поддерева не строится: у глубоких выражений он рекурсивный и очень длинный.
+     */
+    private BudgetExceededException exceeded(String node) {
+        boolean deadlineExceeded = steps != maxSteps;
+        String reason = deadlineExceeded ? "Execution deadline exceeded" : String.format("Execution step limit (%d) exceeded", maxSteps);
+        return new BudgetExceededException(String.format("%s after %d steps at %s", reason, steps, node),
+                steps, System.nanoTime() - startTime, node, deadlineExceeded);
+    }
+
+    /**
+     * @return Возвращает количество узлов, выполнение которых было начато с этим бюджетом.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Возвращает количество оставшихся шагов. У бюджета только по времени шаги не ограничены (Long.MAX_VALUE).
+     */
+    public long getRemainingSteps() {
+        return maxSteps - steps;
+    }
+}
@@ -0,0 +1,85 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.interpreter.bytecode.BytecodeCompiler;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.interpreter.evaluator.FlatTreeEvaluator;
+import org.thedivazo.condlang.interpreter.vm.StackCompiler;
+import org.thedivazo.condlang.interpreter.vm.StackProgram;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+/**
+ * Способ, которым {@link Interpreter} превращает AST дерево в исполняемое дерево.
+ */
+public enum ExecutionStrategy {
+    /**
+     * Дерево объектов {@link Evaluator} с заранее найденными обработчиками.
+     */
+    EVALUATOR_TREE {
+        @Override
+        public <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node) {
+            return interpreter.compileEvaluatorTree(node);
+        }
+
+        @Override
+        public <B> Evaluator<B> compileBudgeted(Interpreter<?, ?, B> interpreter, Node node) {
+            return interpreter.compileBudgetedTree(node, SlotLayout.of(node));
+        }
+    },
+    /**
+     * Отдельный скрытый JVM класс на каждое выражение ({@link BytecodeCompiler}).
+     * Подходит для часто выполняемых выражений: компиляция дороже, зато JIT может встроить обработчики по всему выражению.
+     */
+    BYTECODE {
+        @Override
+        public <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node) {
+            return BytecodeCompiler.compile(interpreter, node);
+        }
+
+        @Override
+        public <B> Evaluator<B> compileBudgeted(Interpreter<?, ?, B> interpreter, Node node) {
+            return BytecodeCompiler.compile(interpreter, node, true);
+        }
+    },
+    /**
+     * AST дерево в плоских массивах ({@link FlatTree}) и один {@link FlatTreeEvaluator} на все выражение.
+     * {@link org.thedivazo.condlang.ParserExpression#compile(String)} при этом хранит выражения в плоском виде,
+     * что уменьшает расход памяти на большие наборы правил.
+     */
+    FLAT_TREE {
+        @Override
+        public <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node) {
+            FlatTree flatTree = FlatTree.of(node);
+            return interpreter.compileFlatTree(flatTree, SlotLayout.of(flatTree));
+        }
+
+        @Override
+        public <B> Evaluator<B> compileBudgeted(Interpreter<?, ?, B> interpreter, Node node) {
+            FlatTree flatTree = FlatTree.of(node);
+            return interpreter.compileFlatTree(flatTree, SlotLayout.of(flatTree), true);
+        }
+    },
+    /**
+     * Линейная последовательность инструкций, которая выполняется в цикле над стеком операндов ({@link StackProgram}).
+     * Не использует рекурсию Java при выполнении, поэтому подходит для выражений с очень глубокой вложенностью.
+     */
+    STACK_MACHINE {
+        @Override
+        public <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node) {
+            return StackCompiler.compile(interpreter, node);
+        }
+
+        @Override
+        public <B> Evaluator<B> compileBudgeted(Interpreter<?, ?, B> interpreter, Node node) {
+            return StackCompiler.compile(interpreter, node, SlotLayout.of(node), true);
+        }
+    };
+
+    public abstract <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node);
+
+    /**
+     * Аналогичен {@link ExecutionStrategy#compile(Interpreter, Node)}, но исполняемое дерево учитывает каждый узел
+     * в бюджете контекста ({@link Interpreter#compileBudgeted(Node)}).
+     */
+    public abstract <B> Evaluator<B> compileBudgeted(Interpreter<?, ?, B> interpreter, Node node);
+}
@@ -0,0 +1,64 @@
+package org.thedivazo.condlang.interpreter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Переиспользуемый набор локальных аргументов для одного выражения, хранящийся в массиве по слотам ({@link SlotLayout}).
+ * Значение null означает, что локального аргумента нет и будет вызван обработчик условия.
+ * Не потокобезопасен: для каждого потока нужен свой {@link Frame}.
+ */
+public final class Frame {
+
+    private final SlotLayout slotLayout;
+
+    private final Object[] values;
+
+    public Frame(SlotLayout slotLayout) {
+        this.slotLayout = slotLayout;
+        this.values = new Object[slotLayout.size()];
+    }
+
+    /**
+     * Устанавливает локальный аргумент. Аргументы, которых нет в выражении, игнорируются.
+     * @param name имя условия (переменной)
+     * @param value значение или null, чтобы убрать аргумент
+     */
+    public Frame set(String name, Object value) {
+        int slot = slotLayout.getSlot(name);
+        if (slot >= 0) values[slot] = value;
+        return this;
+    }
+
+    /**
+     * @param slot номер слота ({@link SlotLayout#getSlot(String)})
+     * @param value значение или null, чтобы убрать аргумент
+     */
+    public Frame set(int slot, Object value) {
+        values[slot] = value;
+        return this;
+    }
+
+    public Frame setAll(Map<String, ?> localArguments) {
+        if (Objects.isNull(localArguments)) return this;
+        localArguments.forEach(this::set);
+        return this;
+    }
+
+    public Frame clear() {
+        Arrays.fill(values, null);
+        return this;
+    }
+
+    public SlotLayout getSlotLayout() {
+        return slotLayout;
+    }
+
+    /**
+     * @return Возвращает массив значений по слотам (без копирования).
+     */
+    public Object[] getValues() {
+        return values;
+    }
+}
@@ -1,19 +1,36 @@
 package org.thedivazo.condlang.interpreter;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import org.intellij.lang.annotations.RegExp;
 import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.*;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
 import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
 import org.thedivazo.condlang.parser.AST.*;
+import org.thedivazo.condlang.parser.FlatTree;
 import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+import org.thedivazo.condlang.utils.LazyTernFunction;
 import org.thedivazo.condlang.utils.TernFunction;
-import org.thedivazo.condlang.parser.AST.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
 
 
 /**
@@ -30,51 +47,744 @@ public class Interpreter<T, R extends B, B> {
     class ConditionName {
 
         @Getter
-        private final @RegExp String regEx;
+        private final Pattern pattern;
 
         @Getter
         private final Function<String,B> condition;
 
+        /**
+         * Асинхронный обработчик ({@link Interpreter#addAsyncCondition(String, Function)}) или null.
+         * Если он есть, condition ждет его результат.
+         */
+        @Getter
+        private final Function<String, CompletionStage<B>> asyncCondition;
+
+        public @RegExp String getRegEx() {
+            return pattern.pattern();
+        }
+
+        public boolean matches(String conditionName) {
+            return pattern.matcher(conditionName).matches();
+        }
     }
 
     protected List<ConditionName> listConditionNames = new ArrayList<>();
 
+    /**
+     * Максимальное количество имен условий в {@link Interpreter#resolvedConditionNames}.
+     */
+    public static final int RESOLVED_CONDITION_NAMES_SIZE = 10_000;
+
+    /**
+     * Кэш сопоставления имени условия с его обработчиком. Заполняется при первом выполнении условия
+     * и сбрасывается при добавлении новых обработчиков. Размер ограничен, так как имена условий (например, числа)
+     * приходят из кода выражений и их может быть сколько угодно.
+     */
+    protected final Cache<String, Optional<ConditionName>> resolvedConditionNames = CacheBuilder.newBuilder().maximumSize(RESOLVED_CONDITION_NAMES_SIZE).build();
+
     @Getter
-    @Setter
     protected Function<String, R> alternativeConditionParser;
 
+    /**
+     * Счетчик изменений обработчиков. Позволяет определить, что исполняемое дерево ({@link Evaluator}) устарело.
+     */
+    @Getter
+    protected int modificationCount = 0;
+
+    /**
+     * Способ, которым {@link Interpreter#compile(Node)} строит исполняемое дерево.
+     */
+    @Getter
+    protected ExecutionStrategy executionStrategy = ExecutionStrategy.EVALUATOR_TREE;
+
+    /**
+     * Неизменяемый интерпретатор нельзя изменить, зато можно безопасно использовать из нескольких потоков.
+     */
+    @Getter
+    protected boolean immutable = false;
+
+    /**
+     * Обработчики (операторы, функции, условия), результат которых зависит только от аргументов.
+     * Их вызовы над константами сворачиваются при компиляции ({@link Interpreter#optimize(Node)}).
+     */
+    protected Set<Object> pureHandlers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Унарные операторы, двойное применение которых ничего не меняет (например, "!" и "-" для чисел).
+     */
+    protected Set<Object> involutionHandlers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Обработчики над double и boolean по обычным обработчикам, построенным поверх них ({@link PrimitiveHandlers}).
+     * Обычный обработчик хранится в списках как любой другой, поэтому замена оператора или условия отменяет и его примитивную версию.
+     */
+    protected Map<Object, Object> primitiveHandlers = new IdentityHashMap<>();
+
+    /**
+     * Включает оптимизацию AST дерева ({@link Interpreter#optimize(Node)}).
+     */
+    @Getter
+    protected boolean constantFolding = true;
+
+    /**
+     * Включает запоминание значений условий и чистых методов на время одного выполнения ({@link Interpreter#getMemoSlot(Node, SlotLayout)}).
+     */
+    @Getter
+    protected boolean memoization = true;
+
+    /**
+     * Имена методов, результат которых зависит только от объекта и аргументов ({@link Interpreter#markPureMethod(String)}).
+     */
+    protected Set<String> pureMethods = new HashSet<>();
+
     protected Map<String, TernFunction<Boolean,B,B,B>> listTernaryOperators = new HashMap<>();
 
     protected Map<String, BiFunction<B, B, R>> listBinaryOperators = new HashMap<>();
 
+    /**
+     * Ленивые операторы получают операнды через {@link Supplier} и могут не вычислять их вовсе.
+     * Знак оператора хранится либо в обычных, либо в ленивых операторах, но не в обоих сразу.
+     */
+    protected Map<String, LazyTernFunction<Boolean,B,B,B>> listLazyTernaryOperators = new HashMap<>();
+
+    protected Map<String, LazyBiFunction<B, B, R>> listLazyBinaryOperators = new HashMap<>();
+
     protected Map<String, Function<B, R>> listUnaryOperators = new HashMap<>();
 
     protected Map<String, Function<List<B>,R>> listFunctionOperators = new HashMap<>();
 
     public void addTernaryOperator(String sign1, String sign2, TernFunction<Boolean, B,B,B> ternaryOperator) {
+        checkMutable();
         listTernaryOperators.put(sign1+sign2, ternaryOperator);
+        listLazyTernaryOperators.remove(sign1+sign2);
+        modificationCount++;
+    }
+
+    public void addLazyTernaryOperator(String sign1, String sign2, LazyTernFunction<Boolean, B,B,B> ternaryOperator) {
+        checkMutable();
+        listLazyTernaryOperators.put(sign1+sign2, ternaryOperator);
+        listTernaryOperators.remove(sign1+sign2);
+        modificationCount++;
     }
 
     public void addUnaryOperator(String sign, Function<B, R> unaryOperator) {
+        checkMutable();
         listUnaryOperators.put(sign, unaryOperator);
+        modificationCount++;
     }
 
     public void addBinaryOperator(String sign, BiFunction<B,B,R> binaryOperator) {
+        checkMutable();
         listBinaryOperators.put(sign, binaryOperator);
+        listLazyBinaryOperators.remove(sign);
+        modificationCount++;
+    }
+
+    public void addLazyBinaryOperator(String sign, LazyBiFunction<B,B,R> binaryOperator) {
+        checkMutable();
+        listLazyBinaryOperators.put(sign, binaryOperator);
+        listBinaryOperators.remove(sign);
+        modificationCount++;
+    }
+
+    /**
+     * Добавляет бинарный оператор над double. В {@link ExecutionStrategy#EVALUATOR_TREE} операнды и результат
+     * между такими узлами не упаковываются, остальные способы исполнения используют {@link PrimitiveHandlers#boxedDouble(DoubleBinaryOperator)}.
+     * @return Возвращает обычный оператор, построенный поверх binaryOperator (например, для {@link Interpreter#markPure(Object)}).
+     */
+    public BiFunction<B, B, R> addDoubleBinaryOperator(String sign, DoubleBinaryOperator binaryOperator) {
+        BiFunction<B, B, R> boxedOperator = PrimitiveHandlers.boxedDouble(binaryOperator);
+        addBinaryOperator(sign, boxedOperator);
+        primitiveHandlers.put(boxedOperator, binaryOperator);
+        return boxedOperator;
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#addDoubleBinaryOperator(String, DoubleBinaryOperator)} для сравнения чисел.
+     */
+    public BiFunction<B, B, R> addDoublePredicate(String sign, DoubleBiPredicate predicate) {
+        BiFunction<B, B, R> boxedOperator = PrimitiveHandlers.boxedPredicate(predicate);
+        addBinaryOperator(sign, boxedOperator);
+        primitiveHandlers.put(boxedOperator, predicate);
+        return boxedOperator;
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#addDoubleBinaryOperator(String, DoubleBinaryOperator)} для логических операторов.
+     * Оператор с {@link BooleanBinaryOperator#getShortCircuitValue()} добавляется как ленивый.
+     * @return Возвращает обычный ({@link BiFunction}) или ленивый ({@link LazyBiFunction}) оператор, построенный поверх binaryOperator.
+     */
+    public Object addBooleanBinaryOperator(String sign, BooleanBinaryOperator binaryOperator) {
+        Object boxedOperator;
+        if (Objects.isNull(binaryOperator.getShortCircuitValue())) {
+            BiFunction<B, B, R> eagerOperator = PrimitiveHandlers.boxedBoolean(binaryOperator);
+            addBinaryOperator(sign, eagerOperator);
+            boxedOperator = eagerOperator;
+        }
+        else {
+            LazyBiFunction<B, B, R> lazyOperator = PrimitiveHandlers.lazyBoxedBoolean(binaryOperator);
+            addLazyBinaryOperator(sign, lazyOperator);
+            boxedOperator = lazyOperator;
+        }
+        primitiveHandlers.put(boxedOperator, binaryOperator);
+        return boxedOperator;
+    }
+
+    public Function<B, R> addDoubleUnaryOperator(String sign, DoubleUnaryOperator unaryOperator) {
+        Function<B, R> boxedOperator = PrimitiveHandlers.boxedUnary(unaryOperator);
+        addUnaryOperator(sign, boxedOperator);
+        primitiveHandlers.put(boxedOperator, unaryOperator);
+        return boxedOperator;
     }
 
     public void addFunctionOperator(String sign, Function<List<B>,R> functionOperator) {
+        checkMutable();
         listFunctionOperators.put(sign, functionOperator);
+        modificationCount++;
+    }
+
+    public void setAlternativeConditionParser(Function<String, R> alternativeConditionParser) {
+        checkMutable();
+        this.alternativeConditionParser = alternativeConditionParser;
+        modificationCount++;
+    }
+
+    public void setExecutionStrategy(ExecutionStrategy executionStrategy) {
+        checkMutable();
+        this.executionStrategy = Objects.requireNonNull(executionStrategy);
+        modificationCount++;
+    }
+
+    /**
+     * Помечает обработчик как чистый: его результат зависит только от аргументов, а вызов не имеет побочных эффектов.
+     * Для условий это означает, что значение не зависит ни от чего, кроме имени условия.
+     * @param handler оператор, функция или обработчик условия в том виде, в котором он был добавлен
+     */
+    public void markPure(Object handler) {
+        checkMutable();
+        pureHandlers.add(Objects.requireNonNull(handler));
+        modificationCount++;
+    }
+
+    public boolean isPure(Object handler) {
+        return !Objects.isNull(handler) && pureHandlers.contains(handler);
+    }
+
+    /**
+     * Помечает унарный оператор как инволюцию: двойное применение оператора к значению возвращает это же значение.
+     * @param unaryOperator унарный оператор в том виде, в котором он был добавлен
+     */
+    public void markInvolution(Function<B, R> unaryOperator) {
+        checkMutable();
+        involutionHandlers.add(Objects.requireNonNull(unaryOperator));
+        modificationCount++;
+    }
+
+    public boolean isInvolution(Object unaryOperator) {
+        return !Objects.isNull(unaryOperator) && involutionHandlers.contains(unaryOperator);
+    }
+
+    public void setConstantFolding(boolean constantFolding) {
+        checkMutable();
+        this.constantFolding = constantFolding;
+        modificationCount++;
+    }
+
+    public void setMemoization(boolean memoization) {
+        checkMutable();
+        this.memoization = memoization;
+        modificationCount++;
+    }
+
+    /**
+     * Помечает метод как чистый: в течение одного выполнения он возвращает одно и то же для одного и того же объекта и аргументов.
+     * Одинаковые вызовы такого метода выполняются один раз за выполнение.
+     * @param methodName название метода
+     */
+    public void markPureMethod(String methodName) {
+        checkMutable();
+        pureMethods.add(Objects.requireNonNull(methodName));
+        modificationCount++;
+    }
+
+    public boolean isPureMethod(String methodName) {
+        return pureMethods.contains(methodName);
+    }
+
+    /**
+     * Условие вычисляется обработчиком не больше одного раза за выполнение, как и вызов чистого метода,
+     * в цепочке которого все методы чистые (например, $player#getWorld()#getName()).
+     * Локальные аргументы не запоминаются: они и так не вызывают обработчиков.
+     * @param node узел AST дерева
+     * @param slotLayout раскладка слотов всего выражения
+     * @return Возвращает ячейку контекста, в которой запоминается значение узла, или -1, если узел выполняется каждый раз.
+     */
+    public int getMemoSlot(Node node, SlotLayout slotLayout) {
+        if (!memoization) return -1;
+        if (node instanceof ConditionNode) return slotLayout.getSlot(node.getNodeName());
+        if (node instanceof MethodOperatorNode && isPureMethodCall(node)) return slotLayout.getMemoSlot(node);
+        return -1;
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#getMemoSlot(Node, SlotLayout)} для всех узлов плоского дерева сразу, без построения дерева {@link Node}.
+     * @return Возвращает ячейки по номерам узлов.
+     */
+    protected int[] getMemoSlots(FlatTree flatTree, SlotLayout slotLayout) {
+        int[] memoSlots = new int[flatTree.size()];
+        Arrays.fill(memoSlots, -1);
+        if (!memoization) return memoSlots;
+        int[] methodMemoSlots = slotLayout.getMemoSlots(flatTree);
+        boolean[] pureCalls = new boolean[flatTree.size()];
+        // Дочерние узлы имеют большие номера, поэтому при обходе с конца чистота операндов уже известна.
+        for (int node = flatTree.size() - 1; node >= 0; node--) {
+            byte kind = flatTree.getKind(node);
+            if (kind == FlatTree.CONDITION) memoSlots[node] = slotLayout.getSlot(flatTree.getName(node));
+            if (kind != FlatTree.METHOD) {
+                pureCalls[node] = true;
+                continue;
+            }
+            boolean pureCall = isPureMethod(flatTree.getName(node));
+            for (int i = 0; pureCall && i < flatTree.getChildCount(node); i++) {
+                int child = flatTree.getChild(node, i);
+                pureCall = child > node && pureCalls[child];
+            }
+            pureCalls[node] = pureCall;
+            if (pureCall) memoSlots[node] = methodMemoSlots[node];
+        }
+        return memoSlots;
+    }
+
+    private boolean isPureMethodCall(Node node) {
+        if (!(node instanceof MethodOperatorNode)) return true;
+        if (!isPureMethod(node.getNodeName())) return false;
+        for (Node operand : operandsOf(node)) {
+            if (!isPureMethodCall(operand)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Сворачивает константы и упрощает AST дерево ({@link ConstantFolder}). Переданное дерево может быть изменено.
+     * Значения чистых условий подставляются в дерево, поэтому локальные аргументы с тем же именем их больше не заменяют.
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает корневой узел оптимизированного дерева.
+     */
+    public Node optimize(Node mainNode) {
+        if (!constantFolding) return mainNode;
+        return new ConstantFolder<>(this).fold(mainNode);
+    }
+
+    /**
+     * Создает неизменяемую копию интерпретатора со всеми обработчиками.
+     * Копию можно использовать из нескольких потоков без синхронизации.
+     * @return Возвращает неизменяемую копию интерпретатора.
+     */
+    public Interpreter<T, R, B> snapshot() {
+        Interpreter<T, R, B> interpreter = new Interpreter<>();
+        interpreter.listConditionNames = List.copyOf(listConditionNames);
+        interpreter.listTernaryOperators = Map.copyOf(listTernaryOperators);
+        interpreter.listBinaryOperators = Map.copyOf(listBinaryOperators);
+        interpreter.listLazyTernaryOperators = Map.copyOf(listLazyTernaryOperators);
+        interpreter.listLazyBinaryOperators = Map.copyOf(listLazyBinaryOperators);
+        interpreter.listUnaryOperators = Map.copyOf(listUnaryOperators);
+        interpreter.listFunctionOperators = Map.copyOf(listFunctionOperators);
+        interpreter.pureHandlers = identityCopyOf(pureHandlers);
+        interpreter.involutionHandlers = identityCopyOf(involutionHandlers);
+        interpreter.primitiveHandlers = Collections.unmodifiableMap(new IdentityHashMap<>(primitiveHandlers));
+        interpreter.constantFolding = constantFolding;
+        interpreter.memoization = memoization;
+        interpreter.pureMethods = Set.copyOf(pureMethods);
+        interpreter.alternativeConditionParser = alternativeConditionParser;
+        interpreter.executionStrategy = executionStrategy;
+        interpreter.modificationCount = modificationCount;
+        interpreter.immutable = true;
+        return interpreter;
+    }
+
+    private static Set<Object> identityCopyOf(Set<Object> set) {
+        Set<Object> copy = Collections.newSetFromMap(new IdentityHashMap<>(set.size()));
+        copy.addAll(set);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    protected void checkMutable() {
+        if (immutable) throw new UnsupportedOperationException("The interpreter is immutable");
+    }
+
+    public TernFunction<Boolean, B, B, B> getTernaryOperator(String sign) {
+        return listTernaryOperators.get(sign);
+    }
+
+    public BiFunction<B, B, R> getBinaryOperator(String sign) {
+        return listBinaryOperators.get(sign);
+    }
+
+    public LazyTernFunction<Boolean, B, B, B> getLazyTernaryOperator(String sign) {
+        return listLazyTernaryOperators.get(sign);
+    }
+
+    public LazyBiFunction<B, B, R> getLazyBinaryOperator(String sign) {
+        return listLazyBinaryOperators.get(sign);
+    }
+
+    public Function<B, R> getUnaryOperator(String sign) {
+        return listUnaryOperators.get(sign);
+    }
+
+    public Function<List<B>, R> getFunctionOperator(String sign) {
+        return listFunctionOperators.get(sign);
+    }
+
+    /**
+     * @param conditionName имя условия
+     * @return Возвращает обработчик условия или альтернативный обработчик, если подходящего нет. Может вернуть null.
+     */
+    public Function<String, ? extends B> getCondition(String conditionName) {
+        return resolveCondition(conditionName)
+                .<Function<String, ? extends B>>map(ConditionName::getCondition)
+                .orElse(alternativeConditionParser);
     }
 
     public void addCondition(@RegExp String regEx, Function<String,B> condition) {
-        listConditionNames.add(new ConditionName(regEx, condition));
+        checkMutable();
+        listConditionNames.add(new ConditionName(Pattern.compile(regEx), condition, null));
+        resolvedConditionNames.invalidateAll();
+        modificationCount++;
+    }
+
+    /**
+     * Добавляет обработчик условия, возвращающий double. Значение не упаковывается, если его получает узел над double
+     * ({@link Interpreter#addDoubleBinaryOperator(String, DoubleBinaryOperator)}).
+     */
+    public Function<String, B> addDoubleCondition(@RegExp String regEx, ToDoubleFunction<String> condition) {
+        Function<String, B> boxedCondition = PrimitiveHandlers.boxedCondition(condition);
+        addCondition(regEx, boxedCondition);
+        primitiveHandlers.put(boxedCondition, condition);
+        return boxedCondition;
+    }
+
+    /**
+     * @param handler обработчик в том виде, в котором он хранится в интерпретаторе
+     * @return Возвращает обработчик над double или boolean, поверх которого построен handler, или null.
+     */
+    public Object getPrimitiveHandler(Object handler) {
+        return Objects.isNull(handler) ? null : primitiveHandlers.get(handler);
+    }
+
+    /**
+     * Добавляет обработчик условия, который не блокирует поток, а возвращает {@link CompletionStage}.
+     * {@link Interpreter#executeAsync(Evaluator, SlotLayout, Map, Executor)} запрашивает такие условия одновременно.
+     * При обычном выполнении поток ждет результат обработчика.
+     */
+    public void addAsyncCondition(@RegExp String regEx, Function<String, CompletionStage<B>> asyncCondition) {
+        checkMutable();
+        Objects.requireNonNull(asyncCondition);
+        listConditionNames.add(new ConditionName(Pattern.compile(regEx), conditionName -> await(asyncCondition.apply(conditionName)), asyncCondition));
+        resolvedConditionNames.invalidateAll();
+        modificationCount++;
+    }
+
+    private static <B> B await(CompletionStage<B> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw e;
+        }
+    }
+
+    /**
+     * @param conditionName имя условия
+     * @return Возвращает асинхронный обработчик условия или null, если обработчик условия обычный.
+     */
+    public Function<String, CompletionStage<B>> getAsyncCondition(String conditionName) {
+        return resolveCondition(conditionName).map(ConditionName::getAsyncCondition).orElse(null);
+    }
+
+    /**
+     * @param conditionName имя условия
+     * @return Возвращает первый обработчик, regEx которого совпадает с именем условия. Результат кэшируется.
+     */
+    protected Optional<ConditionName> resolveCondition(String conditionName) {
+        Optional<ConditionName> resolvedCondition = resolvedConditionNames.getIfPresent(conditionName);
+        if (Objects.isNull(resolvedCondition)) {
+            resolvedCondition = listConditionNames.stream().filter(cn -> cn.matches(conditionName)).findFirst();
+            resolvedConditionNames.put(conditionName, resolvedCondition);
+        }
+        return resolvedCondition;
+    }
+
+    /**
+     * Компилирует AST дерево способом {@link Interpreter#getExecutionStrategy()}.
+     * Исполняемое дерево привязано к обработчикам, которые были добавлены на момент компиляции ({@link Interpreter#getModificationCount()}).
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает исполняемое дерево.
+     */
+    public Evaluator<B> compile(Node mainNode) {
+        return executionStrategy.compile(this, mainNode);
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compile(Node)}. Для {@link ExecutionStrategy#FLAT_TREE} плоское дерево исполняется
+     * без построения дерева {@link Node}, для остальных способов оно сначала превращается в дерево {@link Node}.
+     * @param flatTree AST дерево в плоском виде
+     * @return Возвращает исполняемое дерево.
+     */
+    public Evaluator<B> compile(FlatTree flatTree) {
+        if (executionStrategy == ExecutionStrategy.FLAT_TREE) return compileFlatTree(flatTree, SlotLayout.of(flatTree));
+        return compile(flatTree.toNode());
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compile(Node)}, но перед выполнением каждого узла исполняемое дерево учитывает его
+     * в бюджете контекста ({@link EvaluationContext#getBudget()}, {@link ExecutionBudget}). Способ исполнения тот же.
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает исполняемое дерево с проверками бюджета.
+     */
+    public Evaluator<B> compileBudgeted(Node mainNode) {
+        return executionStrategy.compileBudgeted(this, mainNode);
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compileBudgeted(Node)} для плоского дерева ({@link Interpreter#compile(FlatTree)}).
+     */
+    public Evaluator<B> compileBudgeted(FlatTree flatTree) {
+        if (executionStrategy == ExecutionStrategy.FLAT_TREE) return compileFlatTree(flatTree, SlotLayout.of(flatTree), true);
+        return compileBudgeted(flatTree.toNode());
+    }
+
+    /**
+     * Компилирует плоское AST дерево в {@link FlatTreeEvaluator}: для каждого узла один раз ищется обработчик.
+     * @param flatTree AST дерево в плоском виде
+     * @param slotLayout раскладка слотов выражения
+     * @return Возвращает исполняемое дерево.
+     */
+    public Evaluator<B> compileFlatTree(FlatTree flatTree, SlotLayout slotLayout) {
+        return compileFlatTree(flatTree, slotLayout, false);
+    }
+
+    /**
+     * @param budgeted учитывать ли выполнение узлов в бюджете контекста ({@link Interpreter#compileBudgeted(Node)})
+     */
+    public Evaluator<B> compileFlatTree(FlatTree flatTree, SlotLayout slotLayout, boolean budgeted) {
+        byte[] opcodes = new byte[flatTree.size()];
+        Object[] handlers = new Object[flatTree.size()];
+        int[] slots = new int[flatTree.size()];
+        int[] memoSlots = getMemoSlots(flatTree, slotLayout);
+        for (int node = 0; node < flatTree.size(); node++) {
+            byte kind = flatTree.getKind(node);
+            if (kind == FlatTree.CONSTANT) {
+                opcodes[node] = FlatTreeEvaluator.CONSTANT;
+                handlers[node] = flatTree.getConstant(node);
+                continue;
+            }
+            String name = flatTree.getName(node);
+            Object handler = switch (kind) {
+                case FlatTree.TERNARY -> listLazyTernaryOperators.containsKey(name) ? listLazyTernaryOperators.get(name) : listTernaryOperators.get(name);
+                case FlatTree.BINARY -> listLazyBinaryOperators.containsKey(name) ? listLazyBinaryOperators.get(name) : listBinaryOperators.get(name);
+                case FlatTree.UNARY -> listUnaryOperators.get(name);
+                case FlatTree.FUNCTION -> listFunctionOperators.get(name);
+                case FlatTree.METHOD -> new MethodCallSite(name);
+                case FlatTree.CONDITION -> getCondition(name);
+                default -> null;
+            };
+            handlers[node] = handler;
+            if (kind == FlatTree.CONDITION) slots[node] = slotLayout.getSlot(name);
+            if (kind != FlatTree.CONDITION && Objects.isNull(handler)) opcodes[node] = FlatTreeEvaluator.UNKNOWN;
+            else if (kind == FlatTree.TERNARY && listLazyTernaryOperators.containsKey(name)) opcodes[node] = FlatTreeEvaluator.LAZY_TERNARY;
+            else if (kind == FlatTree.BINARY && listLazyBinaryOperators.containsKey(name)) opcodes[node] = FlatTreeEvaluator.LAZY_BINARY;
+            else opcodes[node] = kind;
+        }
+        return new FlatTreeEvaluator<>(flatTree, opcodes, handlers, slots, memoSlots, budgeted);
+    }
+
+    /**
+     * Компилирует AST дерево в дерево объектов {@link Evaluator}. Операторы, функции и обработчики условий ищутся один раз,
+     * поэтому при выполнении нет поиска по {@link Map}, копирования списков и проверок типов узлов.
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает корневой узел исполняемого дерева.
+     */
+    public Evaluator<B> compileEvaluatorTree(Node mainNode) {
+        return compileEvaluatorTree(mainNode, SlotLayout.of(mainNode));
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compileEvaluatorTree(Node)}, но слоты локальных аргументов берутся из slotLayout.
+     * Используется, чтобы скомпилировать часть дерева с той же раскладкой слотов, что и все выражение.
+     * @param mainNode узел AST дерева
+     * @param slotLayout раскладка слотов всего выражения
+     * @return Возвращает корневой узел исполняемого дерева.
+     */
+    public Evaluator<B> compileEvaluatorTree(Node mainNode, SlotLayout slotLayout) {
+        return compileNode(mainNode, compileList(operandsOf(mainNode), slotLayout), slotLayout);
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compileEvaluatorTree(Node, SlotLayout)}, но каждый узел учитывается в бюджете контекста
+     * ({@link Interpreter#compileBudgeted(Node)}).
+     * @param mainNode узел AST дерева
+     * @param slotLayout раскладка слотов всего выражения
+     * @return Возвращает корневой узел исполняемого дерева.
+     */
+    public Evaluator<B> compileBudgetedTree(Node mainNode, SlotLayout slotLayout) {
+        List<Node> operandNodes = operandsOf(mainNode);
+        Evaluator<B>[] operands = Evaluator.newArray(operandNodes.size());
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = compileBudgetedTree(operandNodes.get(i), slotLayout);
+        }
+        return new BudgetedEvaluator<>(mainNode, compileNode(mainNode, operands, slotLayout));
+    }
+
+    /**
+     * Аналогичен {@link Interpreter#compileEvaluatorTree(Node)}, но каждый узел сообщает о своем выполнении слушателю
+     * ({@link EvaluationListener}), например {@link EvaluationProfiler}. Это отдельное исполняемое дерево,
+     * поэтому обычное выполнение не тратит ничего на проверку, включено ли наблюдение.
+     * @param mainNode корневой узел AST дерева. Слушатель получает узлы этого дерева.
+     * @param listener слушатель выполнения
+     * @return Возвращает корневой узел исполняемого дерева.
+     */
+    public Evaluator<B> compileInstrumented(Node mainNode, EvaluationListener<B> listener) {
+        return compileInstrumented(mainNode, SlotLayout.of(mainNode), Objects.requireNonNull(listener));
+    }
+
+    protected Evaluator<B> compileInstrumented(Node node, SlotLayout slotLayout, EvaluationListener<B> listener) {
+        List<Node> operandNodes = operandsOf(node);
+        Evaluator<B>[] operands = Evaluator.newArray(operandNodes.size());
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = compileInstrumented(operandNodes.get(i), slotLayout, listener);
+        }
+        return new ListeningEvaluator<>(node, compileNode(node, operands, slotLayout), listener);
+    }
+
+    /**
+     * @return Возвращает операнды узла в порядке выполнения: у метода первым идет контекст, за ним аргументы.
+     */
+    public static List<Node> operandsOf(Node node) {
+        if (!(node instanceof OperatorNode)) return List.of();
+        if (!(node instanceof MethodOperatorNode methodOperatorNode)) return node.getChildrenNodes();
+        List<Node> operands = new ArrayList<>(methodOperatorNode.getChildrenNodes().size() + 1);
+        operands.add(methodOperatorNode.getContext());
+        operands.addAll(methodOperatorNode.getChildrenNodes());
+        return operands;
+    }
+
+    /**
+     * Компилирует один узел AST дерева, операнды которого уже скомпилированы. Позволяет собирать исполняемое дерево
+     * не только по дереву {@link Node}, но и по графу, в котором одни и те же операнды используются несколько раз.
+     * @param node узел AST дерева
+     * @param operands исполняемые операнды в порядке {@link Interpreter#operandsOf(Node)}
+     * @param slotLayout раскладка слотов выражения
+     * @return Возвращает исполняемый узел.
+     */
+    @SuppressWarnings("unchecked")
+    public Evaluator<B> compileNode(Node node, Evaluator<B>[] operands, SlotLayout slotLayout) {
+        String name = node.getNodeName();
+        if(node instanceof TernaryOperatorNode) {
+            LazyTernFunction<Boolean,B,B,B> lazyTernaryOperator = listLazyTernaryOperators.get(name);
+            if(!Objects.isNull(lazyTernaryOperator)) return new LazyTernaryOperatorEvaluator<>(lazyTernaryOperator, operands[0], operands[1], operands[2]);
+            TernFunction<Boolean,B,B,B> ternaryOperator = listTernaryOperators.get(name);
+            if(Objects.isNull(ternaryOperator)) return unknownNode(node);
+            return new TernaryOperatorEvaluator<>(ternaryOperator, operands[0], operands[1], operands[2]);
+        }
+        else if(node instanceof BinaryOperatorNode) {
+            LazyBiFunction<B, B, R> lazyBinaryOperator = listLazyBinaryOperators.get(name);
+            if(!Objects.isNull(lazyBinaryOperator)) {
+                if(getPrimitiveHandler(lazyBinaryOperator) instanceof BooleanBinaryOperator booleanOperator) return new BooleanBinaryOperatorEvaluator<>(booleanOperator, operands[0], operands[1]);
+                return new LazyBinaryOperatorEvaluator<>(lazyBinaryOperator, operands[0], operands[1]);
+            }
+            BiFunction<B, B, R> binaryOperator = listBinaryOperators.get(name);
+            if(Objects.isNull(binaryOperator)) return unknownNode(node);
+            Object primitiveOperator = getPrimitiveHandler(binaryOperator);
+            if(primitiveOperator instanceof DoubleBinaryOperator doubleOperator) return new DoubleBinaryOperatorEvaluator<>(doubleOperator, operands[0], operands[1]);
+            if(primitiveOperator instanceof DoubleBiPredicate predicate) return new DoublePredicateEvaluator<>(predicate, operands[0], operands[1]);
+            if(primitiveOperator instanceof BooleanBinaryOperator booleanOperator) return new BooleanBinaryOperatorEvaluator<>(booleanOperator, operands[0], operands[1]);
+            return new BinaryOperatorEvaluator<>(binaryOperator, operands[0], operands[1]);
+        }
+        else if(node instanceof UnaryOperatorNode) {
+            Function<B, R> unaryOperator = listUnaryOperators.get(name);
+            if(Objects.isNull(unaryOperator)) return unknownNode(node);
+            if(getPrimitiveHandler(unaryOperator) instanceof DoubleUnaryOperator doubleOperator) return new DoubleUnaryOperatorEvaluator<>(doubleOperator, operands[0]);
+            return new UnaryOperatorEvaluator<>(unaryOperator, operands[0]);
+        }
+        else if(node instanceof ConstantNode constantNode) {
+            return new ConstantEvaluator<>((B) constantNode.getValue());
+        }
+        else if(node instanceof ConditionNode) {
+            Function<String, ? extends B> condition = getCondition(name);
+            if(getPrimitiveHandler(condition) instanceof ToDoubleFunction<?> doubleCondition) {
+                return new DoubleConditionEvaluator<>(name, slotLayout.getSlot(name), (ToDoubleFunction<String>) doubleCondition, getMemoSlot(node, slotLayout));
+            }
+            return new ConditionEvaluator<>(name, slotLayout.getSlot(name), condition, getMemoSlot(node, slotLayout));
+        }
+        else if(node instanceof MethodOperatorNode methodOperatorNode) {
+            Evaluator<B> methodEvaluator = new MethodEvaluator<>(name, methodOperatorNode.getContext().getNodeName(), operands[0], Arrays.copyOfRange(operands, 1, operands.length));
+            int memoSlot = getMemoSlot(node, slotLayout);
+            return memoSlot < 0 ? methodEvaluator : new MemoEvaluator<>(memoSlot, methodEvaluator);
+        }
+        else if(node instanceof FunctionOperatorNode) {
+            Function<List<B>, R> functionOperator = listFunctionOperators.get(name);
+            if(Objects.isNull(functionOperator)) return unknownNode(node);
+            return new FunctionEvaluator<>(functionOperator, operands);
+        }
+        else return unknownNode(node);
+    }
+
+    protected Evaluator<B>[] compileList(List<Node> nodeList, SlotLayout slotLayout) {
+        Evaluator<B>[] evaluators = Evaluator.newArray(nodeList.size());
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = compileEvaluatorTree(nodeList.get(i), slotLayout);
+        }
+        return evaluators;
+    }
+
+    protected Evaluator<B> unknownNode(Node node) {
+        String message = String.format("Unknown node: %s", node);
+        return context -> {
+            throw new InterpreterException(message);
+        };
     }
 
     public B execute(Node mainNode) throws InterpreterException {
         return execute(mainNode, null);
     }
 
+    /**
+     * Выполняет выражение, не блокируя вызывающий поток. Сначала одновременно запрашиваются все асинхронные условия выражения
+     * ({@link Interpreter#addAsyncCondition(String, Function)}), которых нет в локальных аргументах, причем и те,
+     * до которых ленивые операторы могут не дойти. Когда все они получены, выражение выполняется в executor
+     * в обычном порядке, а полученные значения подставляются как локальные аргументы. Поэтому выполнение длится столько,
+     * сколько самое медленное условие, а не сумму их времени.
+     * @param evaluator исполняемое дерево
+     * @param slotLayout раскладка слотов выражения, по ней определяются его условия
+     * @param localConditions локальные аргументы. Может быть null.
+     * @param executor выполняет вызовы обработчиков и само выражение
+     * @return Возвращает результат выражения. Ошибка обработчика или {@link InterpreterException} завершает его
+     * исключением {@link CompletionException}.
+     */
+    public CompletableFuture<B> executeAsync(Evaluator<B> evaluator, SlotLayout slotLayout, Map<String, B> localConditions, Executor executor) {
+        List<String> asyncConditionNames = new ArrayList<>();
+        List<CompletableFuture<B>> asyncConditions = new ArrayList<>();
+        for (String conditionName : slotLayout.getSlotNames()) {
+            if (!Objects.isNull(localConditions) && localConditions.containsKey(conditionName)) continue;
+            Function<String, CompletionStage<B>> asyncCondition = getAsyncCondition(conditionName);
+            if (Objects.isNull(asyncCondition)) continue;
+            asyncConditionNames.add(conditionName);
+            asyncConditions.add(CompletableFuture.supplyAsync(() -> asyncCondition.apply(conditionName), executor).thenCompose(Function.identity()));
+        }
+        return CompletableFuture.allOf(asyncConditions.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+            Map<String, B> arguments = Objects.isNull(localConditions) ? new HashMap<>() : new HashMap<>(localConditions);
+            for (int i = 0; i < asyncConditionNames.size(); i++) {
+                arguments.put(asyncConditionNames.get(i), asyncConditions.get(i).join());
+            }
+            try {
+                return evaluator.evaluate(new EvaluationContext<>(arguments));
+            } catch (InterpreterException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
 
     /**
      * Исполняет операторы, выраженные узлами AST дерева. Работает рекурсивно для каждых дочерних узлов родительского узла.
@@ -85,22 +795,43 @@ public class Interpreter<T, R extends B, B> {
     public B execute(Node mainNode ,Map<String, B> localConditions) throws InterpreterException {
         if(mainNode instanceof TernaryOperatorNode ternaryOperatorNode) {
             List<Node> childrenNode = mainNode.getChildrenNodes().stream().toList();
+            LazyTernFunction<Boolean,B,B,B> lazyTernaryOperator = listLazyTernaryOperators.get(ternaryOperatorNode.getNodeName());
+            if(!Objects.isNull(lazyTernaryOperator)) {
+                Boolean condition = (Boolean) execute(childrenNode.get(0), localConditions);
+                try {
+                    return lazyTernaryOperator.apply(condition, lazyExecute(childrenNode.get(1), localConditions), lazyExecute(childrenNode.get(2), localConditions));
+                } catch (UncheckedInterpreterException e) {
+                    throw e.getCause();
+                }
+            }
             return listTernaryOperators.get(ternaryOperatorNode.getNodeName()).apply((Boolean) execute(childrenNode.get(0), localConditions), execute(childrenNode.get(1), localConditions), execute(childrenNode.get(2),  localConditions));
         }
         else if(mainNode instanceof BinaryOperatorNode binaryOperatorNode) {
             List<Node> childrenNode = mainNode.getChildrenNodes().stream().toList();
+            LazyBiFunction<B, B, R> lazyBinaryOperator = listLazyBinaryOperators.get(binaryOperatorNode.getNodeName());
+            if(!Objects.isNull(lazyBinaryOperator)) {
+                try {
+                    return lazyBinaryOperator.apply(lazyExecute(childrenNode.get(0), localConditions), lazyExecute(childrenNode.get(1), localConditions));
+                } catch (UncheckedInterpreterException e) {
+                    throw e.getCause();
+                }
+            }
             return listBinaryOperators.get(binaryOperatorNode.getNodeName()).apply(execute(childrenNode.get(0), localConditions), execute(childrenNode.get(1), localConditions));
         }
         else if(mainNode instanceof UnaryOperatorNode unaryOperationNode) {
             List<Node> childrenNode = mainNode.getChildrenNodes().stream().toList();
             return listUnaryOperators.get(unaryOperationNode.getNodeName()).apply(execute(childrenNode.get(0), localConditions));
         }
+        else if(mainNode instanceof ConstantNode constantNode) {
+            @SuppressWarnings("unchecked")
+            B value = (B) constantNode.getValue();
+            return value;
+        }
         else if(mainNode instanceof ConditionNode conditionNode) {
             if(!Objects.isNull(localConditions) && localConditions.containsKey(conditionNode.getNodeName())) return localConditions.get(conditionNode.getNodeName());
-            if(listConditionNames.stream().anyMatch(cn ->conditionNode.getNodeName().matches(cn.getRegEx()))) {
-                ConditionName conditionName = listConditionNames.stream().filter(cn ->conditionNode.getNodeName().matches(cn.getRegEx())).findFirst().orElse(null);
-                assert conditionName != null;
-                return conditionName.getCondition().apply(conditionNode.getNodeName());
+            Optional<ConditionName> conditionName = resolveCondition(conditionNode.getNodeName());
+            if(conditionName.isPresent()) {
+                return conditionName.get().getCondition().apply(conditionNode.getNodeName());
             }
             else if(Objects.isNull(alternativeConditionParser)) throw new InterpreterException(String.format("Unknown condition: %s", mainNode.getNodeName()));
             else return alternativeConditionParser.apply(conditionNode.getNodeName());
@@ -120,6 +851,13 @@ public class Interpreter<T, R extends B, B> {
         else throw new InterpreterException(String.format("Unknown node: %s", mainNode));
     }
     
+    /**
+     * @return Возвращает операнд ленивого оператора, который выполнит узел только при первом обращении.
+     */
+    protected Supplier<B> lazyExecute(Node node, Map<String, B> localConditions) {
+        return new LazyOperand<>(context -> execute(node, context.getLocalConditions()), new EvaluationContext<>(localConditions));
+    }
+
     protected List<B> executeList(List<Node> nodeList,Map<String, B> localConditions) throws InterpreterException {
         List<B> objectList = new ArrayList<>(nodeList.size());
         for (Node node : nodeList) {
@@ -0,0 +1,68 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Обычные обработчики, построенные поверх обработчиков над double и boolean. Числа принимаются как {@link Number},
+ * логические значения как {@link Boolean}, результат упаковывается в {@link Double} или {@link Boolean}.
+ * Их используют все способы исполнения, кроме {@link ExecutionStrategy#EVALUATOR_TREE}, где значения между такими узлами не упаковываются.
+ * У методов разные имена: перегрузки по функциональным интерфейсам были бы неоднозначны для лямбд.
+ */
+public final class PrimitiveHandlers {
+
+    private PrimitiveHandlers() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V, D> BiFunction<V, V, D> boxedDouble(DoubleBinaryOperator binaryOperator) {
+        Objects.requireNonNull(binaryOperator);
+        return (value1, value2) -> (D) Double.valueOf(binaryOperator.applyAsDouble(((Number) value1).doubleValue(), ((Number) value2).doubleValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V, D> BiFunction<V, V, D> boxedPredicate(DoubleBiPredicate predicate) {
+        Objects.requireNonNull(predicate);
+        return (value1, value2) -> (D) Boolean.valueOf(predicate.test(((Number) value1).doubleValue(), ((Number) value2).doubleValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V, D> BiFunction<V, V, D> boxedBoolean(BooleanBinaryOperator binaryOperator) {
+        Objects.requireNonNull(binaryOperator);
+        return (value1, value2) -> (D) Boolean.valueOf(binaryOperator.applyAsBoolean((Boolean) value1, (Boolean) value2));
+    }
+
+    /**
+     * Аналогичен {@link PrimitiveHandlers#boxedBoolean(BooleanBinaryOperator)}, но второй операнд вычисляется,
+     * только если первый не равен {@link BooleanBinaryOperator#getShortCircuitValue()}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, D> LazyBiFunction<V, V, D> lazyBoxedBoolean(BooleanBinaryOperator binaryOperator) {
+        Boolean shortCircuitValue = Objects.requireNonNull(binaryOperator.getShortCircuitValue());
+        return (value1, value2) -> {
+            boolean first = (Boolean) value1.get();
+            if (first == shortCircuitValue) return (D) Boolean.valueOf(first);
+            return (D) Boolean.valueOf(binaryOperator.applyAsBoolean(first, (Boolean) value2.get()));
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V, D> Function<V, D> boxedUnary(DoubleUnaryOperator unaryOperator) {
+        Objects.requireNonNull(unaryOperator);
+        return value -> (D) Double.valueOf(unaryOperator.applyAsDouble(((Number) value).doubleValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <D> Function<String, D> boxedCondition(ToDoubleFunction<String> condition) {
+        Objects.requireNonNull(condition);
+        return conditionName -> (D) Double.valueOf(condition.applyAsDouble(conditionName));
+    }
+}
@@ -0,0 +1,217 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.interpreter.evaluator.MemoEvaluator;
+import org.thedivazo.condlang.parser.AST.ConstantNode;
+import org.thedivazo.condlang.parser.AST.FunctionOperatorNode;
+import org.thedivazo.condlang.parser.AST.MethodOperatorNode;
+import org.thedivazo.condlang.parser.Node;
+
+import java.util.*;
+
+/**
+ * Набор правил, которые выполняются вместе над одними и теми же локальными аргументами.
+ * При компиляции одинаковые поддеревья всех правил объединяются в один узел (hash-consing), и деревья превращаются в граф.
+ * Узел, который используется несколько раз, вычисляется не больше одного раза за выполнение ({@link MemoEvaluator}),
+ * причем только тогда, когда его значение понадобилось (ленивые операторы остаются ленивыми).
+ * Ячейки таких узлов идут после ячеек условий и методов ({@link SlotLayout#getMemoSize()}).
+ * <p>
+ * Считается, что в течение одного выполнения условия, операторы и методы возвращают одно и то же для одних и тех же аргументов.
+ * Функции, не помеченные как чистые ({@link Interpreter#markPure(Object)}), например random(), не объединяются
+ * и вызываются столько раз, сколько встречаются в правилах.
+ * <p>
+ * Обработчики берутся из {@link Interpreter} на момент компиляции. Набор правил неизменяем и потокобезопасен.
+ * @param <B> the type that returns the condition.
+ */
+public final class RuleSet<B> {
+
+    private final List<String> ruleIds;
+
+    private final Evaluator<B>[] rules;
+
+    private final SlotLayout slotLayout;
+
+    private final int memoSize;
+
+    private final int sharedNodeCount;
+
+    private final int nodeCount;
+
+    private final int treeNodeCount;
+
+    private RuleSet(List<String> ruleIds, Evaluator<B>[] rules, SlotLayout slotLayout, int memoSize, int sharedNodeCount, int nodeCount, int treeNodeCount) {
+        this.ruleIds = ruleIds;
+        this.rules = rules;
+        this.slotLayout = slotLayout;
+        this.memoSize = memoSize;
+        this.sharedNodeCount = sharedNodeCount;
+        this.nodeCount = nodeCount;
+        this.treeNodeCount = treeNodeCount;
+    }
+
+    /**
+     * @param interpreter интерпретатор, обработчики которого будут использованы
+     * @param rules AST деревья правил по их идентификаторам. Порядок правил сохраняется в результатах выполнения.
+     * @return Возвращает скомпилированный набор правил.
+     */
+    public static <B> RuleSet<B> compile(Interpreter<?, ?, B> interpreter, Map<String, Node> rules) {
+        Builder<B> builder = new Builder<>(interpreter);
+        List<String> ruleIds = new ArrayList<>(rules.size());
+        int[] roots = new int[rules.size()];
+        for (Map.Entry<String, Node> rule : rules.entrySet()) {
+            roots[ruleIds.size()] = builder.add(rule.getValue());
+            ruleIds.add(rule.getKey());
+        }
+        return builder.build(List.copyOf(ruleIds), roots, SlotLayout.of(List.copyOf(rules.values())));
+    }
+
+    private static final class Builder<B> {
+
+        /**
+         * Вид узла, его имя (или значение константы) и номера операндов. Одинаковые ключи - одинаковые поддеревья.
+         */
+        private record Key(Class<?> type, Object value, List<Integer> operands) {
+        }
+
+        private final Interpreter<?, ?, B> interpreter;
+
+        private final Map<Key, Integer> ids = new HashMap<>();
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        private final List<int[]> operands = new ArrayList<>();
+
+        private final List<Boolean> shareable = new ArrayList<>();
+
+        private int treeNodeCount;
+
+        private Builder(Interpreter<?, ?, B> interpreter) {
+            this.interpreter = interpreter;
+        }
+
+        /**
+         * Операнды добавляются раньше узла, поэтому их номера всегда меньше номера узла.
+         * @return Возвращает номер узла в графе.
+         */
+        private int add(Node node) {
+            List<Node> operandNodes = Interpreter.operandsOf(node);
+            int[] operandIds = new int[operandNodes.size()];
+            boolean shareableNode = !(node instanceof FunctionOperatorNode) || node instanceof MethodOperatorNode
+                    || interpreter.isPure(interpreter.getFunctionOperator(node.getNodeName()));
+            for (int i = 0; i < operandIds.length; i++) {
+                operandIds[i] = add(operandNodes.get(i));
+                shareableNode &= shareable.get(operandIds[i]);
+            }
+            treeNodeCount++;
+            if (!shareableNode) return newNode(node, operandIds, false);
+            Object value = node instanceof ConstantNode constantNode ? constantNode.getValue() : node.getNodeName();
+            Key key = new Key(node.getClass(), value, Arrays.stream(operandIds).boxed().toList());
+            Integer id = ids.get(key);
+            if (id != null) return id;
+            id = newNode(node, operandIds, true);
+            ids.put(key, id);
+            return id;
+        }
+
+        private int newNode(Node node, int[] operandIds, boolean shareableNode) {
+            nodes.add(node);
+            operands.add(operandIds);
+            shareable.add(shareableNode);
+            return nodes.size() - 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private RuleSet<B> build(List<String> ruleIds, int[] roots, SlotLayout slotLayout) {
+            int[] references = new int[nodes.size()];
+            for (int[] operandIds : operands) {
+                for (int operand : operandIds) references[operand]++;
+            }
+            for (int root : roots) references[root]++;
+
+            Evaluator<B>[] evaluators = Evaluator.newArray(nodes.size());
+            int memoSize = slotLayout.getMemoSize();
+            int sharedNodeCount = 0;
+            for (int id = 0; id < evaluators.length; id++) {
+                int[] operandIds = operands.get(id);
+                Evaluator<B>[] operandEvaluators = Evaluator.newArray(operandIds.length);
+                for (int i = 0; i < operandIds.length; i++) {
+                    operandEvaluators[i] = evaluators[operandIds[i]];
+                }
+                Node node = nodes.get(id);
+                Evaluator<B> evaluator = interpreter.compileNode(node, operandEvaluators, slotLayout);
+                if (references[id] > 1 && !(node instanceof ConstantNode)) {
+                    sharedNodeCount++;
+                    // Условия и чистые методы уже запоминают свои значения сами.
+                    if (interpreter.getMemoSlot(node, slotLayout) < 0) evaluator = new MemoEvaluator<>(memoSize++, evaluator);
+                }
+                evaluators[id] = evaluator;
+            }
+            Evaluator<B>[] rules = Evaluator.newArray(roots.length);
+            for (int rule = 0; rule < roots.length; rule++) {
+                rules[rule] = evaluators[roots[rule]];
+            }
+            return new RuleSet<>(ruleIds, rules, slotLayout, memoSize, sharedNodeCount, nodes.size(), treeNodeCount);
+        }
+    }
+
+    /**
+     * Выполняет все правила с общими локальными аргументами.
+     * @param localArguments локальные аргументы. Может быть null.
+     * @return Возвращает результаты правил по их идентификаторам в порядке компиляции.
+     * @throws InterpreterException выбрасывается при ошибке выполнения любого из правил.
+     */
+    public Map<String, B> execute(Map<String, B> localArguments) throws InterpreterException {
+        return execute(new EvaluationContext<>(localArguments, memoSize));
+    }
+
+    /**
+     * Аналогичен {@link RuleSet#execute(Map)}, но локальные аргументы передаются по слотам {@link RuleSet#getSlotLayout()}.
+     */
+    public Map<String, B> execute(Frame frame) throws InterpreterException {
+        if (frame.getSlotLayout() != slotLayout) throw new IllegalArgumentException("The frame was created for another slot layout");
+        return execute(new EvaluationContext<>(frame.getValues(), memoSize));
+    }
+
+    private Map<String, B> execute(EvaluationContext<B> context) throws InterpreterException {
+        Map<String, B> results = new LinkedHashMap<>(rules.length * 2);
+        for (int rule = 0; rule < rules.length; rule++) {
+            results.put(ruleIds.get(rule), rules[rule].evaluate(context));
+        }
+        return results;
+    }
+
+    public Frame newFrame() {
+        return new Frame(slotLayout);
+    }
+
+    public List<String> getRuleIds() {
+        return ruleIds;
+    }
+
+    public SlotLayout getSlotLayout() {
+        return slotLayout;
+    }
+
+    /**
+     * @return Возвращает количество узлов графа.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Возвращает суммарное количество узлов в деревьях всех правил (до объединения).
+     */
+    public int getTreeNodeCount() {
+        return treeNodeCount;
+    }
+
+    /**
+     * @return Возвращает количество узлов, которые используются несколько раз и вычисляются один раз за выполнение.
+     */
+    public int getSharedNodeCount() {
+        return sharedNodeCount;
+    }
+}
@@ -0,0 +1,215 @@
+package org.thedivazo.condlang.interpreter;
+
+import org.thedivazo.condlang.parser.AST.ConditionNode;
+import org.thedivazo.condlang.parser.AST.ConstantNode;
+import org.thedivazo.condlang.parser.AST.MethodOperatorNode;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Номера ячеек (слотов) локальных аргументов выражения. Каждое имя условия из AST дерева получает свой слот в порядке
+ * первого появления, поэтому для одного и того же дерева раскладка всегда одинакова.
+ * Слоты позволяют передавать локальные аргументы массивом ({@link Frame}) вместо {@link Map}.
+ * <p>
+ * Кроме того, раскладка нумерует ячейки, в которых запоминаются значения за одно выполнение
+ * ({@link org.thedivazo.condlang.interpreter.evaluator.EvaluationContext#putMemo(int, Object)}): сначала идут ячейки условий
+ * (номер совпадает со слотом), затем ячейки вызовов методов. Одинаковые цепочки вызовов (например, $player#getWorld())
+ * получают одну ячейку, если контекст и аргументы состоят только из условий, констант и таких же вызовов.
+ */
+public final class SlotLayout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> slotNames;
+
+    private final Map<String, Integer> slots;
+
+    /**
+     * Ячейки вызовов методов по структуре вызова. Номер ячейки - это {@link SlotLayout#size()} плюс значение.
+     */
+    private final Map<MemoKey, Integer> memoSlots;
+
+    /**
+     * Структура узла, по которой одинаковые вызовы методов получают одну ячейку.
+     */
+    private record MemoKey(byte kind, Serializable value, List<MemoKey> operands) implements Serializable {
+    }
+
+    private SlotLayout(List<String> slotNames, List<MemoKey> memoKeys) {
+        this.slotNames = List.copyOf(slotNames);
+        Map<String, Integer> slots = new HashMap<>();
+        for (int slot = 0; slot < slotNames.size(); slot++) {
+            slots.put(slotNames.get(slot), slot);
+        }
+        this.slots = Map.copyOf(slots);
+        Map<MemoKey, Integer> memoSlots = new HashMap<>();
+        for (MemoKey memoKey : memoKeys) {
+            memoSlots.putIfAbsent(memoKey, memoSlots.size());
+        }
+        this.memoSlots = Map.copyOf(memoSlots);
+    }
+
+    /**
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает раскладку слотов для всех условий дерева.
+     */
+    public static SlotLayout of(Node mainNode) {
+        Set<String> slotNames = new LinkedHashSet<>();
+        List<MemoKey> memoKeys = new ArrayList<>();
+        collect(mainNode, slotNames, memoKeys);
+        return new SlotLayout(new ArrayList<>(slotNames), memoKeys);
+    }
+
+    /**
+     * Аналогичен {@link SlotLayout#of(Node)}, но слоты общие для нескольких деревьев.
+     * Одинаковые имена условий разных деревьев получают один слот.
+     */
+    public static SlotLayout of(List<Node> mainNodes) {
+        Set<String> slotNames = new LinkedHashSet<>();
+        List<MemoKey> memoKeys = new ArrayList<>();
+        for (Node mainNode : mainNodes) {
+            collect(mainNode, slotNames, memoKeys);
+        }
+        return new SlotLayout(new ArrayList<>(slotNames), memoKeys);
+    }
+
+    /**
+     * Аналогичен {@link SlotLayout#of(Node)}. Узлы {@link FlatTree} пронумерованы в том же порядке обхода,
+     * поэтому раскладка совпадает с раскладкой исходного дерева.
+     */
+    public static SlotLayout of(FlatTree flatTree) {
+        Set<String> slotNames = new LinkedHashSet<>();
+        List<MemoKey> memoKeys = new ArrayList<>();
+        MemoKey[] nodeMemoKeys = memoKeysOf(flatTree);
+        for (int node = 0; node < flatTree.size(); node++) {
+            if (flatTree.getKind(node) == FlatTree.CONDITION) slotNames.add(flatTree.getName(node));
+            else if (flatTree.getKind(node) == FlatTree.METHOD && !Objects.isNull(nodeMemoKeys[node])) memoKeys.add(nodeMemoKeys[node]);
+        }
+        return new SlotLayout(new ArrayList<>(slotNames), memoKeys);
+    }
+
+    /**
+     * Аналогичен {@link SlotLayout#memoKeyOf(Node)} для всех узлов плоского дерева сразу. Дочерние узлы {@link FlatTree}
+     * имеют большие номера, поэтому при обходе с конца структуры операндов уже известны.
+     * @return Возвращает структуры по номерам узлов, null для узлов без структуры.
+     */
+    private static MemoKey[] memoKeysOf(FlatTree flatTree) {
+        MemoKey[] memoKeys = new MemoKey[flatTree.size()];
+        for (int node = flatTree.size() - 1; node >= 0; node--) {
+            switch (flatTree.getKind(node)) {
+                case FlatTree.CONDITION -> memoKeys[node] = new MemoKey(FlatTree.CONDITION, flatTree.getName(node), List.of());
+                case FlatTree.CONSTANT -> memoKeys[node] = new MemoKey(FlatTree.CONSTANT, flatTree.getConstant(node), List.of());
+                case FlatTree.METHOD -> {
+                    List<MemoKey> operandKeys = new ArrayList<>(flatTree.getChildCount(node));
+                    for (int i = 0; i < flatTree.getChildCount(node); i++) {
+                        int child = flatTree.getChild(node, i);
+                        MemoKey operandKey = child > node ? memoKeys[child] : null;
+                        if (Objects.isNull(operandKey)) {
+                            operandKeys = null;
+                            break;
+                        }
+                        operandKeys.add(operandKey);
+                    }
+                    if (!Objects.isNull(operandKeys)) memoKeys[node] = new MemoKey(FlatTree.METHOD, flatTree.getName(node), List.copyOf(operandKeys));
+                }
+                default -> {
+                }
+            }
+        }
+        return memoKeys;
+    }
+
+    /**
+     * Обходит дерево в прямом порядке без рекурсии, чтобы не упираться в стек вызовов на глубоких выражениях.
+     */
+    private static void collect(Node mainNode, Set<String> slotNames, List<MemoKey> memoKeys) {
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(mainNode);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            if (node instanceof ConditionNode) {
+                slotNames.add(node.getNodeName());
+                continue;
+            }
+            if (node instanceof MethodOperatorNode) addMemoKey(node, memoKeys);
+            List<Node> childrenNodes = node.getChildrenNodes();
+            for (int i = childrenNodes.size() - 1; i >= 0; i--) {
+                nodes.push(childrenNodes.get(i));
+            }
+            if (node instanceof MethodOperatorNode methodOperatorNode) nodes.push(methodOperatorNode.getContext());
+        }
+    }
+
+    private static void addMemoKey(Node node, List<MemoKey> memoKeys) {
+        MemoKey memoKey = memoKeyOf(node);
+        if (!Objects.isNull(memoKey)) memoKeys.add(memoKey);
+    }
+
+    /**
+     * @return Возвращает структуру условия, константы или вызова метода над ними. Для остальных узлов возвращает null.
+     */
+    private static MemoKey memoKeyOf(Node node) {
+        if (node instanceof ConditionNode) return new MemoKey(FlatTree.CONDITION, node.getNodeName(), List.of());
+        if (node instanceof ConstantNode constantNode) return new MemoKey(FlatTree.CONSTANT, constantNode.getValue(), List.of());
+        if (!(node instanceof MethodOperatorNode)) return null;
+        List<Node> operands = Interpreter.operandsOf(node);
+        List<MemoKey> operandKeys = new ArrayList<>(operands.size());
+        for (Node operand : operands) {
+            MemoKey operandKey = memoKeyOf(operand);
+            if (Objects.isNull(operandKey)) return null;
+            operandKeys.add(operandKey);
+        }
+        return new MemoKey(FlatTree.METHOD, node.getNodeName(), List.copyOf(operandKeys));
+    }
+
+    /**
+     * @param node вызов метода из дерева, по которому построена раскладка
+     * @return Возвращает ячейку для значения вызова или -1, если одинаковые вызовы нельзя распознать по структуре.
+     */
+    public int getMemoSlot(Node node) {
+        MemoKey memoKey = node instanceof MethodOperatorNode ? memoKeyOf(node) : null;
+        if (Objects.isNull(memoKey)) return -1;
+        Integer memoSlot = memoSlots.get(memoKey);
+        return Objects.isNull(memoSlot) ? -1 : size() + memoSlot;
+    }
+
+    /**
+     * Аналогичен {@link SlotLayout#getMemoSlot(Node)} для всех вызовов методов плоского дерева, по которому построена раскладка.
+     * @return Возвращает ячейки по номерам узлов, -1 для остальных узлов и для вызовов, которые нельзя распознать по структуре.
+     */
+    public int[] getMemoSlots(FlatTree flatTree) {
+        MemoKey[] memoKeys = memoKeysOf(flatTree);
+        int[] result = new int[flatTree.size()];
+        for (int node = 0; node < result.length; node++) {
+            Integer memoSlot = flatTree.getKind(node) == FlatTree.METHOD && !Objects.isNull(memoKeys[node]) ? memoSlots.get(memoKeys[node]) : null;
+            result[node] = Objects.isNull(memoSlot) ? -1 : size() + memoSlot;
+        }
+        return result;
+    }
+
+    /**
+     * @return Возвращает количество ячеек для значений, запоминаемых за одно выполнение: условия и вызовы методов.
+     */
+    public int getMemoSize() {
+        return size() + memoSlots.size();
+    }
+
+    /**
+     * @param name имя условия (переменной)
+     * @return Возвращает номер слота или -1, если в выражении нет такого условия.
+     */
+    public int getSlot(String name) {
+        return slots.getOrDefault(name, -1);
+    }
+
+    public List<String> getSlotNames() {
+        return slotNames;
+    }
+
+    public int size() {
+        return slotNames.size();
+    }
+}
@@ -1,15 +1,15 @@
 package org.thedivazo.condlang.interpreter;
 
 import org.thedivazo.condlang.interpreter.wrapper.AbstractWrapperMethod;
-import org.thedivazo.condlang.interpreter.wrapper.AbstractWrapperObject;
+import org.thedivazo.condlang.interpreter.wrapper.CachedWrapperObject;
+import org.thedivazo.condlang.interpreter.wrapper.MethodHandleWrapperMethod;
+import org.thedivazo.condlang.interpreter.wrapper.WrapperClass;
 import org.thedivazo.condlang.interpreter.wrapper.WrapperMethod;
 import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -20,37 +20,22 @@ public class WrapperManager {
         return new AbstractWrapperMethod<T, Object>(methodName, parameterTypes) {
             @Override
             public Object execute(WrapperObject<T> wrapperObjectContext, Object... arguments) {
-                T objectContext = wrapperObjectContext.getObject();
-                Class<?> clazzObjectContext = wrapperObjectContext.getClassObject();
-                try {
-                    Method methodContext = clazzObjectContext.getMethod(getMethodName(), getArgumentTypes());
-                    methodContext.setAccessible(true);
-                    Object result = Modifier.isStatic(methodContext.getModifiers()) ? methodContext.invoke(null, arguments) : methodContext.invoke(objectContext, arguments);
-                    if(primitiveType.isInstance(result)) return result;
-                    else return generateWrapperObject(result, result.getClass(), primitiveType);
-
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                    return null; //2928
-                }
+                MethodHandleWrapperMethod<T> methodContext = WrapperClass.of(wrapperObjectContext.getClassObject()).findMethod(getMethodName(), getArgumentTypes());
+                if (Objects.isNull(methodContext)) return null;
+                return CachedWrapperObject.wrap(methodContext.execute(wrapperObjectContext, arguments), primitiveType);
             }
         };
 
     }
 
+    /**
+     * Оборачивает объект. Методы класса ищутся один раз ({@link WrapperClass}) и разделяются всеми обертками этого класса.
+     * @param object объект (может быть null, если нужны только статические методы)
+     * @param classObject класс, методы которого будут доступны
+     * @param primitiveType тип значений, которые не нужно оборачивать
+     */
     public static <T> WrapperObject<T> generateWrapperObject(T object, Class<? extends T> classObject, Class<?> primitiveType) {
-        return new AbstractWrapperObject<T>(object, classObject) {
-
-            @Override
-            protected void generateMethods() {
-                Method[] methods = getClassObject().getMethods();
-                for (Method method : methods) {
-                    if(!method.getReturnType().equals(Void.TYPE)) {
-                        wrapperMethodSet.add(generateWrapperMethod(method.getName(), method.getParameterTypes(), primitiveType));
-                    }
-                }
-
-    }
-};
+        return new CachedWrapperObject<>(object, classObject, primitiveType);
     }
 
     public static Set<String> getMethodsObject(Class<?> clazz) {
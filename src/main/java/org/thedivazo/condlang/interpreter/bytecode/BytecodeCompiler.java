@@ -0,0 +1,357 @@
+package org.thedivazo.condlang.interpreter.bytecode;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.Interpreter;
+import org.thedivazo.condlang.interpreter.SlotLayout;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.interpreter.evaluator.MethodEvaluator;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
+import org.thedivazo.condlang.parser.AST.*;
+import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.utils.TernFunction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Компилирует AST дерево в скрытый JVM класс, реализующий {@link Evaluator}.
+ * Обработчики {@link Interpreter} передаются в класс через class data и хранятся в static final полях,
+ * поэтому для JIT они являются константами и могут быть встроены по всему выражению.
+ * @param <B> the type that returns the condition.
+ */
+public final class BytecodeCompiler<B> implements Opcodes {
+
+    private static final String CLASS_NAME = Type.getInternalName(BytecodeCompiler.class).replace("BytecodeCompiler", "GeneratedEvaluator");
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String BOOLEAN = Type.getInternalName(Boolean.class);
+    private static final String LIST = Type.getInternalName(List.class);
+    private static final String ARRAY_LIST = Type.getInternalName(ArrayList.class);
+    private static final String EVALUATOR = Type.getInternalName(Evaluator.class);
+    private static final String EVALUATION_CONTEXT = Type.getInternalName(EvaluationContext.class);
+    private static final String BYTECODE_COMPILER = Type.getInternalName(BytecodeCompiler.class);
+
+    private static final String EVALUATE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(EvaluationContext.class));
+
+    private final Interpreter<?, ?, B> interpreter;
+
+    private final SlotLayout slotLayout;
+
+    /**
+     * Вызывать ли перед кодом каждого узла {@link EvaluationContext#step(Node)}.
+     */
+    private final boolean budgeted;
+
+    private final List<Object> constants = new ArrayList<>();
+
+    private final List<Class<?>> constantTypes = new ArrayList<>();
+
+    private final Map<Object, Integer> constantIndexes = new IdentityHashMap<>();
+
+    private BytecodeCompiler(Interpreter<?, ?, B> interpreter, SlotLayout slotLayout, boolean budgeted) {
+        this.interpreter = interpreter;
+        this.slotLayout = slotLayout;
+        this.budgeted = budgeted;
+    }
+
+    /**
+     * @param interpreter интерпретатор, обработчики которого будут встроены в класс
+     * @param node корневой узел AST дерева
+     * @return Возвращает экземпляр сгенерированного класса. Если выражение слишком большое для одного JVM метода,
+     * возвращает дерево объектов {@link Evaluator}.
+     */
+    public static <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node) {
+        return compile(interpreter, node, false);
+    }
+
+    /**
+     * @param budgeted учитывать ли выполнение узлов в бюджете контекста ({@link Interpreter#compileBudgeted(Node)})
+     */
+    public static <B> Evaluator<B> compile(Interpreter<?, ?, B> interpreter, Node node, boolean budgeted) {
+        SlotLayout slotLayout = SlotLayout.of(node);
+        try {
+            return new BytecodeCompiler<>(interpreter, slotLayout, budgeted).generate(node);
+        } catch (MethodTooLargeException e) {
+            return budgeted ? interpreter.compileBudgetedTree(node, slotLayout) : interpreter.compileEvaluatorTree(node, slotLayout);
+        }
+    }
+
+    /**
+     * Вызывается сгенерированным кодом на месте узла, который невозможно выполнить.
+     */
+    public static Object fail(String message) throws InterpreterException {
+        throw new InterpreterException(message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Evaluator<B> generate(Node node) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return OBJECT;
+            }
+        };
+        classWriter.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, OBJECT, new String[]{EVALUATOR});
+
+        MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor evaluate = classWriter.visitMethod(ACC_PUBLIC, "evaluate", EVALUATE_DESCRIPTOR, null, new String[]{Type.getInternalName(InterpreterException.class)});
+        evaluate.visitCode();
+        emit(evaluate, node);
+        evaluate.visitInsn(ARETURN);
+        evaluate.visitMaxs(0, 0);
+        evaluate.visitEnd();
+
+        MethodVisitor staticInitializer = classWriter.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        staticInitializer.visitCode();
+        staticInitializer.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup", Type.getMethodDescriptor(Type.getType(MethodHandles.Lookup.class)), false);
+        staticInitializer.visitLdcInsn("_");
+        staticInitializer.visitLdcInsn(Type.getType(List.class));
+        staticInitializer.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodHandles.class), "classData",
+                Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(MethodHandles.Lookup.class), Type.getType(String.class), Type.getType(Class.class)), false);
+        staticInitializer.visitTypeInsn(CHECKCAST, LIST);
+        staticInitializer.visitVarInsn(ASTORE, 0);
+        for (int i = 0; i < constants.size(); i++) {
+            Class<?> constantType = constantTypes.get(i);
+            classWriter.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, constantName(i), Type.getDescriptor(constantType), null, null).visitEnd();
+            staticInitializer.visitVarInsn(ALOAD, 0);
+            pushInt(staticInitializer, i);
+            staticInitializer.visitMethodInsn(INVOKEINTERFACE, LIST, "get", "(I)Ljava/lang/Object;", true);
+            staticInitializer.visitTypeInsn(CHECKCAST, Type.getInternalName(constantType));
+            staticInitializer.visitFieldInsn(PUTSTATIC, CLASS_NAME, constantName(i), Type.getDescriptor(constantType));
+        }
+        staticInitializer.visitInsn(RETURN);
+        staticInitializer.visitMaxs(0, 0);
+        staticInitializer.visitEnd();
+        classWriter.visitEnd();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(classWriter.toByteArray(), List.copyOf(constants), true);
+            return (Evaluator<B>) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (MethodTooLargeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to define bytecode for expression: " + node, e);
+        }
+    }
+
+    /**
+     * Генерирует код, который оставляет на стеке результат работы узла.
+     */
+    private void emit(MethodVisitor methodVisitor, Node node) {
+        if (node instanceof TernaryOperatorNode ternaryOperatorNode && !Objects.isNull(interpreter.getLazyTernaryOperator(ternaryOperatorNode.getNodeName()))) {
+            emitEvaluator(methodVisitor, node);
+            return;
+        }
+        if (node instanceof BinaryOperatorNode binaryOperatorNode && !Objects.isNull(interpreter.getLazyBinaryOperator(binaryOperatorNode.getNodeName()))) {
+            emitEvaluator(methodVisitor, node);
+            return;
+        }
+        // Ленивые узлы учитываются своим деревом Evaluator.
+        if (budgeted) {
+            methodVisitor.visitVarInsn(ALOAD, 1);
+            emitConstant(methodVisitor, node, Node.class);
+            methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "step", Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Node.class)), false);
+        }
+        if (node instanceof TernaryOperatorNode ternaryOperatorNode) {
+            TernFunction<Boolean, B, B, B> ternaryOperator = interpreter.getTernaryOperator(ternaryOperatorNode.getNodeName());
+            if (Objects.isNull(ternaryOperator)) {
+                emitFail(methodVisitor, String.format("Unknown node: %s", node));
+                return;
+            }
+            List<Node> childrenNode = ternaryOperatorNode.getChildrenNodes();
+            emitConstant(methodVisitor, ternaryOperator, TernFunction.class);
+            emit(methodVisitor, childrenNode.get(0));
+            methodVisitor.visitTypeInsn(CHECKCAST, BOOLEAN);
+            emit(methodVisitor, childrenNode.get(1));
+            emit(methodVisitor, childrenNode.get(2));
+            methodVisitor.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(TernFunction.class), "apply", "(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+        }
+        else if (node instanceof BinaryOperatorNode binaryOperatorNode) {
+            BiFunction<B, B, ?> binaryOperator = interpreter.getBinaryOperator(binaryOperatorNode.getNodeName());
+            if (Objects.isNull(binaryOperator)) {
+                emitFail(methodVisitor, String.format("Unknown node: %s", node));
+                return;
+            }
+            List<Node> childrenNode = binaryOperatorNode.getChildrenNodes();
+            emitConstant(methodVisitor, binaryOperator, BiFunction.class);
+            emit(methodVisitor, childrenNode.get(0));
+            emit(methodVisitor, childrenNode.get(1));
+            methodVisitor.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(BiFunction.class), "apply", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+        }
+        else if (node instanceof UnaryOperatorNode unaryOperatorNode) {
+            Function<B, ?> unaryOperator = interpreter.getUnaryOperator(unaryOperatorNode.getNodeName());
+            if (Objects.isNull(unaryOperator)) {
+                emitFail(methodVisitor, String.format("Unknown node: %s", node));
+                return;
+            }
+            emitConstant(methodVisitor, unaryOperator, Function.class);
+            emit(methodVisitor, unaryOperatorNode.getChildrenNodes().get(0));
+            methodVisitor.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Function.class), "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+        }
+        else if (node instanceof ConstantNode constantNode) {
+            if (Objects.isNull(constantNode.getValue())) methodVisitor.visitInsn(ACONST_NULL);
+            else emitConstant(methodVisitor, constantNode.getValue(), Object.class);
+        }
+        else if (node instanceof ConditionNode conditionNode) {
+            emitCondition(methodVisitor, conditionNode.getNodeName(), interpreter.getMemoSlot(node, slotLayout));
+        }
+        else if (node instanceof MethodOperatorNode methodOperatorNode) {
+            int memoSlot = interpreter.getMemoSlot(node, slotLayout);
+            Label endLabel = new Label();
+            if (memoSlot >= 0) emitMemoLoad(methodVisitor, memoSlot, endLabel);
+            emitConstant(methodVisitor, new MethodCallSite(methodOperatorNode.getNodeName()), MethodCallSite.class);
+            emit(methodVisitor, methodOperatorNode.getContext());
+            List<Node> arguments = methodOperatorNode.getChildrenNodes();
+            pushInt(methodVisitor, arguments.size());
+            methodVisitor.visitTypeInsn(ANEWARRAY, OBJECT);
+            for (int i = 0; i < arguments.size(); i++) {
+                methodVisitor.visitInsn(DUP);
+                pushInt(methodVisitor, i);
+                emit(methodVisitor, arguments.get(i));
+                methodVisitor.visitInsn(AASTORE);
+            }
+            methodVisitor.visitLdcInsn(methodOperatorNode.getContext().getNodeName());
+            methodVisitor.visitMethodInsn(INVOKESTATIC, Type.getInternalName(MethodEvaluator.class), "executeMethod",
+                    Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(MethodCallSite.class), Type.getType(Object.class), Type.getType(Object[].class), Type.getType(String.class)), false);
+            if (memoSlot >= 0) {
+                emitMemoStore(methodVisitor, memoSlot);
+                methodVisitor.visitLabel(endLabel);
+            }
+        }
+        else if (node instanceof FunctionOperatorNode functionOperatorNode) {
+            Function<List<B>, ?> functionOperator = interpreter.getFunctionOperator(functionOperatorNode.getNodeName());
+            if (Objects.isNull(functionOperator)) {
+                emitFail(methodVisitor, String.format("Unknown node: %s", node));
+                return;
+            }
+            List<Node> arguments = functionOperatorNode.getChildrenNodes();
+            emitConstant(methodVisitor, functionOperator, Function.class);
+            methodVisitor.visitTypeInsn(NEW, ARRAY_LIST);
+            methodVisitor.visitInsn(DUP);
+            pushInt(methodVisitor, arguments.size());
+            methodVisitor.visitMethodInsn(INVOKESPECIAL, ARRAY_LIST, "<init>", "(I)V", false);
+            for (Node argument : arguments) {
+                methodVisitor.visitInsn(DUP);
+                emit(methodVisitor, argument);
+                methodVisitor.visitMethodInsn(INVOKEVIRTUAL, ARRAY_LIST, "add", "(Ljava/lang/Object;)Z", false);
+                methodVisitor.visitInsn(POP);
+            }
+            methodVisitor.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Function.class), "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+        }
+        else emitFail(methodVisitor, String.format("Unknown node: %s", node));
+    }
+
+    /**
+     * Локальные аргументы проверяются первыми, затем запомненное значение (если memoSlot не -1),
+     * затем вызывается обработчик, найденный при компиляции.
+     */
+    private void emitCondition(MethodVisitor methodVisitor, String conditionName, int memoSlot) {
+        Label handlerLabel = new Label();
+        Label endLabel = new Label();
+        int slot = slotLayout.getSlot(conditionName);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        pushInt(methodVisitor, slot);
+        methodVisitor.visitLdcInsn(conditionName);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "hasLocalCondition", "(ILjava/lang/String;)Z", false);
+        methodVisitor.visitJumpInsn(IFEQ, handlerLabel);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        pushInt(methodVisitor, slot);
+        methodVisitor.visitLdcInsn(conditionName);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "getLocalCondition", "(ILjava/lang/String;)Ljava/lang/Object;", false);
+        methodVisitor.visitJumpInsn(GOTO, endLabel);
+        methodVisitor.visitLabel(handlerLabel);
+        Function<String, ? extends B> condition = interpreter.getCondition(conditionName);
+        if (Objects.isNull(condition)) emitFail(methodVisitor, String.format("Unknown condition: %s", conditionName));
+        else {
+            if (memoSlot >= 0) emitMemoLoad(methodVisitor, memoSlot, endLabel);
+            emitConstant(methodVisitor, condition, Function.class);
+            methodVisitor.visitLdcInsn(conditionName);
+            methodVisitor.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(Function.class), "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+            if (memoSlot >= 0) emitMemoStore(methodVisitor, memoSlot);
+        }
+        methodVisitor.visitLabel(endLabel);
+    }
+
+    /**
+     * Если значение уже запомнено в ячейке memoSlot, кладет его на стек и переходит на endLabel.
+     */
+    private void emitMemoLoad(MethodVisitor methodVisitor, int memoSlot, Label endLabel) {
+        Label computeLabel = new Label();
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        pushInt(methodVisitor, memoSlot);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "hasMemo", "(I)Z", false);
+        methodVisitor.visitJumpInsn(IFEQ, computeLabel);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        pushInt(methodVisitor, memoSlot);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "getMemo", "(I)Ljava/lang/Object;", false);
+        methodVisitor.visitJumpInsn(GOTO, endLabel);
+        methodVisitor.visitLabel(computeLabel);
+    }
+
+    /**
+     * Запоминает вершину стека в ячейке memoSlot, оставляя ее на стеке.
+     */
+    private void emitMemoStore(MethodVisitor methodVisitor, int memoSlot) {
+        methodVisitor.visitInsn(DUP);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        methodVisitor.visitInsn(SWAP);
+        pushInt(methodVisitor, memoSlot);
+        methodVisitor.visitInsn(SWAP);
+        methodVisitor.visitMethodInsn(INVOKEVIRTUAL, EVALUATION_CONTEXT, "putMemo", "(ILjava/lang/Object;)V", false);
+    }
+
+    /**
+     * Ленивые операторы выполняются деревом объектов {@link Evaluator}: операнды должны оставаться отдельными вызовами,
+     * которые оператор может и не сделать.
+     */
+    private void emitEvaluator(MethodVisitor methodVisitor, Node node) {
+        Evaluator<B> evaluator = budgeted ? interpreter.compileBudgetedTree(node, slotLayout) : interpreter.compileEvaluatorTree(node, slotLayout);
+        emitConstant(methodVisitor, evaluator, Evaluator.class);
+        methodVisitor.visitVarInsn(ALOAD, 1);
+        methodVisitor.visitMethodInsn(INVOKEINTERFACE, EVALUATOR, "evaluate", EVALUATE_DESCRIPTOR, true);
+    }
+
+    private void emitFail(MethodVisitor methodVisitor, String message) {
+        methodVisitor.visitLdcInsn(message);
+        methodVisitor.visitMethodInsn(INVOKESTATIC, BYTECODE_COMPILER, "fail", "(Ljava/lang/String;)Ljava/lang/Object;", false);
+    }
+
+    private void emitConstant(MethodVisitor methodVisitor, Object constant, Class<?> constantType) {
+        Integer index = constantIndexes.get(constant);
+        if (Objects.isNull(index) || !constantTypes.get(index).equals(constantType)) {
+            index = constants.size();
+            constants.add(constant);
+            constantTypes.add(constantType);
+            constantIndexes.put(constant, index);
+        }
+        methodVisitor.visitFieldInsn(GETSTATIC, CLASS_NAME, constantName(index), Type.getDescriptor(constantType));
+    }
+
+    private static String constantName(int index) {
+        return "constant" + index;
+    }
+
+    private static void pushInt(MethodVisitor methodVisitor, int value) {
+        if (value >= -1 && value <= 5) methodVisitor.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) methodVisitor.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) methodVisitor.visitIntInsn(SIPUSH, value);
+        else methodVisitor.visitLdcInsn(value);
+    }
+}
@@ -0,0 +1,63 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Выполняет одно исполняемое дерево для диапазона наборов локальных аргументов и записывает результаты в массив.
+ * Диапазон делится пополам, пока он больше {@link BatchTask#THRESHOLD}, поэтому задачу можно выполнять в {@link java.util.concurrent.ForkJoinPool}.
+ */
+public final class BatchTask<B> extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Размер диапазона, который выполняется в одном потоке без деления.
+     */
+    public static final int THRESHOLD = 256;
+
+    private final Evaluator<B> evaluator;
+
+    private final List<? extends Map<String, B>> localArgumentsList;
+
+    private final B[] results;
+
+    private final int from;
+
+    private final int to;
+
+    public BatchTask(Evaluator<B> evaluator, List<? extends Map<String, B>> localArgumentsList, B[] results, int from, int to) {
+        this.evaluator = evaluator;
+        this.localArgumentsList = localArgumentsList;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Выполняет диапазон в текущем потоке.
+     */
+    public void executeSequentially() throws InterpreterException {
+        for (int i = from; i < to; i++) {
+            results[i] = evaluator.evaluate(new EvaluationContext<>(localArgumentsList.get(i)));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            try {
+                executeSequentially();
+            } catch (InterpreterException e) {
+                throw new UncheckedInterpreterException(e);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new BatchTask<>(evaluator, localArgumentsList, results, from, middle), new BatchTask<>(evaluator, localArgumentsList, results, middle, to));
+    }
+}
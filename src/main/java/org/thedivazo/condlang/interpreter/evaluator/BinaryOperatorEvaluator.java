@@ -0,0 +1,21 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.function.BiFunction;
+
+@RequiredArgsConstructor
+public final class BinaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final BiFunction<B, B, ? extends B> binaryOperator;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return binaryOperator.apply(firstArgument.evaluate(context), secondArgument.evaluate(context));
+    }
+}
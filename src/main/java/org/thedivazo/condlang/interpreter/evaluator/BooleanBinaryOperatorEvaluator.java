@@ -0,0 +1,45 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+
+import java.util.Objects;
+
+/**
+ * Логический оператор над boolean. Если у оператора есть {@link BooleanBinaryOperator#getShortCircuitValue()},
+ * второй операнд не вычисляется, когда первый равен этому значению.
+ */
+public final class BooleanBinaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final BooleanBinaryOperator binaryOperator;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    private final boolean shortCircuit;
+
+    private final boolean shortCircuitValue;
+
+    public BooleanBinaryOperatorEvaluator(BooleanBinaryOperator binaryOperator, Evaluator<B> firstArgument, Evaluator<B> secondArgument) {
+        this.binaryOperator = binaryOperator;
+        this.firstArgument = firstArgument;
+        this.secondArgument = secondArgument;
+        Boolean value = binaryOperator.getShortCircuitValue();
+        this.shortCircuit = !Objects.isNull(value);
+        this.shortCircuitValue = shortCircuit && value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return (B) Boolean.valueOf(evaluateBoolean(context));
+    }
+
+    @Override
+    public boolean evaluateBoolean(EvaluationContext<B> context) throws InterpreterException {
+        boolean first = firstArgument.evaluateBoolean(context);
+        if (shortCircuit && first == shortCircuitValue) return first;
+        return binaryOperator.applyAsBoolean(first, secondArgument.evaluateBoolean(context));
+    }
+}
@@ -0,0 +1,35 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.parser.Node;
+
+/**
+ * Учитывает выполнение узла node в бюджете контекста ({@link EvaluationContext#step(Node)}) и выполняет узел.
+ * @param <B> the type that returns the condition.
+ */
+@RequiredArgsConstructor
+public final class BudgetedEvaluator<B> implements Evaluator<B> {
+
+    private final Node node;
+
+    private final Evaluator<B> evaluator;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        context.step(node);
+        return evaluator.evaluate(context);
+    }
+
+    @Override
+    public double evaluateDouble(EvaluationContext<B> context) throws InterpreterException {
+        context.step(node);
+        return evaluator.evaluateDouble(context);
+    }
+
+    @Override
+    public boolean evaluateBoolean(EvaluationContext<B> context) throws InterpreterException {
+        context.step(node);
+        return evaluator.evaluateBoolean(context);
+    }
+}
@@ -0,0 +1,43 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public final class ConditionEvaluator<B> implements Evaluator<B> {
+
+    private final String conditionName;
+
+    /**
+     * Слот локального аргумента ({@link org.thedivazo.condlang.interpreter.SlotLayout}).
+     */
+    private final int slot;
+
+    /**
+     * Обработчик условия, найденный при компиляции. Если null, условие может быть взято только из локальных аргументов.
+     */
+    private final Function<String, ? extends B> condition;
+
+    /**
+     * Ячейка, в которой запоминается результат обработчика до конца выполнения, или -1, если он вызывается каждый раз.
+     */
+    private final int memoSlot;
+
+    public ConditionEvaluator(String conditionName, int slot, Function<String, ? extends B> condition) {
+        this(conditionName, slot, condition, -1);
+    }
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        if (context.hasLocalCondition(slot, conditionName)) return context.getLocalCondition(slot, conditionName);
+        if (Objects.isNull(condition)) throw new InterpreterException(String.format("Unknown condition: %s", conditionName));
+        if (memoSlot < 0) return condition.apply(conditionName);
+        if (context.hasMemo(memoSlot)) return context.getMemo(memoSlot);
+        B value = condition.apply(conditionName);
+        context.putMemo(memoSlot, value);
+        return value;
+    }
+}
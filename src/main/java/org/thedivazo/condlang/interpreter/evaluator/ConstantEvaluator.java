@@ -0,0 +1,14 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public final class ConstantEvaluator<B> implements Evaluator<B> {
+
+    private final B value;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) {
+        return value;
+    }
+}
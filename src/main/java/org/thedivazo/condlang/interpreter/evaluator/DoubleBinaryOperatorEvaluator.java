@@ -0,0 +1,31 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Бинарный оператор над double. Операнды запрашиваются через {@link Evaluator#evaluateDouble(EvaluationContext)},
+ * а результат упаковывается, только если его запросили через {@link Evaluator#evaluate(EvaluationContext)}.
+ */
+@RequiredArgsConstructor
+public final class DoubleBinaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final DoubleBinaryOperator binaryOperator;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return (B) Double.valueOf(evaluateDouble(context));
+    }
+
+    @Override
+    public double evaluateDouble(EvaluationContext<B> context) throws InterpreterException {
+        return binaryOperator.applyAsDouble(firstArgument.evaluateDouble(context), secondArgument.evaluateDouble(context));
+    }
+}
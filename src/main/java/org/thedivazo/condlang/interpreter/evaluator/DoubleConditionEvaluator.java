@@ -0,0 +1,50 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Условие, обработчик которого возвращает double ({@link ConditionEvaluator}).
+ * Через {@link Evaluator#evaluateDouble(EvaluationContext)} значение не упаковывается, кроме записи в ячейку памяти,
+ * которая происходит не больше одного раза за выполнение.
+ */
+@RequiredArgsConstructor
+public final class DoubleConditionEvaluator<B> implements Evaluator<B> {
+
+    private final String conditionName;
+
+    /**
+     * Слот локального аргумента ({@link org.thedivazo.condlang.interpreter.SlotLayout}).
+     */
+    private final int slot;
+
+    private final ToDoubleFunction<String> condition;
+
+    /**
+     * Ячейка, в которой запоминается результат обработчика до конца выполнения, или -1, если он вызывается каждый раз.
+     */
+    private final int memoSlot;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        if (context.hasLocalCondition(slot, conditionName)) return context.getLocalCondition(slot, conditionName);
+        if (memoSlot >= 0 && context.hasMemo(memoSlot)) return context.getMemo(memoSlot);
+        B value = (B) Double.valueOf(condition.applyAsDouble(conditionName));
+        if (memoSlot >= 0) context.putMemo(memoSlot, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public double evaluateDouble(EvaluationContext<B> context) throws InterpreterException {
+        if (context.hasLocalCondition(slot, conditionName)) return ((Number) context.getLocalCondition(slot, conditionName)).doubleValue();
+        if (memoSlot < 0) return condition.applyAsDouble(conditionName);
+        if (context.hasMemo(memoSlot)) return ((Number) context.getMemo(memoSlot)).doubleValue();
+        double value = condition.applyAsDouble(conditionName);
+        context.putMemo(memoSlot, (B) Double.valueOf(value));
+        return value;
+    }
+}
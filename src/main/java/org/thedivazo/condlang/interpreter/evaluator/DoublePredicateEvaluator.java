@@ -0,0 +1,30 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+
+/**
+ * Сравнение двух double. Результат через {@link Evaluator#evaluate(EvaluationContext)} - это {@link Boolean#TRUE}
+ * или {@link Boolean#FALSE}, поэтому он не создает объектов.
+ */
+@RequiredArgsConstructor
+public final class DoublePredicateEvaluator<B> implements Evaluator<B> {
+
+    private final DoubleBiPredicate predicate;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return (B) Boolean.valueOf(evaluateBoolean(context));
+    }
+
+    @Override
+    public boolean evaluateBoolean(EvaluationContext<B> context) throws InterpreterException {
+        return predicate.test(firstArgument.evaluateDouble(context), secondArgument.evaluateDouble(context));
+    }
+}
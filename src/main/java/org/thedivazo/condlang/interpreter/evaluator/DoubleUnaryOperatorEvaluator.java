@@ -0,0 +1,28 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Унарный оператор над double ({@link DoubleBinaryOperatorEvaluator}).
+ */
+@RequiredArgsConstructor
+public final class DoubleUnaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final DoubleUnaryOperator unaryOperator;
+
+    private final Evaluator<B> argument;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return (B) Double.valueOf(evaluateDouble(context));
+    }
+
+    @Override
+    public double evaluateDouble(EvaluationContext<B> context) throws InterpreterException {
+        return unaryOperator.applyAsDouble(argument.evaluateDouble(context));
+    }
+}
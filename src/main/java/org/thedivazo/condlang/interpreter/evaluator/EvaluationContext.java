@@ -0,0 +1,139 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.Getter;
+import org.thedivazo.condlang.exception.BudgetExceededException;
+import org.thedivazo.condlang.interpreter.ExecutionBudget;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Состояние одного выполнения исполняемого дерева ({@link Evaluator}).
+ * Локальные аргументы передаются либо {@link Map} по именам, либо массивом по слотам ({@link org.thedivazo.condlang.interpreter.SlotLayout}).
+ * @param <B> the type that returns the condition.
+ */
+public class EvaluationContext<B> {
+
+    /**
+     * Локальные аргументы (условия, переменные). Может быть null.
+     */
+    @Getter
+    protected final Map<String, B> localConditions;
+
+    /**
+     * Локальные аргументы по слотам. Может быть null. Значение null в ячейке означает отсутствие аргумента.
+     */
+    @Getter
+    protected final Object[] frame;
+
+    /**
+     * Значения узлов, которые вычисляются не больше одного раза за выполнение ({@link MemoEvaluator}). Может быть null.
+     * Пустая ячейка означает, что значение еще не вычислено, значение null хранится как {@link EvaluationContext#NULL}.
+     * Если ячеек не хватает, массив увеличивается при записи.
+     */
+    protected Object[] memo;
+
+    /**
+     * Бюджет выполнения. Может быть null. Проверяется только исполняемым деревом, скомпилированным с проверками
+     * ({@link org.thedivazo.condlang.interpreter.Interpreter#compileBudgeted(Node)}).
+     */
+    @Getter
+    protected final ExecutionBudget<B> budget;
+
+    private static final Object NULL = new Object();
+
+    public EvaluationContext() {
+        this((Map<String, B>) null);
+    }
+
+    public EvaluationContext(Map<String, B> localConditions) {
+        this(localConditions, 0);
+    }
+
+    public EvaluationContext(Object[] frame) {
+        this(frame, 0);
+    }
+
+    /**
+     * @param memoSize количество ячеек для значений {@link MemoEvaluator}
+     */
+    public EvaluationContext(Map<String, B> localConditions, int memoSize) {
+        this(localConditions, memoSize, null);
+    }
+
+    /**
+     * @param budget бюджет выполнения или null
+     */
+    public EvaluationContext(Map<String, B> localConditions, int memoSize, ExecutionBudget<B> budget) {
+        this.localConditions = localConditions;
+        this.frame = null;
+        this.memo = memoSize == 0 ? null : new Object[memoSize];
+        this.budget = budget;
+    }
+
+    public EvaluationContext(Object[] frame, int memoSize) {
+        this.localConditions = null;
+        this.frame = frame;
+        this.memo = memoSize == 0 ? null : new Object[memoSize];
+        this.budget = null;
+    }
+
+    public boolean hasLocalCondition(String conditionName) {
+        return !Objects.isNull(localConditions) && localConditions.containsKey(conditionName);
+    }
+
+    public B getLocalCondition(String conditionName) {
+        return localConditions.get(conditionName);
+    }
+
+    /**
+     * @param slot слот условия или -1, если слота нет
+     * @param conditionName имя условия, используется, если аргументы переданы через {@link Map}
+     */
+    public boolean hasLocalCondition(int slot, String conditionName) {
+        if (Objects.isNull(frame)) return hasLocalCondition(conditionName);
+        return slot >= 0 && slot < frame.length && !Objects.isNull(frame[slot]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public B getLocalCondition(int slot, String conditionName) {
+        if (Objects.isNull(frame)) return getLocalCondition(conditionName);
+        return (B) frame[slot];
+    }
+
+    public boolean hasMemo(int slot) {
+        return !Objects.isNull(memo) && slot < memo.length && !Objects.isNull(memo[slot]);
+    }
+
+    @SuppressWarnings("unchecked")
+    public B getMemo(int slot) {
+        Object value = memo[slot];
+        return value == NULL ? null : (B) value;
+    }
+
+    /**
+     * Запоминает значение узла до конца выполнения.
+     */
+    public void putMemo(int slot, B value) {
+        if (Objects.isNull(memo)) memo = new Object[slot + 1];
+        else if (slot >= memo.length) memo = Arrays.copyOf(memo, Math.max(slot + 1, memo.length * 2));
+        memo[slot] = Objects.isNull(value) ? NULL : value;
+    }
+
+    /**
+     * Учитывает в бюджете начало выполнения узла node. Без бюджета ничего не делает.
+     */
+    public void step(Node node) throws BudgetExceededException {
+        if (!Objects.isNull(budget)) budget.step(node);
+    }
+
+    /**
+     * Аналогичен {@link EvaluationContext#step(Node)} для узла плоского дерева.
+     */
+    public void step(FlatTree tree, int node) throws BudgetExceededException {
+        if (!Objects.isNull(budget)) budget.step(tree, node);
+    }
+}
@@ -0,0 +1,34 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.parser.Node;
+
+/**
+ * Получает события выполнения каждого узла AST дерева. Используется только исполняемым деревом,
+ * построенным {@link org.thedivazo.condlang.interpreter.Interpreter#compileInstrumented(Node, EvaluationListener)},
+ * обычное выполнение слушателей не вызывает и ничего на них не тратит.
+ * Вызовы enter и exit (или exception) всегда парные и вложены так же, как вложены узлы.
+ * @param <B> the type that returns the condition.
+ */
+public interface EvaluationListener<B> {
+
+    /**
+     * Вызывается перед выполнением узла.
+     * @throws InterpreterException прерывает выполнение до начала узла (например, {@link org.thedivazo.condlang.interpreter.ExecutionBudget}).
+     * Для этого узла exit и exception не вызываются.
+     */
+    default void enter(Node node) throws InterpreterException {
+    }
+
+    /**
+     * Вызывается после успешного выполнения узла.
+     */
+    default void exit(Node node, B value) {
+    }
+
+    /**
+     * Вызывается, если выполнение узла завершилось исключением. Исключение затем выбрасывается дальше.
+     */
+    default void exception(Node node, Throwable exception) {
+    }
+}
@@ -0,0 +1,44 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+
+/**
+ * Узел исполняемого дерева, полученного из AST дерева с помощью {@link org.thedivazo.condlang.interpreter.Interpreter#compile(org.thedivazo.condlang.parser.Node)}.
+ * Каждый узел уже хранит ссылки на свой обработчик и дочерние узлы, поэтому при выполнении не происходит поиска операторов.
+ * @param <B> the type that returns the condition.
+ */
+@FunctionalInterface
+public interface Evaluator<B> {
+
+    /**
+     * @param context контекст выполнения (локальные аргументы)
+     * @return Возвращает результат работы узла.
+     * @throws InterpreterException выбрасывается при ошибке выполнения.
+     */
+    B evaluate(EvaluationContext<B> context) throws InterpreterException;
+
+    /**
+     * Аналогичен {@link Evaluator#evaluate(EvaluationContext)} для числового результата. Узлы над double
+     * (например, {@link DoubleBinaryOperatorEvaluator}) возвращают его без упаковки, остальные распаковывают {@link Number}.
+     */
+    default double evaluateDouble(EvaluationContext<B> context) throws InterpreterException {
+        return ((Number) evaluate(context)).doubleValue();
+    }
+
+    /**
+     * Аналогичен {@link Evaluator#evaluate(EvaluationContext)} для логического результата. Узлы над boolean
+     * (например, {@link DoublePredicateEvaluator}) возвращают его без упаковки, остальные распаковывают {@link Boolean}.
+     */
+    default boolean evaluateBoolean(EvaluationContext<B> context) throws InterpreterException {
+        return (Boolean) evaluate(context);
+    }
+
+    /**
+     * Создает массив узлов. Массив обобщенного типа нельзя создать напрямую, поэтому приведение собрано здесь.
+     * @param size размер массива
+     */
+    @SuppressWarnings("unchecked")
+    static <B> Evaluator<B>[] newArray(int size) {
+        return (Evaluator<B>[]) new Evaluator<?>[size];
+    }
+}
@@ -0,0 +1,160 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+import org.thedivazo.condlang.utils.LazyTernFunction;
+import org.thedivazo.condlang.utils.TernFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Исполняет {@link FlatTree} без построения дерева объектов {@link Evaluator}.
+ * Обработчики найдены при компиляции и лежат в массиве по номерам узлов, вид операции - в массиве opcodes.
+ * @param <B> the type that returns the condition.
+ */
+public final class FlatTreeEvaluator<B> implements Evaluator<B> {
+
+    public static final byte TERNARY = FlatTree.TERNARY;
+    public static final byte BINARY = FlatTree.BINARY;
+    public static final byte UNARY = FlatTree.UNARY;
+    public static final byte CONDITION = FlatTree.CONDITION;
+    public static final byte FUNCTION = FlatTree.FUNCTION;
+    public static final byte METHOD = FlatTree.METHOD;
+    public static final byte CONSTANT = FlatTree.CONSTANT;
+    public static final byte LAZY_TERNARY = 8;
+    public static final byte LAZY_BINARY = 9;
+    /**
+     * Обработчик не найден. Выполнение такого узла выбрасывает {@link InterpreterException}.
+     */
+    public static final byte UNKNOWN = 0;
+
+    private final FlatTree tree;
+
+    private final byte[] opcodes;
+
+    /**
+     * Обработчик узла: оператор, функция, обработчик условия, {@link MethodCallSite} или значение константы.
+     */
+    private final Object[] handlers;
+
+    /**
+     * Слоты условий ({@link org.thedivazo.condlang.interpreter.SlotLayout}), для остальных узлов не используются.
+     */
+    private final int[] slots;
+
+    /**
+     * Ячейки, в которых условия и чистые методы запоминают значения до конца выполнения, или -1
+     * ({@link org.thedivazo.condlang.interpreter.Interpreter#getMemoSlot(org.thedivazo.condlang.parser.Node, org.thedivazo.condlang.interpreter.SlotLayout)}).
+     */
+    private final int[] memoSlots;
+
+    /**
+     * Операнды ленивых операторов. Создаются один раз, чтобы не выделять их при каждом выполнении.
+     */
+    private final Evaluator<B>[] lazyOperands;
+
+    /**
+     * Учитывать ли выполнение узлов в бюджете контекста ({@link EvaluationContext#step(FlatTree, int)}).
+     */
+    private final boolean budgeted;
+
+    public FlatTreeEvaluator(FlatTree tree, byte[] opcodes, Object[] handlers, int[] slots, int[] memoSlots) {
+        this(tree, opcodes, handlers, slots, memoSlots, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public FlatTreeEvaluator(FlatTree tree, byte[] opcodes, Object[] handlers, int[] slots, int[] memoSlots, boolean budgeted) {
+        this.tree = tree;
+        this.budgeted = budgeted;
+        this.opcodes = opcodes;
+        this.handlers = handlers;
+        this.slots = slots;
+        this.memoSlots = memoSlots;
+        this.lazyOperands = Evaluator.newArray(tree.size());
+        for (int node = 0; node < opcodes.length; node++) {
+            if (opcodes[node] != LAZY_TERNARY && opcodes[node] != LAZY_BINARY) continue;
+            for (int i = 0; i < tree.getChildCount(node); i++) {
+                int child = tree.getChild(node, i);
+                lazyOperands[child] = context -> evaluate(child, context);
+            }
+        }
+    }
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return evaluate(0, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private B evaluate(int node, EvaluationContext<B> context) throws InterpreterException {
+        if (budgeted) context.step(tree, node);
+        switch (opcodes[node]) {
+            case CONSTANT:
+                return (B) handlers[node];
+            case CONDITION: {
+                String conditionName = tree.getName(node);
+                if (context.hasLocalCondition(slots[node], conditionName)) return context.getLocalCondition(slots[node], conditionName);
+                Function<String, ? extends B> condition = (Function<String, ? extends B>) handlers[node];
+                if (Objects.isNull(condition)) throw new InterpreterException(String.format("Unknown condition: %s", conditionName));
+                int memoSlot = memoSlots[node];
+                if (memoSlot < 0) return condition.apply(conditionName);
+                if (context.hasMemo(memoSlot)) return context.getMemo(memoSlot);
+                B value = condition.apply(conditionName);
+                context.putMemo(memoSlot, value);
+                return value;
+            }
+            case BINARY:
+                return ((BiFunction<B, B, ? extends B>) handlers[node]).apply(evaluate(tree.getChild(node, 0), context), evaluate(tree.getChild(node, 1), context));
+            case UNARY:
+                return ((Function<B, ? extends B>) handlers[node]).apply(evaluate(tree.getChild(node, 0), context));
+            case TERNARY:
+                return ((TernFunction<Boolean, B, B, B>) handlers[node]).apply((Boolean) evaluate(tree.getChild(node, 0), context), evaluate(tree.getChild(node, 1), context), evaluate(tree.getChild(node, 2), context));
+            case FUNCTION: {
+                int count = tree.getChildCount(node);
+                List<B> argumentValues = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    argumentValues.add(evaluate(tree.getChild(node, i), context));
+                }
+                return ((Function<List<B>, ? extends B>) handlers[node]).apply(argumentValues);
+            }
+            case METHOD: {
+                int memoSlot = memoSlots[node];
+                if (memoSlot >= 0 && context.hasMemo(memoSlot)) return context.getMemo(memoSlot);
+                int contextNode = tree.getChild(node, 0);
+                B contextValue = evaluate(contextNode, context);
+                Object[] argumentValues = new Object[tree.getChildCount(node) - 1];
+                for (int i = 0; i < argumentValues.length; i++) {
+                    argumentValues[i] = evaluate(tree.getChild(node, i + 1), context);
+                }
+                B value = (B) MethodEvaluator.executeMethod((MethodCallSite) handlers[node], contextValue, argumentValues, tree.getName(contextNode));
+                if (memoSlot >= 0) context.putMemo(memoSlot, value);
+                return value;
+            }
+            case LAZY_BINARY:
+                try {
+                    return ((LazyBiFunction<B, B, ? extends B>) handlers[node]).apply(
+                            new LazyOperand<>(lazyOperands[tree.getChild(node, 0)], context),
+                            new LazyOperand<>(lazyOperands[tree.getChild(node, 1)], context));
+                } catch (UncheckedInterpreterException e) {
+                    throw e.getCause();
+                }
+            case LAZY_TERNARY:
+                try {
+                    return ((LazyTernFunction<Boolean, B, B, B>) handlers[node]).apply((Boolean) evaluate(tree.getChild(node, 0), context),
+                            new LazyOperand<>(lazyOperands[tree.getChild(node, 1)], context),
+                            new LazyOperand<>(lazyOperands[tree.getChild(node, 2)], context));
+                } catch (UncheckedInterpreterException e) {
+                    throw e.getCause();
+                }
+            default:
+                throw new InterpreterException(String.format("Unknown node: %s", tree.toNode(node)));
+        }
+    }
+}
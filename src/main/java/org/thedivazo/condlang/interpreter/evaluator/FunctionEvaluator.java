@@ -0,0 +1,25 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public final class FunctionEvaluator<B> implements Evaluator<B> {
+
+    private final Function<List<B>, ? extends B> functionOperator;
+
+    private final Evaluator<B>[] arguments;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        List<B> argumentValues = new ArrayList<>(arguments.length);
+        for (Evaluator<B> argument : arguments) {
+            argumentValues.add(argument.evaluate(context));
+        }
+        return functionOperator.apply(argumentValues);
+    }
+}
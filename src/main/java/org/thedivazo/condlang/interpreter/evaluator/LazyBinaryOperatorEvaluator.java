@@ -0,0 +1,25 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+
+@RequiredArgsConstructor
+public final class LazyBinaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final LazyBiFunction<B, B, ? extends B> binaryOperator;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        try {
+            return binaryOperator.apply(new LazyOperand<>(firstArgument, context), new LazyOperand<>(secondArgument, context));
+        } catch (UncheckedInterpreterException e) {
+            throw e.getCause();
+        }
+    }
+}
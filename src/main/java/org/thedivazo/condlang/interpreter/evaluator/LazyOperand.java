@@ -0,0 +1,39 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+
+import java.util.function.Supplier;
+
+/**
+ * Операнд ленивого оператора. Вычисляется при первом вызове {@link LazyOperand#get()}, повторные вызовы возвращают тот же результат.
+ * Ошибка выполнения передается через {@link UncheckedInterpreterException}.
+ */
+public final class LazyOperand<B> implements Supplier<B> {
+
+    private final Evaluator<B> evaluator;
+
+    private final EvaluationContext<B> context;
+
+    private boolean evaluated;
+
+    private B value;
+
+    public LazyOperand(Evaluator<B> evaluator, EvaluationContext<B> context) {
+        this.evaluator = evaluator;
+        this.context = context;
+    }
+
+    @Override
+    public B get() {
+        if (!evaluated) {
+            try {
+                value = evaluator.evaluate(context);
+            } catch (InterpreterException e) {
+                throw new UncheckedInterpreterException(e);
+            }
+            evaluated = true;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,46 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.utils.LazyTernFunction;
+
+/**
+ * Условие над boolean ({@link DoublePredicateEvaluator}, {@link BooleanBinaryOperatorEvaluator}) вычисляется
+ * через {@link Evaluator#evaluateBoolean(EvaluationContext)} без упаковки. Остальные условия передаются в обработчик
+ * как есть, в том числе null.
+ * @param <B> the type that returns the condition.
+ */
+public final class LazyTernaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final LazyTernFunction<Boolean, B, B, B> ternaryOperator;
+
+    private final Evaluator<B> firstArgument;
+
+    private final Evaluator<B> secondArgument;
+
+    private final Evaluator<B> thirdArgument;
+
+    private final boolean primitiveCondition;
+
+    public LazyTernaryOperatorEvaluator(LazyTernFunction<Boolean, B, B, B> ternaryOperator, Evaluator<B> firstArgument, Evaluator<B> secondArgument, Evaluator<B> thirdArgument) {
+        this.ternaryOperator = ternaryOperator;
+        this.firstArgument = firstArgument;
+        this.secondArgument = secondArgument;
+        this.thirdArgument = thirdArgument;
+        this.primitiveCondition = firstArgument instanceof DoublePredicateEvaluator || firstArgument instanceof BooleanBinaryOperatorEvaluator;
+    }
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        try {
+            return ternaryOperator.apply(condition(context), new LazyOperand<>(secondArgument, context), new LazyOperand<>(thirdArgument, context));
+        } catch (UncheckedInterpreterException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Boolean condition(EvaluationContext<B> context) throws InterpreterException {
+        if (primitiveCondition) return firstArgument.evaluateBoolean(context);
+        return (Boolean) firstArgument.evaluate(context);
+    }
+}
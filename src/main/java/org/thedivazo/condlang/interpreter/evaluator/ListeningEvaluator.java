@@ -0,0 +1,33 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.parser.Node;
+
+/**
+ * Сообщает слушателю о выполнении узла node ({@link EvaluationListener}).
+ * @param <B> the type that returns the condition.
+ */
+@RequiredArgsConstructor
+public final class ListeningEvaluator<B> implements Evaluator<B> {
+
+    private final Node node;
+
+    private final Evaluator<B> evaluator;
+
+    private final EvaluationListener<B> listener;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        listener.enter(node);
+        B value;
+        try {
+            value = evaluator.evaluate(context);
+        } catch (InterpreterException | RuntimeException | Error e) {
+            listener.exception(node, e);
+            throw e;
+        }
+        listener.exit(node, value);
+        return value;
+    }
+}
@@ -0,0 +1,25 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+/**
+ * Узел, значение которого вычисляется не больше одного раза за выполнение: результат запоминается в ячейке slot
+ * контекста ({@link EvaluationContext#putMemo(int, Object)}). Ошибка не запоминается и повторяется при следующем обращении.
+ * @param <B> the type that returns the condition.
+ */
+@RequiredArgsConstructor
+public final class MemoEvaluator<B> implements Evaluator<B> {
+
+    private final int slot;
+
+    private final Evaluator<B> evaluator;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        if (context.hasMemo(slot)) return context.getMemo(slot);
+        B value = evaluator.evaluate(context);
+        context.putMemo(slot, value);
+        return value;
+    }
+}
@@ -0,0 +1,60 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
+import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
+
+@RequiredArgsConstructor
+public final class MethodEvaluator<B> implements Evaluator<B> {
+
+    private final String methodName;
+
+    private final String contextName;
+
+    private final Evaluator<B> methodContext;
+
+    private final Evaluator<B>[] arguments;
+
+    private final MethodCallSite callSite;
+
+    public MethodEvaluator(String methodName, String contextName, Evaluator<B> methodContext, Evaluator<B>[] arguments) {
+        this(methodName, contextName, methodContext, arguments, new MethodCallSite(methodName));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        B contextValue = methodContext.evaluate(context);
+        Object[] argumentValues = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            argumentValues[i] = arguments[i].evaluate(context);
+        }
+        return (B) executeMethod(callSite, contextValue, argumentValues, contextName);
+    }
+
+    /**
+     * @param contextValue объект, у которого вызывается метод
+     * @param argumentValues аргументы метода
+     * @param methodName название метода
+     * @param contextName название условия, которое вернуло объект. Используется в сообщении об ошибке.
+     * @return Возвращает результат работы метода.
+     * @throws InterpreterException выбрасывается, если объект не является {@link WrapperObject}.
+     */
+    public static Object executeMethod(Object contextValue, Object[] argumentValues, String methodName, String contextName) throws InterpreterException {
+        if (contextValue instanceof WrapperObject<?> wrapperObject) {
+            return wrapperObject.executeMethod(methodName, argumentValues);
+        }
+        else throw new InterpreterException(String.format("Condition \"%s\" not be Object.", contextName));
+    }
+
+    /**
+     * Аналогичен {@link MethodEvaluator#executeMethod(Object, Object[], String, String)}, но запоминает выбранную перегрузку в callSite.
+     */
+    public static Object executeMethod(MethodCallSite callSite, Object contextValue, Object[] argumentValues, String contextName) throws InterpreterException {
+        if (contextValue instanceof WrapperObject<?> wrapperObject) {
+            return callSite.execute(wrapperObject, argumentValues);
+        }
+        else throw new InterpreterException(String.format("Condition \"%s\" not be Object.", contextName));
+    }
+}
@@ -0,0 +1,19 @@
+package org.thedivazo.condlang.interpreter.evaluator;
+
+import lombok.RequiredArgsConstructor;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public final class UnaryOperatorEvaluator<B> implements Evaluator<B> {
+
+    private final Function<B, ? extends B> unaryOperator;
+
+    private final Evaluator<B> argument;
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return unaryOperator.apply(argument.evaluate(context));
+    }
+}
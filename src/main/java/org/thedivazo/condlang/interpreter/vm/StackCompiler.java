@@ -0,0 +1,226 @@
+package org.thedivazo.condlang.interpreter.vm;
+
+import org.thedivazo.condlang.interpreter.Interpreter;
+import org.thedivazo.condlang.interpreter.SlotLayout;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
+import org.thedivazo.condlang.parser.AST.*;
+import org.thedivazo.condlang.parser.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Компилирует AST дерево в {@link StackProgram}. Дерево обходится без рекурсии (с явным стеком задач),
+ * поэтому компилируются и выражения, глубина которых превышает стек вызовов Java.
+ * Обработчики ищутся в {@link Interpreter} один раз и сохраняются в таблице программы.
+ * @param <B> the type that returns the condition.
+ */
+public final class StackCompiler<B> {
+
+    private final Interpreter<?, ?, B> interpreter;
+
+    private final SlotLayout slotLayout;
+
+    private final boolean budgeted;
+
+    private int[] code = new int[32];
+
+    private int size;
+
+    private final List<Object> pool = new ArrayList<>();
+
+    private int depth;
+
+    private int maxDepth;
+
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+    private StackCompiler(Interpreter<?, ?, B> interpreter, SlotLayout slotLayout, boolean budgeted) {
+        this.interpreter = interpreter;
+        this.slotLayout = slotLayout;
+        this.budgeted = budgeted;
+    }
+
+    public static <B> StackProgram<B> compile(Interpreter<?, ?, B> interpreter, Node mainNode) {
+        return compile(interpreter, mainNode, SlotLayout.of(mainNode));
+    }
+
+    /**
+     * @param interpreter интерпретатор, обработчики которого будут использованы
+     * @param mainNode корневой узел AST дерева
+     * @param slotLayout раскладка слотов выражения
+     * @return Возвращает программу стековой машины.
+     */
+    public static <B> StackProgram<B> compile(Interpreter<?, ?, B> interpreter, Node mainNode, SlotLayout slotLayout) {
+        return compile(interpreter, mainNode, slotLayout, false);
+    }
+
+    /**
+     * @param budgeted добавлять ли перед кодом каждого узла инструкцию STEP, которая учитывает узел в бюджете контекста
+     */
+    public static <B> StackProgram<B> compile(Interpreter<?, ?, B> interpreter, Node mainNode, SlotLayout slotLayout, boolean budgeted) {
+        StackCompiler<B> compiler = new StackCompiler<>(interpreter, slotLayout, budgeted);
+        compiler.tasks.push(() -> compiler.visit(mainNode));
+        while (!compiler.tasks.isEmpty()) {
+            compiler.tasks.pop().run();
+        }
+        compiler.emit(StackProgram.RETURN);
+        return new StackProgram<>(Arrays.copyOf(compiler.code, compiler.size), compiler.pool.toArray(), Math.max(compiler.maxDepth, 1));
+    }
+
+    /**
+     * Добавляет задачи так, чтобы они выполнились в переданном порядке.
+     */
+    private void schedule(Runnable... inOrder) {
+        for (int i = inOrder.length - 1; i >= 0; i--) {
+            tasks.push(inOrder[i]);
+        }
+    }
+
+    private Runnable visitTask(Node node) {
+        return () -> visit(node);
+    }
+
+    private void visit(Node node) {
+        if (budgeted) emit(StackProgram.STEP, constant(node));
+        String name = node.getNodeName();
+        if (node instanceof TernaryOperatorNode) {
+            List<Node> childrenNodes = node.getChildrenNodes();
+            Object lazyTernaryOperator = interpreter.getLazyTernaryOperator(name);
+            if (!Objects.isNull(lazyTernaryOperator)) {
+                scheduleLazy(StackProgram.LAZY_TERNARY, lazyTernaryOperator, childrenNodes.subList(0, 1), childrenNodes.get(1), childrenNodes.get(2));
+                return;
+            }
+            Object ternaryOperator = interpreter.getTernaryOperator(name);
+            if (Objects.isNull(ternaryOperator)) fail(node);
+            else scheduleCall(childrenNodes, () -> emitCall(StackProgram.TERNARY, ternaryOperator, -2));
+        }
+        else if (node instanceof BinaryOperatorNode) {
+            List<Node> childrenNodes = node.getChildrenNodes();
+            Object lazyBinaryOperator = interpreter.getLazyBinaryOperator(name);
+            if (!Objects.isNull(lazyBinaryOperator)) {
+                scheduleLazy(StackProgram.LAZY_BINARY, lazyBinaryOperator, List.of(), childrenNodes.get(0), childrenNodes.get(1));
+                return;
+            }
+            Object binaryOperator = interpreter.getBinaryOperator(name);
+            if (Objects.isNull(binaryOperator)) fail(node);
+            else scheduleCall(childrenNodes, () -> emitCall(StackProgram.BINARY, binaryOperator, -1));
+        }
+        else if (node instanceof UnaryOperatorNode) {
+            Object unaryOperator = interpreter.getUnaryOperator(name);
+            if (Objects.isNull(unaryOperator)) fail(node);
+            else scheduleCall(node.getChildrenNodes(), () -> emitCall(StackProgram.UNARY, unaryOperator, 0));
+        }
+        else if (node instanceof ConstantNode constantNode) {
+            emit(StackProgram.CONSTANT, constant(constantNode.getValue()));
+            push(1);
+        }
+        else if (node instanceof ConditionNode) {
+            int index = constant(name);
+            constant(interpreter.getCondition(name));
+            emit(StackProgram.CONDITION, index, slotLayout.getSlot(name), interpreter.getMemoSlot(node, slotLayout));
+            push(1);
+        }
+        else if (node instanceof MethodOperatorNode methodOperatorNode) {
+            List<Node> operands = new ArrayList<>(methodOperatorNode.getChildrenNodes().size() + 1);
+            operands.add(methodOperatorNode.getContext());
+            operands.addAll(methodOperatorNode.getChildrenNodes());
+            int count = operands.size() - 1;
+            int memoSlot = interpreter.getMemoSlot(node, slotLayout);
+            int header = size;
+            if (memoSlot >= 0) emit(StackProgram.MEMO_LOAD, memoSlot, 0);
+            scheduleCall(operands, () -> {
+                int index = constant(new MethodCallSite(name));
+                constant(methodOperatorNode.getContext().getNodeName());
+                emit(StackProgram.METHOD, index, count);
+                push(-count);
+                if (memoSlot >= 0) {
+                    emit(StackProgram.MEMO_STORE, memoSlot);
+                    code[header + 2] = size;
+                }
+            });
+        }
+        else if (node instanceof FunctionOperatorNode) {
+            Object functionOperator = interpreter.getFunctionOperator(name);
+            List<Node> childrenNodes = node.getChildrenNodes();
+            if (Objects.isNull(functionOperator)) fail(node);
+            else scheduleCall(childrenNodes, () -> {
+                emit(StackProgram.FUNCTION, constant(functionOperator), childrenNodes.size());
+                push(1 - childrenNodes.size());
+            });
+        }
+        else fail(node);
+    }
+
+    private void scheduleCall(List<Node> operands, Runnable call) {
+        Runnable[] inOrder = new Runnable[operands.size() + 1];
+        for (int i = 0; i < operands.size(); i++) {
+            inOrder[i] = visitTask(operands.get(i));
+        }
+        inOrder[operands.size()] = call;
+        schedule(inOrder);
+    }
+
+    private void emitCall(int opcode, Object handler, int stackChange) {
+        emit(opcode, constant(handler));
+        push(stackChange);
+    }
+
+    /**
+     * Ленивый оператор: сначала вычисляются обычные операнды (условие тернарного оператора), затем идет инструкция оператора
+     * и сразу за ней участки кода ленивых операндов, каждый со своим стеком и инструкцией RETURN в конце.
+     */
+    private void scheduleLazy(int opcode, Object handler, List<Node> eagerOperands, Node firstOperand, Node secondOperand) {
+        int[] header = new int[1];
+        int[] savedDepth = new int[1];
+        List<Runnable> inOrder = new ArrayList<>();
+        for (Node eagerOperand : eagerOperands) {
+            inOrder.add(visitTask(eagerOperand));
+        }
+        inOrder.add(() -> {
+            header[0] = size;
+            emit(opcode, constant(handler), 0, 0);
+            savedDepth[0] = depth - eagerOperands.size();
+            depth = 0;
+        });
+        inOrder.add(visitTask(firstOperand));
+        inOrder.add(() -> {
+            emit(StackProgram.RETURN);
+            code[header[0] + 2] = size;
+            depth = 0;
+        });
+        inOrder.add(visitTask(secondOperand));
+        inOrder.add(() -> {
+            emit(StackProgram.RETURN);
+            code[header[0] + 3] = size;
+            depth = savedDepth[0];
+            push(1);
+        });
+        schedule(inOrder.toArray(new Runnable[0]));
+    }
+
+    private void fail(Node node) {
+        emit(StackProgram.FAIL, constant(String.format("Unknown node: %s", node)));
+        push(1);
+    }
+
+    private int constant(Object value) {
+        pool.add(value);
+        return pool.size() - 1;
+    }
+
+    private void push(int stackChange) {
+        depth += stackChange;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void emit(int... instruction) {
+        if (size + instruction.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+        System.arraycopy(instruction, 0, code, size, instruction.length);
+        size += instruction.length;
+    }
+}
@@ -0,0 +1,201 @@
+package org.thedivazo.condlang.interpreter.vm;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.exception.UncheckedInterpreterException;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.interpreter.evaluator.LazyOperand;
+import org.thedivazo.condlang.interpreter.evaluator.MethodEvaluator;
+import org.thedivazo.condlang.interpreter.wrapper.MethodCallSite;
+import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.utils.LazyBiFunction;
+import org.thedivazo.condlang.utils.LazyTernFunction;
+import org.thedivazo.condlang.utils.TernFunction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Выражение, откомпилированное в линейную последовательность инструкций стековой машины ({@link StackCompiler}).
+ * Инструкции выполняются в цикле над стеком операндов, поэтому глубина вложенности выражения не ограничена глубиной
+ * стека вызовов Java. Рекурсия остается только для операндов ленивых операторов.
+ * <pre>
+ * CONSTANT  pool                   - положить константу pool[pool]
+ * CONDITION pool slot memo         - положить локальный аргумент slot или результат обработчика pool[pool + 1] для имени pool[pool].
+ *                                    Если memo не -1, результат обработчика запоминается в ячейке memo контекста
+ * UNARY, BINARY, TERNARY pool      - снять 1, 2 или 3 операнда и положить результат оператора pool[pool]
+ * FUNCTION pool count              - снять count аргументов и положить результат функции
+ * METHOD pool count                - снять count аргументов и контекст, вызвать метод через pool[pool] ({@link MethodCallSite})
+ * LAZY_BINARY pool first second    - операнды - это участки кода до first и от first до second, они выполняются по требованию.
+ *                                    После вызова оператора выполнение переходит на second
+ * LAZY_TERNARY pool first second   - как LAZY_BINARY, но условие уже лежит на стеке
+ * MEMO_LOAD memo end               - если в ячейке memo контекста есть значение, положить его и перейти на end
+ * MEMO_STORE memo                  - запомнить вершину стека в ячейке memo контекста
+ * FAIL pool                        - выбросить {@link InterpreterException} с сообщением pool[pool]
+ * STEP pool                        - учесть узел pool[pool] в бюджете контекста ({@link EvaluationContext#step(Node)}).
+ *                                    Есть только в программах, скомпилированных с бюджетом
+ * RETURN                           - вернуть вершину стека
+ * </pre>
+ * @param <B> the type that returns the condition.
+ */
+public final class StackProgram<B> implements Evaluator<B> {
+
+    public static final int CONSTANT = 1;
+    public static final int CONDITION = 2;
+    public static final int UNARY = 3;
+    public static final int BINARY = 4;
+    public static final int TERNARY = 5;
+    public static final int FUNCTION = 6;
+    public static final int METHOD = 7;
+    public static final int LAZY_BINARY = 8;
+    public static final int LAZY_TERNARY = 9;
+    public static final int FAIL = 10;
+    public static final int RETURN = 11;
+    public static final int MEMO_LOAD = 12;
+    public static final int MEMO_STORE = 13;
+    public static final int STEP = 14;
+
+    private final int[] code;
+
+    private final Object[] pool;
+
+    /**
+     * Максимальная глубина стека операндов. Каждый участок кода (все выражение или операнд ленивого оператора)
+     * использует свой стек этого размера.
+     */
+    private final int maxStack;
+
+    StackProgram(int[] code, Object[] pool, int maxStack) {
+        this.code = code;
+        this.pool = pool;
+        this.maxStack = maxStack;
+    }
+
+    @Override
+    public B evaluate(EvaluationContext<B> context) throws InterpreterException {
+        return run(0, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private B run(int start, EvaluationContext<B> context) throws InterpreterException {
+        final int[] code = this.code;
+        final Object[] pool = this.pool;
+        Object[] stack = new Object[maxStack];
+        int top = 0;
+        int pc = start;
+        while (true) {
+            switch (code[pc]) {
+                case CONSTANT -> {
+                    stack[top++] = pool[code[pc + 1]];
+                    pc += 2;
+                }
+                case CONDITION -> {
+                    String conditionName = (String) pool[code[pc + 1]];
+                    int slot = code[pc + 2];
+                    int memoSlot = code[pc + 3];
+                    if (context.hasLocalCondition(slot, conditionName)) stack[top++] = context.getLocalCondition(slot, conditionName);
+                    else if (memoSlot >= 0 && context.hasMemo(memoSlot)) stack[top++] = context.getMemo(memoSlot);
+                    else {
+                        Function<String, ? extends B> condition = (Function<String, ? extends B>) pool[code[pc + 1] + 1];
+                        if (Objects.isNull(condition)) throw new InterpreterException(String.format("Unknown condition: %s", conditionName));
+                        B value = condition.apply(conditionName);
+                        if (memoSlot >= 0) context.putMemo(memoSlot, value);
+                        stack[top++] = value;
+                    }
+                    pc += 4;
+                }
+                case UNARY -> {
+                    stack[top - 1] = ((Function<B, ? extends B>) pool[code[pc + 1]]).apply((B) stack[top - 1]);
+                    pc += 2;
+                }
+                case BINARY -> {
+                    top--;
+                    stack[top - 1] = ((BiFunction<B, B, ? extends B>) pool[code[pc + 1]]).apply((B) stack[top - 1], (B) stack[top]);
+                    stack[top] = null;
+                    pc += 2;
+                }
+                case TERNARY -> {
+                    top -= 2;
+                    stack[top - 1] = ((TernFunction<Boolean, B, B, B>) pool[code[pc + 1]]).apply((Boolean) stack[top - 1], (B) stack[top], (B) stack[top + 1]);
+                    stack[top] = null;
+                    stack[top + 1] = null;
+                    pc += 2;
+                }
+                case FUNCTION -> {
+                    int count = code[pc + 2];
+                    top -= count;
+                    List<B> argumentValues = (List<B>) Arrays.asList(Arrays.copyOfRange(stack, top, top + count));
+                    Arrays.fill(stack, top, top + count, null);
+                    stack[top++] = ((Function<List<B>, ? extends B>) pool[code[pc + 1]]).apply(argumentValues);
+                    pc += 3;
+                }
+                case METHOD -> {
+                    int count = code[pc + 2];
+                    top -= count;
+                    Object[] argumentValues = Arrays.copyOfRange(stack, top, top + count);
+                    Arrays.fill(stack, top, top + count, null);
+                    stack[top - 1] = MethodEvaluator.executeMethod((MethodCallSite) pool[code[pc + 1]], stack[top - 1], argumentValues, (String) pool[code[pc + 1] + 1]);
+                    pc += 3;
+                }
+                case LAZY_BINARY -> {
+                    LazyOperand<B> firstOperand = new LazyOperand<>(segment(pc + 4), context);
+                    LazyOperand<B> secondOperand = new LazyOperand<>(segment(code[pc + 2]), context);
+                    try {
+                        stack[top++] = ((LazyBiFunction<B, B, ? extends B>) pool[code[pc + 1]]).apply(firstOperand, secondOperand);
+                    } catch (UncheckedInterpreterException e) {
+                        throw e.getCause();
+                    }
+                    pc = code[pc + 3];
+                }
+                case LAZY_TERNARY -> {
+                    LazyOperand<B> firstOperand = new LazyOperand<>(segment(pc + 4), context);
+                    LazyOperand<B> secondOperand = new LazyOperand<>(segment(code[pc + 2]), context);
+                    try {
+                        stack[top - 1] = ((LazyTernFunction<Boolean, B, B, B>) pool[code[pc + 1]]).apply((Boolean) stack[top - 1], firstOperand, secondOperand);
+                    } catch (UncheckedInterpreterException e) {
+                        throw e.getCause();
+                    }
+                    pc = code[pc + 3];
+                }
+                case MEMO_LOAD -> {
+                    if (context.hasMemo(code[pc + 1])) {
+                        stack[top++] = context.getMemo(code[pc + 1]);
+                        pc = code[pc + 2];
+                    }
+                    else pc += 3;
+                }
+                case MEMO_STORE -> {
+                    context.putMemo(code[pc + 1], (B) stack[top - 1]);
+                    pc += 2;
+                }
+                case STEP -> {
+                    context.step((Node) pool[code[pc + 1]]);
+                    pc += 2;
+                }
+                case FAIL -> throw new InterpreterException((String) pool[code[pc + 1]]);
+                case RETURN -> {
+                    return (B) stack[top - 1];
+                }
+                default -> throw new IllegalStateException("Unknown instruction: " + code[pc]);
+            }
+        }
+    }
+
+    private Evaluator<B> segment(int start) {
+        return context -> run(start, context);
+    }
+
+    /**
+     * @return Возвращает количество int ячеек, занятых инструкциями.
+     */
+    public int getCodeLength() {
+        return code.length;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+}
@@ -6,10 +6,7 @@ import lombok.RequiredArgsConstructor;
 import org.thedivazo.condlang.exception.InterpreterException;
 
 import java.lang.constant.ConstantDesc;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public abstract class AbstractWrapperObject<T> implements WrapperObject<T> {
@@ -21,6 +18,11 @@ public abstract class AbstractWrapperObject<T> implements WrapperObject<T> {
 
     protected final Set<WrapperMethod<T, ?>> wrapperMethodSet = new HashSet<>();
 
+    /**
+     * Методы из {@link AbstractWrapperObject#wrapperMethodSet}, сгруппированные по названию. Строится при первом вызове метода.
+     */
+    private Map<String, List<WrapperMethod<T, ?>>> wrapperMethodIndex;
+
     protected AbstractWrapperObject(T object, Class<? extends T> classObject) {
         this.object = object;
         this.classObject = classObject;
@@ -43,11 +45,19 @@ public abstract class AbstractWrapperObject<T> implements WrapperObject<T> {
             if(argument instanceof WrapperObject<?> wrapperObject) return wrapperObject.getObject();
             else return argument;
         }).toArray();
-        Optional<WrapperMethod<T, ?>> wrapperMethod = wrapperMethodSet.stream().filter(
-                tWrapperMethod -> tWrapperMethod.equals(nameMethod, Arrays.stream(methodArgumentsUnwrapped).map(Object::getClass).toList().toArray(new Class[0])))
-                .findFirst();
-        if(wrapperMethod.isEmpty()) return null;
-        else return wrapperMethod.get().execute(this, methodArgumentsUnwrapped);
+        Class<?>[] methodArgumentsType = Arrays.stream(methodArgumentsUnwrapped).map(argument -> Objects.isNull(argument) ? null : argument.getClass()).toArray(Class<?>[]::new);
+        WrapperMethod<T, ?> wrapperMethod = OverloadResolver.resolve(getWrapperMethodIndex().getOrDefault(nameMethod, List.of()), methodArgumentsType);
+        if(Objects.isNull(wrapperMethod)) return null;
+        else return wrapperMethod.execute(this, methodArgumentsUnwrapped);
+    }
+
+    private Map<String, List<WrapperMethod<T, ?>>> getWrapperMethodIndex() {
+        Map<String, List<WrapperMethod<T, ?>>> wrapperMethodIndex = this.wrapperMethodIndex;
+        if (Objects.isNull(wrapperMethodIndex)) {
+            wrapperMethodIndex = wrapperMethodSet.stream().collect(Collectors.groupingBy(WrapperMethod::getMethodName));
+            this.wrapperMethodIndex = wrapperMethodIndex;
+        }
+        return wrapperMethodIndex;
     }
 
     @Override
@@ -0,0 +1,69 @@
+package org.thedivazo.condlang.interpreter.wrapper;
+
+import lombok.Getter;
+
+import java.lang.constant.ConstantDesc;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Обертка объекта, которая не хранит собственный набор методов, а использует общий для класса {@link WrapperClass}.
+ * Результаты методов, не являющиеся экземплярами primitiveType, также оборачиваются.
+ */
+public class CachedWrapperObject<T> implements WrapperObject<T> {
+
+    @Getter
+    protected final T object;
+
+    @Getter
+    protected final Class<? extends T> classObject;
+
+    protected final Class<?> primitiveType;
+
+    protected final WrapperClass wrapperClass;
+
+    public CachedWrapperObject(T object, Class<? extends T> classObject, Class<?> primitiveType) {
+        this.object = object;
+        this.classObject = classObject;
+        this.primitiveType = primitiveType;
+        this.wrapperClass = WrapperClass.of(classObject);
+    }
+
+    @Override
+    public Set<String> getMethodsName() {
+        return wrapperClass.getMethodsName();
+    }
+
+    @Override
+    public boolean hasMethod(String nameMethod, Class<?>... methodArgumentsType) {
+        return !Objects.isNull(wrapperClass.findMethod(nameMethod, methodArgumentsType));
+    }
+
+    @Override
+    public Object executeMethod(String nameMethod, Object... methodArguments) {
+        Object[] methodArgumentsUnwrapped = new Object[methodArguments.length];
+        Class<?>[] methodArgumentsType = new Class<?>[methodArguments.length];
+        for (int i = 0; i < methodArguments.length; i++) {
+            Object argument = methodArguments[i];
+            methodArgumentsUnwrapped[i] = argument instanceof WrapperObject<?> wrapperObject ? wrapperObject.getObject() : argument;
+            methodArgumentsType[i] = Objects.isNull(methodArgumentsUnwrapped[i]) ? null : methodArgumentsUnwrapped[i].getClass();
+        }
+        MethodHandleWrapperMethod<T> wrapperMethod = wrapperClass.findMethod(nameMethod, methodArgumentsType);
+        if (Objects.isNull(wrapperMethod)) return null;
+        return wrap(wrapperMethod.invoke(object, methodArgumentsUnwrapped), primitiveType);
+    }
+
+    /**
+     * @return Возвращает значение как есть, если оно является экземпляром primitiveType, иначе оборачивает его.
+     */
+    public static Object wrap(Object value, Class<?> primitiveType) {
+        if (Objects.isNull(value) || primitiveType.isInstance(value)) return value;
+        return new CachedWrapperObject<>(value, value.getClass(), primitiveType);
+    }
+
+    @Override
+    public Optional<? extends ConstantDesc> describeConstable() {
+        return Optional.empty();
+    }
+}
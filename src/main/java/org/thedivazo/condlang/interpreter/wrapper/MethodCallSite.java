@@ -0,0 +1,58 @@
+package org.thedivazo.condlang.interpreter.wrapper;
+
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.util.Objects;
+
+/**
+ * Место вызова метода в выражении с мономорфным inline кэшем: запоминается последний класс объекта,
+ * типы аргументов и выбранная для них перегрузка. Пока они не меняются, вызов не требует поиска метода.
+ */
+public final class MethodCallSite {
+
+    private record Entry(WrapperClass wrapperClass, Class<?>[] argumentTypes, MethodHandleWrapperMethod<?> method) {
+    }
+
+    private final String methodName;
+
+    /**
+     * Гонка при записи безопасна: {@link Entry} неизменяем, в худшем случае перегрузка будет найдена повторно.
+     */
+    private Entry entry;
+
+    public MethodCallSite(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * @param wrapperObject объект, у которого вызывается метод
+     * @param arguments аргументы метода. Обертки в массиве заменяются на обернутые объекты.
+     * @return Возвращает результат метода или null, если метод не найден.
+     */
+    public Object execute(WrapperObject<?> wrapperObject, Object[] arguments) throws InterpreterException {
+        if (!(wrapperObject instanceof CachedWrapperObject<?> cachedWrapperObject)) return wrapperObject.executeMethod(methodName, arguments);
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof WrapperObject<?> argument) arguments[i] = argument.getObject();
+        }
+        Entry entry = this.entry;
+        if (Objects.isNull(entry) || entry.wrapperClass() != cachedWrapperObject.wrapperClass || !matches(entry.argumentTypes(), arguments)) {
+            Class<?>[] argumentTypes = new Class<?>[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                argumentTypes[i] = Objects.isNull(arguments[i]) ? null : arguments[i].getClass();
+            }
+            entry = new Entry(cachedWrapperObject.wrapperClass, argumentTypes, cachedWrapperObject.wrapperClass.findMethod(methodName, argumentTypes));
+            this.entry = entry;
+        }
+        if (Objects.isNull(entry.method())) return null;
+        return CachedWrapperObject.wrap(entry.method().invoke(cachedWrapperObject.object, arguments), cachedWrapperObject.primitiveType);
+    }
+
+    private static boolean matches(Class<?>[] argumentTypes, Object[] arguments) {
+        if (argumentTypes.length != arguments.length) return false;
+        for (int i = 0; i < arguments.length; i++) {
+            Class<?> argumentType = Objects.isNull(arguments[i]) ? null : arguments[i].getClass();
+            if (argumentTypes[i] != argumentType) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package org.thedivazo.condlang.interpreter.wrapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Метод, вызываемый через заранее созданный {@link MethodHandle}. Возвращает результат метода без обертки.
+ * Создается один раз на класс ({@link WrapperClass}) и разделяется всеми его {@link WrapperObject}.
+ */
+public final class MethodHandleWrapperMethod<T> extends AbstractWrapperMethod<T, Object> {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /**
+     * Вызов вида (Object object, Object[] arguments)Object. Для статических методов объект игнорируется.
+     */
+    private final MethodHandle invoker;
+
+    private MethodHandleWrapperMethod(String methodName, Class<?>[] argumentTypes, MethodHandle invoker) {
+        super(methodName, argumentTypes);
+        this.invoker = invoker;
+    }
+
+    /**
+     * @param method метод класса
+     * @return Возвращает метод или null, если к нему нет доступа.
+     */
+    static <T> MethodHandleWrapperMethod<T> of(Method method) {
+        MethodHandle methodHandle;
+        try {
+            methodHandle = unreflect(method).asFixedArity();
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers())) methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+        MethodHandle invoker = methodHandle
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
+        return new MethodHandleWrapperMethod<>(method.getName(), method.getParameterTypes(), invoker);
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (RuntimeException e) {
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+    }
+
+    /**
+     * @return Возвращает результат метода или null, если метод выбросил {@link Exception} или аргументы не подошли.
+     * {@link Error} (например, {@link StackOverflowError}) не скрывается и выбрасывается дальше.
+     */
+    @Override
+    public Object execute(WrapperObject<T> wrapperObjectContext, Object... arguments) {
+        return invoke(wrapperObjectContext.getObject(), arguments);
+    }
+
+    public Object invoke(Object object, Object[] arguments) {
+        try {
+            return (Object) invoker.invokeExact(object, arguments);
+        } catch (Exception e) {
+            return null;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.thedivazo.condlang.interpreter.wrapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Выбор перегрузки метода по типам аргументов, как в Java: сначала ищутся методы, подходящие без распаковки
+ * (с учетом наследования), затем - с распаковкой и расширением примитивов. Из подходящих выбирается самый конкретный.
+ * Тип аргумента null означает, что аргумент равен null.
+ */
+final class OverloadResolver {
+
+    private static final Map<Class<?>, Class<?>> PRIMITIVE_TYPES = Map.of(
+            Boolean.class, boolean.class,
+            Byte.class, byte.class,
+            Short.class, short.class,
+            Character.class, char.class,
+            Integer.class, int.class,
+            Long.class, long.class,
+            Float.class, float.class,
+            Double.class, double.class);
+
+    private static final Map<Class<?>, Set<Class<?>>> PRIMITIVE_WIDENINGS = Map.of(
+            byte.class, Set.of(short.class, int.class, long.class, float.class, double.class),
+            short.class, Set.of(int.class, long.class, float.class, double.class),
+            char.class, Set.of(int.class, long.class, float.class, double.class),
+            int.class, Set.of(long.class, float.class, double.class),
+            long.class, Set.of(float.class, double.class),
+            float.class, Set.of(double.class));
+
+    private OverloadResolver() {
+    }
+
+    /**
+     * @param candidates методы с нужным названием и количеством параметров
+     * @param argumentTypes типы аргументов
+     * @return Возвращает самый конкретный подходящий метод или null, если подходящих нет.
+     */
+    static <M extends WrapperMethod<?, ?>> M resolve(List<M> candidates, Class<?>[] argumentTypes) {
+        M method = mostSpecific(candidates, argumentTypes, false);
+        return Objects.isNull(method) ? mostSpecific(candidates, argumentTypes, true) : method;
+    }
+
+    private static <M extends WrapperMethod<?, ?>> M mostSpecific(List<M> candidates, Class<?>[] argumentTypes, boolean unboxing) {
+        M result = null;
+        for (M candidate : candidates) {
+            if (!isApplicable(candidate.getArgumentTypes(), argumentTypes, unboxing)) continue;
+            if (Objects.isNull(result) || isApplicable(result.getArgumentTypes(), candidate.getArgumentTypes(), false)
+                    && !isApplicable(candidate.getArgumentTypes(), result.getArgumentTypes(), false)) {
+                result = candidate;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isApplicable(Class<?>[] parameterTypes, Class<?>[] argumentTypes, boolean unboxing) {
+        if (parameterTypes.length != argumentTypes.length) return false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (!isAssignable(parameterTypes[i], argumentTypes[i], unboxing)) return false;
+        }
+        return true;
+    }
+
+    static boolean isAssignable(Class<?> parameterType, Class<?> argumentType, boolean unboxing) {
+        if (Objects.isNull(argumentType)) return !parameterType.isPrimitive();
+        if (parameterType.isPrimitive() == argumentType.isPrimitive()) {
+            return parameterType.isPrimitive() ? isWidening(argumentType, parameterType) : parameterType.isAssignableFrom(argumentType);
+        }
+        if (!unboxing || !parameterType.isPrimitive()) return false;
+        Class<?> primitiveType = PRIMITIVE_TYPES.get(argumentType);
+        return !Objects.isNull(primitiveType) && isWidening(primitiveType, parameterType);
+    }
+
+    private static boolean isWidening(Class<?> from, Class<?> to) {
+        return from.equals(to) || PRIMITIVE_WIDENINGS.getOrDefault(from, Set.of()).contains(to);
+    }
+}
@@ -0,0 +1,82 @@
+package org.thedivazo.condlang.interpreter.wrapper;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Публичные методы класса, найденные один раз. Хранится в {@link ClassValue}, поэтому рефлексия и создание
+ * {@link java.lang.invoke.MethodHandle} выполняются один раз на класс, а не на каждый вызов или объект.
+ * Методы, возвращающие void, пропускаются.
+ */
+public final class WrapperClass {
+
+    private static final ClassValue<WrapperClass> WRAPPER_CLASSES = new ClassValue<>() {
+        @Override
+        protected WrapperClass computeValue(Class<?> type) {
+            return new WrapperClass(type);
+        }
+    };
+
+    private record MethodKey(String methodName, List<Class<?>> argumentTypes) {
+    }
+
+    /**
+     * Перегрузки методов по названию и количеству параметров.
+     */
+    private final Map<String, List<MethodHandleWrapperMethod<?>>[]> methods;
+
+    /**
+     * Результаты выбора перегрузки по названию и типам аргументов.
+     */
+    private final Map<MethodKey, Optional<MethodHandleWrapperMethod<?>>> resolvedMethods = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private WrapperClass(Class<?> classObject) {
+        Map<String, List<MethodHandleWrapperMethod<?>>> methods = new HashMap<>();
+        for (Method method : classObject.getMethods()) {
+            if (method.getReturnType().equals(Void.TYPE) || method.isBridge()) continue;
+            MethodHandleWrapperMethod<?> wrapperMethod = MethodHandleWrapperMethod.of(method);
+            if (Objects.isNull(wrapperMethod)) continue;
+            methods.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(wrapperMethod);
+        }
+        Map<String, List<MethodHandleWrapperMethod<?>>[]> methodsByArity = new HashMap<>();
+        methods.forEach((name, overloads) -> {
+            int maxArity = overloads.stream().mapToInt(overload -> overload.getArgumentTypes().length).max().orElse(0);
+            @SuppressWarnings("unchecked")
+            List<MethodHandleWrapperMethod<?>>[] arities = (List<MethodHandleWrapperMethod<?>>[]) new List<?>[maxArity + 1];
+            for (int arity = 0; arity <= maxArity; arity++) {
+                int currentArity = arity;
+                arities[arity] = overloads.stream().filter(overload -> overload.getArgumentTypes().length == currentArity).toList();
+            }
+            methodsByArity.put(name, arities);
+        });
+        this.methods = Map.copyOf(methodsByArity);
+    }
+
+    public static WrapperClass of(Class<?> classObject) {
+        return WRAPPER_CLASSES.get(classObject);
+    }
+
+    public Set<String> getMethodsName() {
+        return methods.keySet();
+    }
+
+    /**
+     * Выбирает перегрузку так же, как компилятор Java: с учетом наследования, распаковки и расширения примитивов.
+     * Результат кэшируется для каждого набора типов аргументов.
+     * @param methodName название метода
+     * @param argumentTypes типы аргументов. null означает аргумент, равный null.
+     * @return Возвращает метод или null, если подходящего метода нет.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> MethodHandleWrapperMethod<T> findMethod(String methodName, Class<?>[] argumentTypes) {
+        List<MethodHandleWrapperMethod<?>>[] arities = methods.get(methodName);
+        if (Objects.isNull(arities) || argumentTypes.length >= arities.length || arities[argumentTypes.length].isEmpty()) return null;
+        List<MethodHandleWrapperMethod<?>> candidates = arities[argumentTypes.length];
+        if (candidates.size() == 1 && candidates.get(0).equals(methodName, argumentTypes)) return (MethodHandleWrapperMethod<T>) candidates.get(0);
+        return (MethodHandleWrapperMethod<T>) resolvedMethods
+                .computeIfAbsent(new MethodKey(methodName, Arrays.asList(argumentTypes.clone())), key -> Optional.ofNullable(OverloadResolver.resolve(candidates, argumentTypes)))
+                .orElse(null);
+    }
+}
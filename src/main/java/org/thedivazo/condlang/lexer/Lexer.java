@@ -1,7 +1,9 @@
 package org.thedivazo.condlang.lexer;
 
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.apache.commons.collections4.map.LinkedMap;
 import org.apache.commons.collections4.map.MultiKeyMap;
@@ -10,14 +12,13 @@ import org.thedivazo.condlang.exception.FanoConditionException;
 import org.thedivazo.condlang.exception.SyntaxException;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Лексер, который подвергает код лексическому анализу, и по завершению выдает список токенов.
  * @author TheDiVaZo
- * @version 1.3
+ * @version 1.4
  *
  */
 @NoArgsConstructor
@@ -27,13 +28,38 @@ public class Lexer {
      */
     protected Multimap<String, TokenType> tokenTypeMap = MultimapBuilder.hashKeys().arrayListValues().build();
 
+    /**
+     * Неизменяемый лексер нельзя изменить, зато можно безопасно использовать из нескольких потоков.
+     */
+    @Getter
+    protected boolean immutable = false;
+
+    /**
+     * Правила независимых токенов, скомпилированные в один {@link TokenMatcher}. Сбрасывается при изменении {@link Lexer#tokenTypeMap}.
+     * Строится лениво, поэтому публикуется через volatile: {@link Lexer#analyze(String)} может вызываться из нескольких потоков.
+     */
+    protected volatile TokenMatcher independentTokenMatcher;
+
+    /**
+     * Правила для токенов, которые требуются после предыдущего токена ({@link TokenType#requireNextToken()}), по {@link TokenType#ordinal()}.
+     */
+    protected final AtomicReferenceArray<TokenMatcher> requiredTokenMatchers = new AtomicReferenceArray<>(TokenType.values().length);
+
+    /**
+     * Счетчик изменений правил лексера.
+     */
+    @Getter
+    protected int modificationCount = 0;
+
     /**
      * @param regEx regEx, по которому будет присваиваться тип токена
      * @param tokenType Тип токена
      */
 
     public void putOperator(@RegExp String regEx, TokenType tokenType) {
+        checkMutable();
         tokenTypeMap.put(regEx, tokenType);
+        resetTokenMatchers();
     }
 
     /**
@@ -42,55 +68,196 @@ public class Lexer {
      * @return тип удаленного токена
      */
     public void removeOperator(@RegExp String sign) {
+        checkMutable();
         tokenTypeMap.removeAll(sign);
+        resetTokenMatchers();
     }
 
     public void removeOperator(@RegExp String sign, TokenType tokenType) {
+        checkMutable();
         tokenTypeMap.remove(sign, tokenType);
+        resetTokenMatchers();
+    }
+
+    /**
+     * Создает неизменяемую копию лексера. Все правила компилируются сразу, поэтому {@link Lexer#analyze(String)}
+     * у копии ничего не изменяет и может вызываться из нескольких потоков без синхронизации.
+     * @return Возвращает неизменяемую копию лексера.
+     */
+    public Lexer snapshot() {
+        Lexer lexer = new Lexer();
+        lexer.tokenTypeMap = ImmutableListMultimap.copyOf(tokenTypeMap);
+        lexer.modificationCount = modificationCount;
+        lexer.getTokenMatcher(null);
+        for (TokenType tokenType : TokenType.values()) {
+            if (!Objects.isNull(tokenType.requireNextToken())) lexer.getTokenMatcher(tokenType.requireNextToken());
+        }
+        lexer.immutable = true;
+        return lexer;
+    }
+
+    protected void checkMutable() {
+        if (immutable) throw new UnsupportedOperationException("The lexer is immutable");
+    }
+
+    protected void resetTokenMatchers() {
+        modificationCount++;
+        independentTokenMatcher = null;
+        for (int i = 0; i < requiredTokenMatchers.length(); i++) {
+            requiredTokenMatchers.set(i, null);
+        }
+    }
+
+    /**
+     * @param requireNextToken тип токена, который должен идти следующим, или null
+     * @return Возвращает скомпилированные правила, которые могут сработать в данном состоянии лексера.
+     * Правила компилируются один раз и переиспользуются до следующего изменения {@link Lexer#tokenTypeMap}.
+     */
+    protected TokenMatcher getTokenMatcher(TokenType requireNextToken) {
+        if (Objects.isNull(requireNextToken)) {
+            TokenMatcher tokenMatcher = independentTokenMatcher;
+            if (Objects.isNull(tokenMatcher)) {
+                tokenMatcher = TokenMatcher.compile(tokenTypeMap.entries().stream().filter(entry -> entry.getValue().isIndependentToken()).toList());
+                independentTokenMatcher = tokenMatcher;
+            }
+            return tokenMatcher;
+        }
+        // Одновременная компиляция в нескольких потоках дает одинаковые наборы правил, поэтому достаточно записать любой.
+        TokenMatcher tokenMatcher = requiredTokenMatchers.get(requireNextToken.ordinal());
+        if (Objects.isNull(tokenMatcher)) {
+            tokenMatcher = TokenMatcher.compile(tokenTypeMap.entries().stream().filter(entry -> entry.getValue().equals(requireNextToken)).toList());
+            requiredTokenMatchers.set(requireNextToken.ordinal(), tokenMatcher);
+        }
+        return tokenMatcher;
     }
 
 
     /**
      * Метод анализирует код и строит токены по нему.
+     * Код просматривается один раз со сдвигающейся позицией, все правила заранее скомпилированы в {@link TokenMatcher}.
      * @param code исходный код. Пример: cond1 || cond2 !(cond3 && cond4)
      * @return Возвращает массив с токенами.
      * @throws SyntaxException если в коде присутствуют синтаксические ошибки, то будет вызвано это исключение;
      */
     public List<Token> analyze(String code) throws SyntaxException {
         List<Token> result = new ArrayList<>();
-        StringBuilder sliceCode = new StringBuilder(code);
+        Map<TokenMatcher, Matcher> matchers = new IdentityHashMap<>();
         int position = 0;
+        int length = code.length();
         TokenType requireNextToken = null;
-        while(true) {
-            if(sliceCode.isEmpty()) break;
-            String token = null;
-            TokenType tokenType = null;
-            TokenType finalRequireNextToken = requireNextToken;
-            Collection<Map.Entry<String,TokenType>> entryTokenMap = Objects.isNull(requireNextToken) ? tokenTypeMap.entries() : tokenTypeMap.entries().stream().filter(entry->entry.getValue().equals(finalRequireNextToken)).collect(Collectors.toSet());
-            for (Map.Entry<String,TokenType> entryToken : entryTokenMap) {
-                String regEx = entryToken.getKey();
-                Matcher matcher = Pattern.compile("^" + regEx).matcher(sliceCode);
-                if (matcher.find() && (entryToken.getValue().isIndependentToken() || entryToken.getValue().equals(finalRequireNextToken))) {
-                    token = matcher.group();
-                    tokenType = entryToken.getValue();
-                    break;
-                }
-            }
-            Optional<TokenType> optionalTokenType = Optional.ofNullable(tokenType);
-            requireNextToken = optionalTokenType.isEmpty() ? null:optionalTokenType.get().requireNextToken();
-
-            if(Objects.isNull(token) || Objects.isNull(tokenType)) {
-                token = sliceCode.substring(0,1);
-                throw new SyntaxException(String.format("Unknown token: %s",token), position, code);
+        while (position < length) {
+            TokenMatcher tokenMatcher = getTokenMatcher(requireNextToken);
+            Matcher matcher = matchers.computeIfAbsent(tokenMatcher, key -> key.matcher(code));
+            int rule = tokenMatcher.match(matcher, position, length);
+            if (rule == -1) {
+                throw new SyntaxException(String.format("Unknown token: %s", code.charAt(position)), position, code);
             }
+            TokenType tokenType = tokenMatcher.getTokenType(rule);
+            String token = code.substring(position, matcher.end());
             result.add(new Token(tokenType, token, position));
-            position += token.length();
-            sliceCode.replace(0, token.length(), "");
+            position = matcher.end();
+            requireNextToken = tokenType.requireNextToken();
         }
         result.add(new Token(TokenType.EOF,"", code.length()));
         return result;
     }
 
+    /**
+     * Повторно анализирует только часть кода, затронутую правкой. Анализ начинается с токена, на котором начинается правка,
+     * и заканчивается, как только после правки новый токен начинается там же, где начинался старый, в том же состоянии лексера.
+     * Дальше токены совпадают со старыми, у них только сдвигаются позиции.
+     * @param tokens токены кода до правки, полученные из {@link Lexer#analyze(String)}
+     * @param code код после правки
+     * @param offset позиция правки
+     * @param removedLength количество удаленных символов
+     * @param insertedLength количество вставленных символов
+     * @return Возвращает новые токены и измененный диапазон.
+     * @throws SyntaxException если в измененной части кода есть неизвестный токен
+     */
+    public TokenEdit reanalyze(List<Token> tokens, String code, int offset, int removedLength, int insertedLength) throws SyntaxException {
+        int delta = insertedLength - removedLength;
+        int length = code.length();
+        Map<TokenMatcher, Matcher> matchers = new IdentityHashMap<>();
+        int start = firstTokenEndingAt(tokens, offset);
+        // Правило может заглядывать за конец своего токена (например, "[0-9]+(\\.[0-9]+)?" для "11." и "11.2"),
+        // поэтому предыдущие токены анализируются заново, пока они не совпадут со старыми.
+        while (start > 0) {
+            Token previousToken = tokens.get(start - 1);
+            TokenMatcher tokenMatcher = getTokenMatcher(stateBefore(tokens, start - 1));
+            Matcher matcher = matchers.computeIfAbsent(tokenMatcher, key -> key.matcher(code));
+            int rule = tokenMatcher.match(matcher, previousToken.getPosition(), length);
+            if (rule != -1 && tokenMatcher.getTokenType(rule) == previousToken.getLexemeType()
+                    && matcher.end() == previousToken.getPosition() + previousToken.getSign().length()) break;
+            start--;
+        }
+        int position = tokens.get(start).getPosition();
+        TokenType requireNextToken = stateBefore(tokens, start);
+        List<Token> inserted = new ArrayList<>();
+        int oldEnd = start;
+        while (true) {
+            if (position >= offset + insertedLength) {
+                int oldPosition = position - delta;
+                while (oldEnd < tokens.size() && tokens.get(oldEnd).getPosition() < oldPosition) oldEnd++;
+                if (oldEnd < tokens.size() && tokens.get(oldEnd).getPosition() == oldPosition
+                        && Objects.equals(requireNextToken, stateBefore(tokens, oldEnd))) break;
+            }
+            if (position >= length) {
+                inserted.add(new Token(TokenType.EOF, "", length));
+                oldEnd = tokens.size();
+                break;
+            }
+            TokenMatcher tokenMatcher = getTokenMatcher(requireNextToken);
+            Matcher matcher = matchers.computeIfAbsent(tokenMatcher, key -> key.matcher(code));
+            int rule = tokenMatcher.match(matcher, position, length);
+            if (rule == -1) {
+                throw new SyntaxException(String.format("Unknown token: %s", code.charAt(position)), position, code);
+            }
+            TokenType tokenType = tokenMatcher.getTokenType(rule);
+            inserted.add(new Token(tokenType, code.substring(position, matcher.end()), position));
+            position = matcher.end();
+            requireNextToken = tokenType.requireNextToken();
+        }
+        // Токены перед правкой, которые получились такими же, в измененный диапазон не входят.
+        int skip = 0;
+        while (skip < inserted.size() && start + skip < oldEnd && sameToken(inserted.get(skip), tokens.get(start + skip))) skip++;
+        start += skip;
+
+        List<Token> result = new ArrayList<>(start + inserted.size() - skip + tokens.size() - oldEnd);
+        result.addAll(tokens.subList(0, start));
+        result.addAll(inserted.subList(skip, inserted.size()));
+        for (Token token : tokens.subList(oldEnd, tokens.size())) {
+            result.add(delta == 0 ? token : new Token(token.getLexemeType(), token.getSign(), token.getPosition() + delta));
+        }
+        return new TokenEdit(result, start, oldEnd, start + inserted.size() - skip);
+    }
+
+    /**
+     * @return Возвращает индекс первого токена, который заканчивается не раньше позиции position.
+     * Такой токен может измениться, если вставить текст в позицию position.
+     */
+    private static int firstTokenEndingAt(List<Token> tokens, int position) {
+        int low = 0;
+        int high = tokens.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Token token = tokens.get(middle);
+            if (token.getPosition() + token.getSign().length() < position) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return Возвращает тип токена, который требуется на месте токена index ({@link TokenType#requireNextToken()}).
+     */
+    private static TokenType stateBefore(List<Token> tokens, int index) {
+        return index == 0 ? null : tokens.get(index - 1).getLexemeType().requireNextToken();
+    }
+
+    private static boolean sameToken(Token token, Token oldToken) {
+        return token.getPosition() == oldToken.getPosition() && token.equals(oldToken);
+    }
+
 
 
 }
@@ -0,0 +1,12 @@
+package org.thedivazo.condlang.lexer;
+
+import java.util.List;
+
+/**
+ * Результат {@link Lexer#reanalyze(List, String, int, int, int)}: старые токены с start по oldEnd не включительно
+ * заменены новыми токенами с start по newEnd не включительно. Остальные токены совпадают со старыми,
+ * позиции токенов после правки сдвинуты.
+ * @param tokens все токены измененного кода
+ */
+public record TokenEdit(List<Token> tokens, int start, int oldEnd, int newEnd) {
+}
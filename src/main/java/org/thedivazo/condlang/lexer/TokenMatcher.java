@@ -0,0 +1,157 @@
+package org.thedivazo.condlang.lexer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Набор правил лексера, скомпилированный в одно регулярное выражение вида <code>(regEx1)|(regEx2)|...</code>.
+ * Альтернативы перебираются в порядке добавления, поэтому сохраняется семантика "первое совпадение побеждает".
+ * <p>
+ * Группы правила в общем выражении получают другие номера, поэтому обратные ссылки (<code>\1</code>) перенумеровываются,
+ * а именованные группы и ссылки на них (<code>\k&lt;name&gt;</code>) получают префикс с номером правила.
+ * @author TheDiVaZo
+ */
+public final class TokenMatcher {
+
+    private static final TokenMatcher EMPTY = new TokenMatcher(null, new TokenType[0], new int[0]);
+
+    private final Pattern pattern;
+
+    private final TokenType[] tokenTypes;
+
+    /**
+     * Номер группы в общем {@link Pattern}, которой обернуто каждое правило.
+     */
+    private final int[] ruleGroups;
+
+    private TokenMatcher(Pattern pattern, TokenType[] tokenTypes, int[] ruleGroups) {
+        this.pattern = pattern;
+        this.tokenTypes = tokenTypes;
+        this.ruleGroups = ruleGroups;
+    }
+
+    /**
+     * @param rules правила лексера (regEx и тип токена) в порядке их приоритета
+     * @return Возвращает скомпилированный набор правил
+     */
+    public static TokenMatcher compile(Collection<Map.Entry<String, TokenType>> rules) {
+        if (rules.isEmpty()) return EMPTY;
+        StringBuilder regEx = new StringBuilder();
+        TokenType[] tokenTypes = new TokenType[rules.size()];
+        int[] ruleGroups = new int[rules.size()];
+        int index = 0;
+        int group = 1;
+        for (Map.Entry<String, TokenType> rule : rules) {
+            if (index > 0) regEx.append('|');
+            int groupCount = Pattern.compile(rule.getKey()).matcher("").groupCount();
+            regEx.append('(').append(renumber(rule.getKey(), index, group, groupCount)).append(')');
+            tokenTypes[index] = rule.getValue();
+            ruleGroups[index] = group;
+            group += 1 + groupCount;
+            index++;
+        }
+        return new TokenMatcher(Pattern.compile(regEx.toString()), tokenTypes, ruleGroups);
+    }
+
+    /**
+     * Переписывает правило для общего выражения: обратная ссылка на группу n становится ссылкой на группу ruleGroup + n,
+     * имя группы name становится "rule{index}n{name}". Экранированный текст (\Q...\E) и классы символов не изменяются.
+     * @param regEx правило
+     * @param index номер правила
+     * @param ruleGroup номер группы, которой правило обернуто в общем выражении
+     * @param groupCount количество групп в правиле
+     */
+    static String renumber(String regEx, int index, int ruleGroup, int groupCount) {
+        StringBuilder result = new StringBuilder(regEx.length());
+        int length = regEx.length();
+        int classDepth = 0;
+        int openedGroups = 0;
+        for (int i = 0; i < length; i++) {
+            char symbol = regEx.charAt(i);
+            if (symbol == '\\' && i + 1 < length) {
+                char next = regEx.charAt(i + 1);
+                if (next == 'Q') {
+                    int end = regEx.indexOf("\\E", i + 2);
+                    end = end == -1 ? length : end + 2;
+                    result.append(regEx, i, end);
+                    i = end - 1;
+                }
+                else if (classDepth == 0 && next >= '1' && next <= '9') {
+                    // Как и Pattern, следующие цифры относятся к номеру, пока такая группа уже открыта.
+                    int reference = next - '0';
+                    int end = i + 2;
+                    while (end < length && Character.isDigit(regEx.charAt(end)) && reference * 10 + (regEx.charAt(end) - '0') <= openedGroups) {
+                        reference = reference * 10 + (regEx.charAt(end) - '0');
+                        end++;
+                    }
+                    // Ссылка на несуществующую группу никогда не совпадает и не должна попасть на группу другого правила.
+                    result.append(reference <= groupCount ? "(?:\\" + (ruleGroup + reference) + ")" : "(?!)");
+                    i = end - 1;
+                }
+                else if (classDepth == 0 && next == 'k' && i + 2 < length && regEx.charAt(i + 2) == '<' && regEx.indexOf('>', i + 3) != -1) {
+                    int end = regEx.indexOf('>', i + 3);
+                    result.append("\\k<").append(groupName(index, regEx.substring(i + 3, end))).append('>');
+                    i = end;
+                }
+                else {
+                    result.append(symbol).append(next);
+                    i++;
+                }
+                continue;
+            }
+            if (symbol == '[') classDepth++;
+            else if (symbol == ']' && classDepth > 0) classDepth--;
+            else if (symbol == '(' && classDepth == 0) {
+                boolean special = i + 1 < length && regEx.charAt(i + 1) == '?';
+                if (special && i + 3 < length && regEx.charAt(i + 2) == '<' && Character.isLetter(regEx.charAt(i + 3)) && regEx.indexOf('>', i + 3) != -1) {
+                    int end = regEx.indexOf('>', i + 3);
+                    result.append("(?<").append(groupName(index, regEx.substring(i + 3, end))).append('>');
+                    openedGroups++;
+                    i = end;
+                    continue;
+                }
+                if (!special) openedGroups++;
+            }
+            result.append(symbol);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Номер правила отделен от имени буквой, а имя группы начинается с буквы, поэтому имена разных правил не совпадают.
+     */
+    private static String groupName(int index, String name) {
+        return "rule" + index + "n" + name;
+    }
+
+    /**
+     * @param code исходный код
+     * @return Возвращает {@link Matcher}, который можно переиспользовать для всего кода. Если правил нет, возвращает null.
+     */
+    public Matcher matcher(CharSequence code) {
+        return pattern == null ? null : pattern.matcher(code);
+    }
+
+    /**
+     * Ищет токен, начинающийся ровно с позиции position. Подстроки кода при этом не создаются.
+     * @param matcher {@link Matcher}, полученный из {@link TokenMatcher#matcher(CharSequence)}
+     * @param position позиция в коде
+     * @param end длина кода
+     * @return Возвращает индекс сработавшего правила или -1, если ни одно правило не подошло
+     */
+    public int match(Matcher matcher, int position, int end) {
+        if (matcher == null) return -1;
+        matcher.region(position, end);
+        if (!matcher.lookingAt()) return -1;
+        for (int rule = 0; rule < ruleGroups.length; rule++) {
+            if (matcher.start(ruleGroups[rule]) != -1) return rule;
+        }
+        return -1;
+    }
+
+    public TokenType getTokenType(int rule) {
+        return tokenTypes[rule];
+    }
+}
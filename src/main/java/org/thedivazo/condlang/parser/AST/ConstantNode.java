@@ -0,0 +1,39 @@
+package org.thedivazo.condlang.parser.AST;
+
+import lombok.Getter;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Узел, значение которого было вычислено при компиляции (свертка констант).
+ */
+public class ConstantNode extends Node {
+
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final Serializable value;
+
+    public ConstantNode(Serializable value) {
+        super(String.valueOf(value));
+        this.value = value;
+    }
+
+    /**
+     * @return Всегда возвращает {@link UnsupportedOperationException}, так как у константы нет дочерних узлов.
+     */
+    @Override
+    public boolean setNodes(Node... nodes) {
+        throw new UnsupportedOperationException("You cannot add nodes to a constant.");
+    }
+
+    /**
+     * @return Всегда возвращает пустой список, так как у константы нет дочерних узлов.
+     */
+    @Override
+    public List<Node> getChildrenNodes() {
+        return List.of();
+    }
+}
@@ -0,0 +1,318 @@
+package org.thedivazo.condlang.parser;
+
+import org.thedivazo.condlang.parser.AST.*;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Компактный двоичный формат AST дерева.
+ * <pre>
+ * magic (2 байта "CL") | версия (1 байт) | таблица строк | узлы в прямом порядке обхода
+ * таблица строк: количество (varint), затем для каждой строки длина в байтах (varint) и UTF-8 байты
+ * узел: код (1 байт), индекс имени в таблице строк (varint), затем данные узла:
+ *     тернарный, бинарный, унарный оператор - дочерние узлы (3, 2 или 1);
+ *     функция - количество аргументов (varint) и аргументы;
+ *     метод - количество аргументов (varint), контекст и аргументы;
+ *     условие - ничего;
+ *     константа - тип значения (1 байт) и значение, вместо индекса имени.
+ * </pre>
+ * Константы хранятся только известных типов: null, {@link Boolean}, {@link Double}, {@link Float}, {@link Long}, {@link Integer},
+ * {@link Short}, {@link Byte}, {@link Character}, {@link String}, {@link BigInteger} и {@link BigDecimal}. Java сериализация
+ * не используется, так что файл с правилами не может создать при чтении объект произвольного класса.
+ * Одинаковые имена узлов хранятся один раз. Чтение идет прямо из {@link ByteBuffer}, поэтому файл можно
+ * отобразить в память и читать выражения без копирования в промежуточный массив.
+ */
+public final class BinaryNodeFormat {
+
+    public static final int VERSION = 1;
+
+    /**
+     * Максимальная вложенность узлов. При чтении защищает от {@link StackOverflowError} на поврежденных данных,
+     * при записи не дает сохранить дерево, которое потом нельзя будет прочитать.
+     */
+    public static final int MAX_DEPTH = 1024;
+
+    private static final byte MAGIC_FIRST = 'C';
+    private static final byte MAGIC_SECOND = 'L';
+
+    private static final byte TERNARY = 1;
+    private static final byte BINARY = 2;
+    private static final byte UNARY = 3;
+    private static final byte CONDITION = 4;
+    private static final byte FUNCTION = 5;
+    private static final byte METHOD = 6;
+    private static final byte CONSTANT = 7;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_TRUE = 1;
+    private static final byte VALUE_FALSE = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_LONG = 4;
+    private static final byte VALUE_INTEGER = 5;
+    private static final byte VALUE_STRING = 6;
+    private static final byte VALUE_FLOAT = 8;
+    private static final byte VALUE_SHORT = 9;
+    private static final byte VALUE_BYTE = 10;
+    private static final byte VALUE_CHARACTER = 11;
+    private static final byte VALUE_BIG_INTEGER = 12;
+    private static final byte VALUE_BIG_DECIMAL = 13;
+
+    private BinaryNodeFormat() {
+    }
+
+    /**
+     * @return Возвращает AST дерево в двоичном формате.
+     * @throws IllegalArgumentException если в дереве есть константа неизвестного типа
+     * или вложенность узлов больше {@link BinaryNodeFormat#MAX_DEPTH}
+     */
+    public static byte[] toByteArray(Node mainNode) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        // Глубина проверяется здесь: строки собираются обходом всего дерева до записи узлов.
+        collectStrings(mainNode, strings, 0);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(64);
+        DataOutputStream output = new DataOutputStream(byteArrayOutputStream);
+        try {
+            output.writeByte(MAGIC_FIRST);
+            output.writeByte(MAGIC_SECOND);
+            output.writeByte(VERSION);
+            writeVarInt(output, strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(output, bytes.length);
+                output.write(bytes);
+            }
+            writeNode(output, mainNode, strings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static void writeTo(Node mainNode, OutputStream outputStream) throws IOException {
+        outputStream.write(toByteArray(mainNode));
+    }
+
+    /**
+     * Записывает AST дерево с текущей позиции буфера.
+     * @throws java.nio.BufferOverflowException если в буфере недостаточно места
+     */
+    public static void writeTo(Node mainNode, ByteBuffer byteBuffer) {
+        byteBuffer.put(toByteArray(mainNode));
+    }
+
+    /**
+     * Читает AST дерево с текущей позиции буфера. После чтения позиция указывает на конец дерева.
+     * @throws IllegalArgumentException если данные не являются AST деревом в этом формате, повреждены
+     * или вложенность узлов больше {@link BinaryNodeFormat#MAX_DEPTH}
+     */
+    public static Node readFrom(ByteBuffer byteBuffer) {
+        try {
+            if (byteBuffer.get() != MAGIC_FIRST || byteBuffer.get() != MAGIC_SECOND) throw new IllegalArgumentException("The data is not a compiled expression");
+            int version = byteBuffer.get();
+            if (version != VERSION) throw new IllegalArgumentException(String.format("Unsupported compiled expression version: %d", version));
+            // Каждая строка занимает хотя бы один байт, поэтому строк не может быть больше оставшихся байтов.
+            String[] strings = new String[readCount(byteBuffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(byteBuffer, readVarInt(byteBuffer));
+            }
+            return readNode(byteBuffer, strings, 0);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("The compiled expression is truncated or corrupted", e);
+        }
+    }
+
+    private static void collectStrings(Node node, Map<String, Integer> strings, int depth) {
+        if (depth >= MAX_DEPTH) throw new IllegalArgumentException(String.format("The expression is nested deeper than %d nodes", MAX_DEPTH));
+        if (node instanceof ConstantNode) return;
+        strings.putIfAbsent(node.getNodeName(), strings.size());
+        if (node instanceof ConditionNode) return;
+        if (node instanceof MethodOperatorNode methodOperatorNode) collectStrings(methodOperatorNode.getContext(), strings, depth + 1);
+        for (Node childNode : node.getChildrenNodes()) {
+            collectStrings(childNode, strings, depth + 1);
+        }
+    }
+
+    private static void writeNode(DataOutputStream output, Node node, Map<String, Integer> strings) throws IOException {
+        if (node instanceof ConstantNode constantNode) {
+            output.writeByte(CONSTANT);
+            writeValue(output, constantNode.getValue());
+            return;
+        }
+        byte code;
+        if (node instanceof TernaryOperatorNode) code = TERNARY;
+        else if (node instanceof BinaryOperatorNode) code = BINARY;
+        else if (node instanceof UnaryOperatorNode) code = UNARY;
+        else if (node instanceof ConditionNode) code = CONDITION;
+        else if (node instanceof MethodOperatorNode) code = METHOD;
+        else if (node instanceof FunctionOperatorNode) code = FUNCTION;
+        else throw new IllegalArgumentException(String.format("Unknown node: %s", node));
+        output.writeByte(code);
+        writeVarInt(output, strings.get(node.getNodeName()));
+        if (code == CONDITION) return;
+        List<Node> childrenNodes = node.getChildrenNodes();
+        if (code == FUNCTION || code == METHOD) writeVarInt(output, childrenNodes.size());
+        if (node instanceof MethodOperatorNode methodOperatorNode) writeNode(output, methodOperatorNode.getContext(), strings);
+        for (Node childNode : childrenNodes) {
+            writeNode(output, childNode, strings);
+        }
+    }
+
+    private static Node readNode(ByteBuffer byteBuffer, String[] strings, int depth) {
+        if (depth >= MAX_DEPTH) throw new IllegalArgumentException(String.format("The compiled expression is nested deeper than %d nodes", MAX_DEPTH));
+        byte code = byteBuffer.get();
+        if (code == CONSTANT) return new ConstantNode(readValue(byteBuffer));
+        String name = strings[readVarInt(byteBuffer)];
+        return switch (code) {
+            case CONDITION -> new ConditionNode(name);
+            case TERNARY -> readChildren(byteBuffer, strings, new TernaryOperatorNode(name), 3, depth);
+            case BINARY -> readChildren(byteBuffer, strings, new BinaryOperatorNode(name), 2, depth);
+            case UNARY -> readChildren(byteBuffer, strings, new UnaryOperatorNode(name), 1, depth);
+            case FUNCTION -> readChildren(byteBuffer, strings, new FunctionOperatorNode(name), readCount(byteBuffer), depth);
+            case METHOD -> {
+                int arity = readCount(byteBuffer);
+                MethodOperatorNode methodOperatorNode = new MethodOperatorNode(name);
+                methodOperatorNode.setContext(readNode(byteBuffer, strings, depth + 1));
+                yield readChildren(byteBuffer, strings, methodOperatorNode, arity, depth);
+            }
+            default -> throw new IllegalArgumentException(String.format("Unknown node code: %d", code));
+        };
+    }
+
+    private static Node readChildren(ByteBuffer byteBuffer, String[] strings, OperatorNode operatorNode, int count, int depth) {
+        Node[] childrenNodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            childrenNodes[i] = readNode(byteBuffer, strings, depth + 1);
+        }
+        operatorNode.setNodes(childrenNodes);
+        return operatorNode;
+    }
+
+    private static void writeValue(DataOutputStream output, Serializable value) throws IOException {
+        if (Objects.isNull(value)) output.writeByte(VALUE_NULL);
+        else if (value instanceof Boolean booleanValue) output.writeByte(booleanValue ? VALUE_TRUE : VALUE_FALSE);
+        else if (value instanceof Double doubleValue) {
+            output.writeByte(VALUE_DOUBLE);
+            output.writeDouble(doubleValue);
+        }
+        else if (value instanceof Long longValue) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong(longValue);
+        }
+        else if (value instanceof Integer integerValue) {
+            output.writeByte(VALUE_INTEGER);
+            output.writeInt(integerValue);
+        }
+        else if (value instanceof Float floatValue) {
+            output.writeByte(VALUE_FLOAT);
+            output.writeFloat(floatValue);
+        }
+        else if (value instanceof Short shortValue) {
+            output.writeByte(VALUE_SHORT);
+            output.writeShort(shortValue);
+        }
+        else if (value instanceof Byte byteValue) {
+            output.writeByte(VALUE_BYTE);
+            output.writeByte(byteValue);
+        }
+        else if (value instanceof Character characterValue) {
+            output.writeByte(VALUE_CHARACTER);
+            output.writeChar(characterValue);
+        }
+        else if (value instanceof String stringValue) {
+            output.writeByte(VALUE_STRING);
+            writeBytes(output, stringValue.getBytes(StandardCharsets.UTF_8));
+        }
+        else if (value instanceof BigInteger bigIntegerValue) {
+            output.writeByte(VALUE_BIG_INTEGER);
+            writeBytes(output, bigIntegerValue.toByteArray());
+        }
+        else if (value instanceof BigDecimal bigDecimalValue) {
+            output.writeByte(VALUE_BIG_DECIMAL);
+            writeVarInt(output, bigDecimalValue.scale());
+            writeBytes(output, bigDecimalValue.unscaledValue().toByteArray());
+        }
+        else throw new IllegalArgumentException(String.format("Unsupported constant type in a compiled expression: %s", value.getClass().getName()));
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static Serializable readValue(ByteBuffer byteBuffer) {
+        byte type = byteBuffer.get();
+        return switch (type) {
+            case VALUE_NULL -> null;
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_DOUBLE -> byteBuffer.getDouble();
+            case VALUE_LONG -> byteBuffer.getLong();
+            case VALUE_INTEGER -> byteBuffer.getInt();
+            case VALUE_FLOAT -> byteBuffer.getFloat();
+            case VALUE_SHORT -> byteBuffer.getShort();
+            case VALUE_BYTE -> byteBuffer.get();
+            case VALUE_CHARACTER -> byteBuffer.getChar();
+            case VALUE_STRING -> readString(byteBuffer, readVarInt(byteBuffer));
+            case VALUE_BIG_INTEGER -> new BigInteger(readBytes(byteBuffer));
+            case VALUE_BIG_DECIMAL -> {
+                int scale = readVarInt(byteBuffer);
+                yield new BigDecimal(new BigInteger(readBytes(byteBuffer)), scale);
+            }
+            default -> throw new IllegalArgumentException(String.format("Unknown constant type: %d", type));
+        };
+    }
+
+    private static byte[] readBytes(ByteBuffer byteBuffer) {
+        int length = readVarInt(byteBuffer);
+        if (length <= 0 || length > byteBuffer.remaining()) throw new IllegalArgumentException("The compiled expression is truncated or corrupted");
+        byte[] bytes = new byte[length];
+        byteBuffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer byteBuffer, int length) {
+        if (length < 0 || length > byteBuffer.remaining()) throw new BufferUnderflowException();
+        if (byteBuffer.hasArray()) {
+            String string = new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length, StandardCharsets.UTF_8);
+            byteBuffer.position(byteBuffer.position() + length);
+            return string;
+        }
+        byte[] bytes = new byte[length];
+        byteBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Читает количество строк или узлов. Каждый элемент занимает хотя бы один байт, поэтому количество
+     * больше оставшихся байтов означает поврежденные данные.
+     */
+    private static int readCount(ByteBuffer byteBuffer) {
+        int count = readVarInt(byteBuffer);
+        if (count < 0 || count > byteBuffer.remaining()) throw new IllegalArgumentException("The compiled expression is truncated or corrupted");
+        return count;
+    }
+
+    private static int readVarInt(ByteBuffer byteBuffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte current = byteBuffer.get();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+}
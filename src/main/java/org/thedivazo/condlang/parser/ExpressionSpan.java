@@ -0,0 +1,17 @@
+package org.thedivazo.condlang.parser;
+
+/**
+ * Вложенное выражение: содержимое скобок или аргумент функции (метода).
+ * Границы - позиции символов кода: from - конец открывающей скобки или разделителя,
+ * to - начало закрывающей скобки или следующего разделителя.
+ * @param node корневой узел выражения
+ */
+public record ExpressionSpan(Node node, int from, int to) {
+
+    /**
+     * @return Возвращает true, если участок кода с from по to лежит внутри выражения.
+     */
+    public boolean contains(int from, int to) {
+        return this.from <= from && to <= this.to;
+    }
+}
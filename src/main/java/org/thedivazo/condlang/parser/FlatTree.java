@@ -0,0 +1,233 @@
+package org.thedivazo.condlang.parser;
+
+import org.thedivazo.condlang.parser.AST.*;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * AST дерево, уложенное в плоские массивы. Узлы пронумерованы в прямом порядке обхода, корень имеет номер 0.
+ * Для каждого узла хранятся его вид, индекс имени в общей таблице строк (или индекс значения в таблице констант)
+ * и смещение списка его дочерних узлов в общем массиве children. У метода нулевой дочерний узел - это контекст,
+ * за ним идут аргументы.
+ * <p>
+ * В отличие от дерева объектов {@link Node}, здесь нет отдельного объекта и списка на каждый узел,
+ * а одинаковые имена хранятся один раз. Дерево {@link Node} можно получить через {@link FlatTree#toNode()}.
+ */
+public final class FlatTree implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final byte TERNARY = 1;
+    public static final byte BINARY = 2;
+    public static final byte UNARY = 3;
+    public static final byte CONDITION = 4;
+    public static final byte FUNCTION = 5;
+    public static final byte METHOD = 6;
+    public static final byte CONSTANT = 7;
+
+    private final byte[] kinds;
+
+    /**
+     * Индекс имени узла в strings, а для константы - индекс значения в constants.
+     */
+    private final int[] operands;
+
+    /**
+     * Дочерние узлы узла node лежат в children с childOffsets[node] по childOffsets[node + 1] не включительно.
+     */
+    private final int[] childOffsets;
+
+    private final int[] children;
+
+    private final String[] strings;
+
+    private final Serializable[] constants;
+
+    private FlatTree(byte[] kinds, int[] operands, int[] childOffsets, int[] children, String[] strings, Serializable[] constants) {
+        this.kinds = kinds;
+        this.operands = operands;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.strings = strings;
+        this.constants = constants;
+    }
+
+    /**
+     * @param mainNode корневой узел AST дерева
+     * @return Возвращает то же дерево в плоском виде.
+     */
+    public static FlatTree of(Node mainNode) {
+        Builder builder = new Builder();
+        builder.add(mainNode);
+        return builder.build();
+    }
+
+    private static final class Builder {
+
+        private byte[] kinds = new byte[16];
+
+        private int[] operands = new int[16];
+
+        private int[] childOffsets = new int[16];
+
+        private int[] children = new int[16];
+
+        private int size;
+
+        private int childrenSize;
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        private final List<Serializable> constants = new ArrayList<>();
+
+        /**
+         * Место под дочерние узлы резервируется до обхода детей, поэтому списки дочерних узлов лежат в children
+         * в том же порядке, что и сами узлы, и конец списка узла совпадает с началом списка следующего узла.
+         */
+        private int add(Node node) {
+            int index = size++;
+            if (index == kinds.length) {
+                kinds = Arrays.copyOf(kinds, index * 2);
+                operands = Arrays.copyOf(operands, index * 2);
+                childOffsets = Arrays.copyOf(childOffsets, index * 2);
+            }
+            kinds[index] = kindOf(node);
+            childOffsets[index] = childrenSize;
+            if (node instanceof ConstantNode constantNode) {
+                operands[index] = constants.size();
+                constants.add(constantNode.getValue());
+                return index;
+            }
+            operands[index] = strings.computeIfAbsent(node.getNodeName(), name -> strings.size());
+            if (node instanceof ConditionNode) return index;
+
+            Node context = node instanceof MethodOperatorNode methodOperatorNode ? methodOperatorNode.getContext() : null;
+            List<Node> childrenNodes = node.getChildrenNodes();
+            int count = childrenNodes.size() + (context == null ? 0 : 1);
+            int offset = childrenSize;
+            childrenSize += count;
+            if (children.length < childrenSize) children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize));
+            // add может заменить массив children, поэтому номер дочернего узла записывается после вызова.
+            if (context != null) {
+                int child = add(context);
+                children[offset++] = child;
+            }
+            for (Node childNode : childrenNodes) {
+                int child = add(childNode);
+                children[offset++] = child;
+            }
+            return index;
+        }
+
+        private FlatTree build() {
+            int[] offsets = Arrays.copyOf(childOffsets, size + 1);
+            offsets[size] = childrenSize;
+            return new FlatTree(Arrays.copyOf(kinds, size), Arrays.copyOf(operands, size), offsets,
+                    Arrays.copyOf(children, childrenSize), strings.keySet().toArray(new String[0]), constants.toArray(new Serializable[0]));
+        }
+
+        private static byte kindOf(Node node) {
+            if (node instanceof TernaryOperatorNode) return TERNARY;
+            if (node instanceof BinaryOperatorNode) return BINARY;
+            if (node instanceof UnaryOperatorNode) return UNARY;
+            if (node instanceof ConditionNode) return CONDITION;
+            if (node instanceof MethodOperatorNode) return METHOD;
+            if (node instanceof FunctionOperatorNode) return FUNCTION;
+            if (node instanceof ConstantNode) return CONSTANT;
+            throw new IllegalArgumentException("Unknown node: " + node);
+        }
+    }
+
+    /**
+     * @return Возвращает количество узлов.
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * @return Возвращает вид узла ({@link FlatTree#TERNARY}, {@link FlatTree#BINARY} и т.д.).
+     */
+    public byte getKind(int node) {
+        return kinds[node];
+    }
+
+    /**
+     * @return Возвращает имя узла. Для константы это строковое представление ее значения, как у {@link ConstantNode}.
+     */
+    public String getName(int node) {
+        return kinds[node] == CONSTANT ? String.valueOf(constants[operands[node]]) : strings[operands[node]];
+    }
+
+    public Serializable getConstant(int node) {
+        if (kinds[node] != CONSTANT) throw new IllegalArgumentException("The node is not a constant");
+        return constants[operands[node]];
+    }
+
+    public int getChildCount(int node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    /**
+     * @param node номер узла
+     * @param index номер дочернего узла. У метода нулевой дочерний узел - это контекст.
+     * @return Возвращает номер дочернего узла.
+     */
+    public int getChild(int node, int index) {
+        return children[childOffsets[node] + index];
+    }
+
+    /**
+     * @return Возвращает индекс имени узла в таблице строк. Одинаковые имена имеют одинаковый индекс.
+     */
+    public int getNameIndex(int node) {
+        return kinds[node] == CONSTANT ? -1 : operands[node];
+    }
+
+    public int getStringCount() {
+        return strings.length;
+    }
+
+    /**
+     * Строит дерево объектов {@link Node} для инструментов, которые работают с AST деревом.
+     * Каждый вызов создает новое дерево.
+     * @return Возвращает корневой узел AST дерева.
+     */
+    public Node toNode() {
+        return toNode(0);
+    }
+
+    /**
+     * @param node номер узла
+     * @return Возвращает поддерево с корнем в узле node в виде дерева объектов {@link Node}.
+     */
+    public Node toNode(int node) {
+        String name = getName(node);
+        Node result = switch (kinds[node]) {
+            case TERNARY -> new TernaryOperatorNode(name);
+            case BINARY -> new BinaryOperatorNode(name);
+            case UNARY -> new UnaryOperatorNode(name);
+            case CONDITION -> new ConditionNode(name);
+            case FUNCTION -> new FunctionOperatorNode(name);
+            case METHOD -> new MethodOperatorNode(name);
+            case CONSTANT -> new ConstantNode(constants[operands[node]]);
+            default -> throw new IllegalStateException("Unknown node kind: " + kinds[node]);
+        };
+        if (result instanceof OperatorNode) {
+            int first = kinds[node] == METHOD ? 1 : 0;
+            if (first == 1) ((MethodOperatorNode) result).setContext(toNode(getChild(node, 0)));
+            Node[] childrenNodes = new Node[getChildCount(node) - first];
+            for (int i = 0; i < childrenNodes.length; i++) {
+                childrenNodes[i] = toNode(getChild(node, first + i));
+            }
+            result.setNodes(childrenNodes);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toNode().toString();
+    }
+}
@@ -0,0 +1,204 @@
+package org.thedivazo.condlang.parser;
+
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.SyntaxException;
+import org.thedivazo.condlang.lexer.Lexer;
+import org.thedivazo.condlang.lexer.Token;
+import org.thedivazo.condlang.lexer.TokenEdit;
+import org.thedivazo.condlang.lexer.TokenType;
+import org.thedivazo.condlang.parser.AST.*;
+
+import java.util.*;
+
+/**
+ * Разбор кода, который редактируется по частям (например, в редакторе правил). После правки заново анализируются только
+ * затронутые токены ({@link Lexer#reanalyze(List, String, int, int, int)}) и заново разбирается только самое маленькое
+ * вложенное выражение ({@link ExpressionSpan}), в котором лежат измененные токены. Если выражение после правки
+ * не разбирается само по себе, разбирается объемлющее выражение и, в конце концов, весь код.
+ * Результат совпадает с {@link Parser#parsing(List)} для всего кода, а предыдущий {@link ParseResult} не изменяется.
+ */
+public final class IncrementalParser {
+
+    private final Lexer lexer;
+
+    private final Parser parser;
+
+    public IncrementalParser(Lexer lexer, Parser parser) {
+        this.lexer = lexer;
+        this.parser = parser;
+    }
+
+    /**
+     * @param code исходный код
+     * @return Возвращает результат полного разбора кода. Ошибки не выбрасываются, а возвращаются в {@link ParseResult#getDiagnostics()}.
+     */
+    public ParseResult parse(String code) {
+        List<Token> tokens;
+        try {
+            tokens = lexer.analyze(code);
+        } catch (SyntaxException e) {
+            return failed(code, null, e);
+        }
+        return parse(code, tokens);
+    }
+
+    /**
+     * @param previous результат разбора кода до правки
+     * @param offset позиция правки
+     * @param removedLength количество удаленных символов
+     * @param insertedText вставленный текст
+     * @return Возвращает результат разбора кода после правки.
+     */
+    public ParseResult reparse(ParseResult previous, int offset, int removedLength, String insertedText) {
+        String previousCode = previous.getCode();
+        Objects.checkFromIndexSize(offset, removedLength, previousCode.length());
+        String code = previousCode.substring(0, offset) + insertedText + previousCode.substring(offset + removedLength);
+        if (Objects.isNull(previous.getTokens())
+                || previous.getLexerModificationCount() != lexer.getModificationCount()
+                || previous.getParserModificationCount() != parser.getModificationCount()) return parse(code);
+
+        TokenEdit tokenEdit;
+        try {
+            tokenEdit = lexer.reanalyze(previous.getTokens(), code, offset, removedLength, insertedText.length());
+        } catch (SyntaxException e) {
+            return failed(code, null, e);
+        }
+        if (Objects.isNull(previous.getNode())) return parse(code, tokenEdit.tokens());
+
+        List<Token> previousTokens = previous.getTokens();
+        int changedFrom = positionOf(previousTokens, tokenEdit.start(), previousCode.length());
+        int changedTo = positionOf(previousTokens, tokenEdit.oldEnd(), previousCode.length());
+        int delta = insertedText.length() - removedLength;
+        ExpressionSpan span = smallestSpan(previous.getSpans(), changedFrom, changedTo, null);
+        while (span != null) {
+            ParseResult result = reparseSpan(previous, code, tokenEdit.tokens(), span, delta);
+            if (result != null) return result;
+            span = smallestSpan(previous.getSpans(), span.from(), span.to(), span);
+        }
+        return parse(code, tokenEdit.tokens());
+    }
+
+    private ParseResult parse(String code, List<Token> tokens) {
+        List<ExpressionSpan> spans = new ArrayList<>();
+        try {
+            Node node = parser.parsing(tokens, spans);
+            return new ParseResult(code, tokens, node, spans, new ExpressionSpan(node, 0, code.length()), null,
+                    lexer.getModificationCount(), parser.getModificationCount());
+        } catch (CompileException e) {
+            return failed(code, tokens, e);
+        }
+    }
+
+    private ParseResult failed(String code, List<Token> tokens, CompileException exception) {
+        return new ParseResult(code, tokens, null, List.of(), null, exception, lexer.getModificationCount(), parser.getModificationCount());
+    }
+
+    /**
+     * Разбирает выражение span в новых токенах. Выражение должно занять все токены между своими границами,
+     * иначе разбор в составе всего кода мог бы пойти по-другому.
+     * @return Возвращает новый результат или null, если выражение само по себе не разбирается.
+     */
+    private ParseResult reparseSpan(ParseResult previous, String code, List<Token> tokens, ExpressionSpan span, int delta) {
+        int from = span.from();
+        int to = span.to() + delta;
+        List<Token> window = new ArrayList<>(tokens.subList(firstTokenFrom(tokens, from), firstTokenFrom(tokens, to)));
+        window.add(new Token(TokenType.EOF, "", to));
+        List<ExpressionSpan> windowSpans = new ArrayList<>();
+        TokenBuffer tokenBuffer = new TokenBuffer(window, windowSpans);
+        Node node;
+        try {
+            node = parser.expr(tokenBuffer);
+        } catch (CompileException | RuntimeException e) {
+            return null;
+        }
+        if (!tokenBuffer.current().getLexemeType().equals(TokenType.EOF)) return null;
+
+        Map<Node, Node> copies = new IdentityHashMap<>();
+        Node root = replace(previous.getNode(), span.node(), node, copies);
+        if (root == null) return null;
+
+        List<ExpressionSpan> spans = new ArrayList<>(previous.getSpans().size() + windowSpans.size());
+        for (ExpressionSpan previousSpan : previous.getSpans()) {
+            if (span.contains(previousSpan.from(), previousSpan.to())) continue;
+            if (previousSpan.to() <= span.from()) spans.add(previousSpan);
+            else if (previousSpan.from() >= span.to()) spans.add(new ExpressionSpan(previousSpan.node(), previousSpan.from() + delta, previousSpan.to() + delta));
+            else spans.add(new ExpressionSpan(copies.getOrDefault(previousSpan.node(), previousSpan.node()), previousSpan.from(), previousSpan.to() + delta));
+        }
+        ExpressionSpan reparsed = new ExpressionSpan(node, from, to);
+        spans.addAll(windowSpans);
+        spans.add(reparsed);
+        return new ParseResult(code, tokens, root, spans, reparsed, null, lexer.getModificationCount(), parser.getModificationCount());
+    }
+
+    /**
+     * @param exclude выражение, которое не нужно учитывать (само выражение при поиске объемлющего), или null
+     * @return Возвращает самое маленькое выражение, в котором лежит участок кода с from по to, или null.
+     */
+    private static ExpressionSpan smallestSpan(List<ExpressionSpan> spans, int from, int to, ExpressionSpan exclude) {
+        ExpressionSpan result = null;
+        for (ExpressionSpan span : spans) {
+            if (span == exclude || !span.contains(from, to)) continue;
+            if (result == null || span.to() - span.from() < result.to() - result.from()) result = span;
+        }
+        return result;
+    }
+
+    /**
+     * Копирует путь от корня до узла target, заменяя target на replacement. Остальные поддеревья не копируются.
+     * @param copies сюда записываются старые узлы пути и их копии
+     * @return Возвращает копию узла node или null, если target не лежит в поддереве node.
+     */
+    private static Node replace(Node node, Node target, Node replacement, Map<Node, Node> copies) {
+        if (node == target) {
+            copies.put(node, replacement);
+            return replacement;
+        }
+        if (!(node instanceof OperatorNode)) return null;
+        Node context = node instanceof MethodOperatorNode methodOperatorNode ? methodOperatorNode.getContext() : null;
+        Node[] childrenNodes = node.getChildrenNodes().toArray(new Node[0]);
+        Node newContext = context == null ? null : replace(context, target, replacement, copies);
+        boolean found = newContext != null;
+        for (int i = 0; i < childrenNodes.length && !found; i++) {
+            Node child = replace(childrenNodes[i], target, replacement, copies);
+            if (child != null) {
+                childrenNodes[i] = child;
+                found = true;
+            }
+        }
+        if (!found) return null;
+        Node copy = copyOf(node);
+        copy.setNodes(childrenNodes);
+        if (copy instanceof MethodOperatorNode methodOperatorNode) methodOperatorNode.setContext(newContext == null ? context : newContext);
+        copies.put(node, copy);
+        return copy;
+    }
+
+    private static Node copyOf(Node node) {
+        String name = node.getNodeName();
+        if (node instanceof TernaryOperatorNode) return new TernaryOperatorNode(name);
+        if (node instanceof BinaryOperatorNode) return new BinaryOperatorNode(name);
+        if (node instanceof UnaryOperatorNode) return new UnaryOperatorNode(name);
+        if (node instanceof MethodOperatorNode) return new MethodOperatorNode(name);
+        if (node instanceof FunctionOperatorNode) return new FunctionOperatorNode(name);
+        if (node instanceof OperatorNode) return new OperatorNode(name);
+        throw new IllegalArgumentException("Unknown node: " + node);
+    }
+
+    private static int positionOf(List<Token> tokens, int index, int length) {
+        return index < tokens.size() ? tokens.get(index).getPosition() : length;
+    }
+
+    /**
+     * @return Возвращает индекс первого токена, который начинается не раньше позиции position.
+     */
+    private static int firstTokenFrom(List<Token> tokens, int position) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens.get(middle).getPosition() < position) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
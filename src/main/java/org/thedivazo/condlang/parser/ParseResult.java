@@ -0,0 +1,77 @@
+package org.thedivazo.condlang.parser;
+
+import lombok.Getter;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.lexer.Token;
+
+import java.util.List;
+
+/**
+ * Результат разбора кода в {@link IncrementalParser}. Хранит все, что нужно для следующего разбора после правки:
+ * код, токены, AST дерево и границы вложенных выражений.
+ * <p>
+ * Результаты разных правок разделяют неизмененные поддеревья, поэтому AST дерево нельзя изменять
+ * (например, сворачивать в нем константы). Для компиляции используйте копию дерева.
+ */
+@Getter
+public final class ParseResult {
+
+    /**
+     * Ошибка разбора.
+     * @param message описание ошибки
+     * @param position позиция символа в коде, на котором произошла ошибка, или -1, если она неизвестна
+     */
+    public record Diagnostic(String message, int position) {
+
+        static Diagnostic of(CompileException exception) {
+            return new Diagnostic(exception.getMessage().lines().findFirst().orElse(""), exception.getPosition());
+        }
+    }
+
+    private final String code;
+
+    /**
+     * Токены кода или null, если код не удалось разобрать на токены.
+     */
+    private final List<Token> tokens;
+
+    /**
+     * Корневой узел AST дерева или null, если в коде есть ошибки.
+     */
+    private final Node node;
+
+    private final List<ExpressionSpan> spans;
+
+    /**
+     * Выражение, которое было разобрано заново. При полном разборе - весь код.
+     */
+    private final ExpressionSpan reparsed;
+
+    private final List<Diagnostic> diagnostics;
+
+    /**
+     * Ошибка, которая будет выброшена при компиляции результата, или null.
+     */
+    private final CompileException error;
+
+    private final int lexerModificationCount;
+
+    private final int parserModificationCount;
+
+    ParseResult(String code, List<Token> tokens, Node node, List<ExpressionSpan> spans, ExpressionSpan reparsed, CompileException error,
+                int lexerModificationCount, int parserModificationCount) {
+        this.code = code;
+        this.tokens = tokens == null ? null : List.copyOf(tokens);
+        this.node = node;
+        this.spans = List.copyOf(spans);
+        this.reparsed = reparsed;
+        this.error = error;
+        this.diagnostics = error == null ? List.of() : List.of(Diagnostic.of(error));
+        this.lexerModificationCount = lexerModificationCount;
+        this.parserModificationCount = parserModificationCount;
+    }
+
+    public boolean hasErrors() {
+        return error != null;
+    }
+}
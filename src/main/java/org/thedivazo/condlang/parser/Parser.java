@@ -1,5 +1,7 @@
 package org.thedivazo.condlang.parser;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import lombok.*;
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.intellij.lang.annotations.RegExp;
@@ -48,7 +50,32 @@ public class Parser {
     }
 
 
-    private final List<Set<OperatorData>> listOfPriorityOperator = SetUniqueList.setUniqueList(new ArrayList<>());
+    private List<Set<OperatorData>> listOfPriorityOperator = SetUniqueList.setUniqueList(new ArrayList<>());
+
+    /**
+     * Неизменяемый парсер нельзя изменить, зато можно безопасно использовать из нескольких потоков.
+     */
+    @Getter
+    protected boolean immutable = false;
+
+    /**
+     * Счетчик изменений списка приоритета операторов.
+     */
+    @Getter
+    protected int modificationCount = 0;
+
+    /**
+     * Разбирать операторы методом Пратта по таблице приоритетов ({@link PrecedenceTable}).
+     * Если false, используется рекурсивный спуск с вызовом на каждый уровень приоритета ({@link Parser#operator(TokenBuffer, int)}).
+     * Оба способа строят одинаковое AST дерево.
+     */
+    @Getter
+    protected boolean precedenceClimbing = true;
+
+    /**
+     * Таблица приоритетов, построенная по listOfPriorityOperator. Перестраивается при изменении списка.
+     */
+    private volatile PrecedenceTable precedenceTable;
 
     /**
      * Метод, позволяющий добавить токен(ы) оператора(ов) в список приоритета.
@@ -57,13 +84,35 @@ public class Parser {
      * @return возвращает состояние добавления
      */
     public boolean addOperator(OperatorData... operatorsData) {
+        if (immutable) throw new UnsupportedOperationException("The parser is immutable");
         Set<OperatorData> operatorDataSet = new LinkedHashSet<>();
         for (OperatorData operatorData : operatorsData) {
             operatorDataSet.add(operatorData);
         }
+        modificationCount++;
+        precedenceTable = null;
         return listOfPriorityOperator.add(operatorDataSet);
     }
 
+    public void setPrecedenceClimbing(boolean precedenceClimbing) {
+        if (immutable) throw new UnsupportedOperationException("The parser is immutable");
+        this.precedenceClimbing = precedenceClimbing;
+        modificationCount++;
+    }
+
+    /**
+     * @return Возвращает неизменяемую копию парсера, которую можно использовать из нескольких потоков без синхронизации.
+     */
+    public Parser snapshot() {
+        Parser parser = new Parser();
+        parser.listOfPriorityOperator = listOfPriorityOperator.stream().<Set<OperatorData>>map(ImmutableSet::copyOf).collect(ImmutableList.toImmutableList());
+        parser.modificationCount = modificationCount;
+        parser.precedenceClimbing = precedenceClimbing;
+        parser.precedenceTable = PrecedenceTable.of(parser.listOfPriorityOperator);
+        parser.immutable = true;
+        return parser;
+    }
+
     /**
      * @param tokenList Массив с токенами, который нужно преобразовать в AST дерево
      * @return Возвращает головной узел
@@ -72,11 +121,87 @@ public class Parser {
         return expr(new TokenBuffer(tokenList));
     }
 
+    /**
+     * @param tokenList Массив с токенами, который нужно преобразовать в AST дерево
+     * @param spans список, в который будут добавлены границы всех вложенных выражений (см. {@link ExpressionSpan})
+     * @return Возвращает головной узел
+     */
+    public Node parsing(List<Token> tokenList, List<ExpressionSpan> spans) throws CompileException {
+        return expr(new TokenBuffer(tokenList, spans));
+    }
+
     protected Node expr(TokenBuffer tokenBuffer) throws CompileException {
+        int startIndex = tokenBuffer.currentIndex;
         if(tokenBuffer.tokenList.isEmpty()) throw new SyntaxException("The expression cannot be empty",0,tokenBuffer.tokensToCode());
-        if(tokenBuffer.next().getLexemeType().equals(TokenType.EOF)) throw new SyntaxException("The expression cannot be empty",tokenBuffer.current().getPosition(),tokenBuffer.tokensToCode());
+        Token firstToken = tokenBuffer.next();
+        if(firstToken.getLexemeType().equals(TokenType.EOF)) throw new SyntaxException("The expression cannot be empty",firstToken.getPosition(),tokenBuffer.tokensToCode());
         tokenBuffer.prev();
-        return operator(tokenBuffer, listOfPriorityOperator.size()-1);
+        Node node = precedenceClimbing
+                ? climb(tokenBuffer, getPrecedenceTable(), listOfPriorityOperator.size()-1)
+                : operator(tokenBuffer, listOfPriorityOperator.size()-1);
+        tokenBuffer.addSpan(startIndex, node);
+        return node;
+    }
+
+    protected PrecedenceTable getPrecedenceTable() {
+        PrecedenceTable table = precedenceTable;
+        if (table == null) {
+            table = PrecedenceTable.of(listOfPriorityOperator);
+            precedenceTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Разбор операторов методом Пратта. Строит то же дерево, что и {@link Parser#operator(TokenBuffer, int)} для того же уровня,
+     * но уровни приоритета не перебираются по одному: знак оператора сразу находится в {@link PrecedenceTable}.
+     * @param maxLevel самый слабый уровень приоритета, операторы которого можно разобрать
+     * @return Возвращает узел выражения.
+     */
+    protected Node climb(TokenBuffer tokenBuffer, PrecedenceTable table, int maxLevel) throws CompileException {
+        table.check();
+        Node left;
+        // Самый сильный уровень, операторы которого еще могут идти после левого операнда.
+        // Более сильные операторы уже разобраны внутри операнда.
+        int minLevel;
+        Token token = tokenBuffer.current();
+        int prefixLevel = token.getLexemeType().equals(TokenType.OPERATOR) ? table.prefixLevel(token.getSign(), maxLevel) : -1;
+        if (prefixLevel >= 0) {
+            tokenBuffer.next();
+            UnaryOperatorNode unaryOperatorNode = new UnaryOperatorNode(token.getSign());
+            unaryOperatorNode.setNodes(climb(tokenBuffer, table, prefixLevel));
+            left = unaryOperatorNode;
+            minLevel = prefixLevel + 1;
+        }
+        else {
+            left = method(tokenBuffer);
+            minLevel = 0;
+        }
+
+        while (tokenBuffer.hasNext()) {
+            token = tokenBuffer.current();
+            if (!token.getLexemeType().equals(TokenType.OPERATOR)) break;
+            int level = table.infixLevel(token.getSign(), minLevel, maxLevel);
+            if (level < 0) break;
+            tokenBuffer.next();
+            if (table.isTernary(level)) {
+                Node argumentTwoNode = climb(tokenBuffer, table, level);
+                Token operatorTwo = tokenBuffer.next();
+                if (!operatorTwo.getLexemeType().equals(TokenType.OPERATOR)) throw new SyntaxException("Ternary operator expected", operatorTwo.getPosition(), tokenBuffer.tokensToCode());
+                Node argumentThreeNode = climb(tokenBuffer, table, level);
+                TernaryOperatorNode ternaryOperatorNode = new TernaryOperatorNode(token.getSign()+operatorTwo.getSign());
+                ternaryOperatorNode.setNodes(left, argumentTwoNode, argumentThreeNode);
+                left = ternaryOperatorNode;
+                minLevel = level + 1;
+            }
+            else {
+                BinaryOperatorNode binaryOperatorNode = new BinaryOperatorNode(token.getSign());
+                binaryOperatorNode.setNodes(left, climb(tokenBuffer, table, level - 1));
+                left = binaryOperatorNode;
+                minLevel = level;
+            }
+        }
+        return left;
     }
 
     public Set<OperatorData> getOperatorForIndex(int indexPriority) {
@@ -218,9 +343,13 @@ public class Parser {
             }
             Token methodToken = tokenBuffer.next();
             if(methodToken.lexemeType() != TokenType.METHOD) throw new SyntaxException("The \""+methodToken.getSign()+"\" operator must be followed by a method", methodToken.getPosition(),tokenBuffer.tokensToCode());
-            if(!tokenBuffer.next().lexemeType().equals(TokenType.COMPOUND_START)) throw new SyntaxException("Compound start expected", tokenBuffer.current().getPosition(), tokenBuffer.tokensToCode());
+            // Токен EOF последний, поэтому дальше него читать нельзя (например, недописанный "PI#getX").
+            Token compoundStart = tokenBuffer.next();
+            if(!compoundStart.lexemeType().equals(TokenType.COMPOUND_START)) throw new SyntaxException("Compound start expected", compoundStart.getPosition(), tokenBuffer.tokensToCode());
             List<Node> expressionList = new ArrayList<>();
-            if(!tokenBuffer.next().lexemeType().equals(TokenType.COMPOUND_END)) {
+            Token firstArgument = tokenBuffer.next();
+            if(firstArgument.lexemeType().equals(TokenType.EOF)) throw new SyntaxException("Compound end expected", firstArgument.getPosition(), tokenBuffer.tokensToCode());
+            if(!firstArgument.lexemeType().equals(TokenType.COMPOUND_END)) {
                 tokenBuffer.prev();
                 while (tokenBuffer.hasNext()) {
                     Node expression = expr(tokenBuffer);
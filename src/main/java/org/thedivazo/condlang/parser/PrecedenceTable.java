@@ -0,0 +1,106 @@
+package org.thedivazo.condlang.parser;
+
+import org.thedivazo.condlang.exception.CompileException;
+
+import java.util.*;
+
+/**
+ * Таблица приоритетов операторов для {@link Parser#climb(TokenBuffer, PrecedenceTable, int)}.
+ * Для каждого знака хранятся уровни приоритета, на которых он встречается как префиксный (унарный)
+ * и как инфиксный (бинарный или первый знак тернарного) оператор. Уровень 0 - самый сильный.
+ */
+public final class PrecedenceTable {
+
+    private static final int[] NO_LEVELS = new int[0];
+
+    private final Map<String, int[]> prefixLevels;
+
+    private final Map<String, int[]> infixLevels;
+
+    private final boolean[] ternaryLevels;
+
+    /**
+     * Сообщение об ошибке, если на одном уровне оказались операторы разных видов. Иначе null.
+     */
+    private final String error;
+
+    private PrecedenceTable(Map<String, int[]> prefixLevels, Map<String, int[]> infixLevels, boolean[] ternaryLevels, String error) {
+        this.prefixLevels = prefixLevels;
+        this.infixLevels = infixLevels;
+        this.ternaryLevels = ternaryLevels;
+        this.error = error;
+    }
+
+    /**
+     * @param listOfPriorityOperator уровни приоритета в порядке {@link Parser#addOperator(Parser.OperatorData...)}
+     * @return Возвращает таблицу приоритетов.
+     */
+    public static PrecedenceTable of(List<Set<Parser.OperatorData>> listOfPriorityOperator) {
+        Map<String, List<Integer>> prefixLevels = new HashMap<>();
+        Map<String, List<Integer>> infixLevels = new HashMap<>();
+        boolean[] ternaryLevels = new boolean[listOfPriorityOperator.size()];
+        String error = null;
+        for (int level = 0; level < listOfPriorityOperator.size(); level++) {
+            List<Parser.OperatorData> operatorsData = List.copyOf(listOfPriorityOperator.get(level));
+            if (operatorsData.size() == 2
+                    && operatorsData.get(0).getOperatorType().equals(OperatorType.TERNARY_1)
+                    && operatorsData.get(1).getOperatorType().equals(OperatorType.TERNARY_2)) {
+                ternaryLevels[level] = true;
+                infixLevels.computeIfAbsent(operatorsData.get(0).getSignOperator(), sign -> new ArrayList<>()).add(level);
+            }
+            else if (operatorsData.stream().allMatch(operatorData -> operatorData.getOperatorType().equals(OperatorType.BINARY))) {
+                for (Parser.OperatorData operatorData : operatorsData) {
+                    infixLevels.computeIfAbsent(operatorData.getSignOperator(), sign -> new ArrayList<>()).add(level);
+                }
+            }
+            else if (operatorsData.stream().allMatch(operatorData -> operatorData.getOperatorType().equals(OperatorType.UNARY))) {
+                for (Parser.OperatorData operatorData : operatorsData) {
+                    prefixLevels.computeIfAbsent(operatorData.getSignOperator(), sign -> new ArrayList<>()).add(level);
+                }
+            }
+            else if (error == null) error = "Operators of different kinds must have different precedence";
+        }
+        return new PrecedenceTable(toArrays(prefixLevels), toArrays(infixLevels), ternaryLevels, error);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> levels) {
+        Map<String, int[]> result = new HashMap<>(levels.size() * 2);
+        levels.forEach((sign, signLevels) -> result.put(sign, signLevels.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    /**
+     * @throws CompileException выбрасывается, если на одном уровне оказались операторы разных видов.
+     */
+    public void check() throws CompileException {
+        if (error != null) throw new CompileException(error);
+    }
+
+    /**
+     * Рекурсивный спуск доходит до префиксного оператора с самого слабого уровня, поэтому берется наибольший уровень.
+     * @return Возвращает наибольший уровень не выше maxLevel, на котором sign - префиксный оператор, или -1.
+     */
+    public int prefixLevel(String sign, int maxLevel) {
+        int[] levels = prefixLevels.getOrDefault(sign, NO_LEVELS);
+        for (int i = levels.length - 1; i >= 0; i--) {
+            if (levels[i] <= maxLevel) return levels[i];
+        }
+        return -1;
+    }
+
+    /**
+     * После операнда инфиксные операторы проверяются от сильного уровня к слабому, поэтому берется наименьший уровень.
+     * @return Возвращает наименьший уровень от minLevel до maxLevel, на котором sign - инфиксный оператор, или -1.
+     */
+    public int infixLevel(String sign, int minLevel, int maxLevel) {
+        for (int level : infixLevels.getOrDefault(sign, NO_LEVELS)) {
+            if (level > maxLevel) return -1;
+            if (level >= minLevel) return level;
+        }
+        return -1;
+    }
+
+    public boolean isTernary(int level) {
+        return ternaryLevels[level];
+    }
+}
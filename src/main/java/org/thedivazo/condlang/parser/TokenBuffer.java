@@ -27,7 +27,30 @@ public class TokenBuffer {
     }
 
     public TokenBuffer(List<Token> tokenList) {
+        this(tokenList, null);
+    }
+
+    /**
+     * @param spans список, в который {@link Parser} добавляет вложенные выражения ({@link ExpressionSpan}). Может быть null.
+     */
+    public TokenBuffer(List<Token> tokenList, List<ExpressionSpan> spans) {
         this.tokenList = tokenList.stream().filter(token -> !token.getLexemeType().equals(TokenType.SPACE)).toList();
+        this.spans = spans;
+    }
+
+    protected final List<ExpressionSpan> spans;
+
+    /**
+     * Запоминает границы разобранного выражения, если буфер был создан со списком выражений.
+     * Выражение верхнего уровня не запоминается.
+     * @param startIndex индекс первого токена выражения
+     * @param node корневой узел выражения
+     */
+    protected void addSpan(int startIndex, Node node) {
+        if (Objects.isNull(spans) || startIndex == 0) return;
+        Token opening = tokenList.get(startIndex - 1);
+        Token closing = tokenList.get(Math.min(currentIndex, tokenList.size() - 1));
+        spans.add(new ExpressionSpan(node, opening.getPosition() + opening.getSign().length(), closing.getPosition()));
     }
 
     protected int currentIndex = 0;
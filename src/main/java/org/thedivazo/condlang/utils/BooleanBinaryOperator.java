@@ -0,0 +1,52 @@
+package org.thedivazo.condlang.utils;
+
+/**
+ * Логический бинарный оператор над boolean без упаковки.
+ */
+@FunctionalInterface
+public interface BooleanBinaryOperator {
+
+    boolean applyAsBoolean(boolean value1, boolean value2);
+
+    /**
+     * @return Возвращает значение первого операнда, которое и является результатом, так что второй операнд не вычисляется
+     * (false для "и", true для "или"), или null, если всегда вычисляются оба операнда.
+     */
+    default Boolean getShortCircuitValue() {
+        return null;
+    }
+
+    /**
+     * @return Возвращает ленивое "и": второй операнд не вычисляется, если первый равен false.
+     */
+    static BooleanBinaryOperator and() {
+        return new BooleanBinaryOperator() {
+            @Override
+            public boolean applyAsBoolean(boolean value1, boolean value2) {
+                return value1 && value2;
+            }
+
+            @Override
+            public Boolean getShortCircuitValue() {
+                return Boolean.FALSE;
+            }
+        };
+    }
+
+    /**
+     * @return Возвращает ленивое "или": второй операнд не вычисляется, если первый равен true.
+     */
+    static BooleanBinaryOperator or() {
+        return new BooleanBinaryOperator() {
+            @Override
+            public boolean applyAsBoolean(boolean value1, boolean value2) {
+                return value1 || value2;
+            }
+
+            @Override
+            public Boolean getShortCircuitValue() {
+                return Boolean.TRUE;
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package org.thedivazo.condlang.utils;
+
+/**
+ * Предикат от двух double без упаковки (например, сравнение чисел).
+ */
+@FunctionalInterface
+public interface DoubleBiPredicate {
+    boolean test(double value1, double value2);
+}
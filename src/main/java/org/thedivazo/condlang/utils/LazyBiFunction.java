@@ -0,0 +1,10 @@
+package org.thedivazo.condlang.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Бинарная функция, получающая операнды лениво. Операнд вычисляется только при вызове {@link Supplier#get()}.
+ */
+public interface LazyBiFunction<T, U, R> {
+    R apply(Supplier<T> t, Supplier<U> u);
+}
@@ -0,0 +1,10 @@
+package org.thedivazo.condlang.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Тернарная функция, у которой первый аргумент вычисляется сразу, а ветви - только при вызове {@link Supplier#get()}.
+ */
+public interface LazyTernFunction<T, U, D, R> {
+    R apply(T t, Supplier<U> u, Supplier<D> d);
+}
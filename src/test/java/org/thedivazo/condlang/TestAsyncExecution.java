@@ -0,0 +1,92 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+import static org.thedivazo.condlang.TestFixtures.lazyBinary;
+
+public class TestAsyncExecution {
+
+    private final AtomicInteger started = new AtomicInteger();
+
+    private CompletableFuture<Object> level = new CompletableFuture<>();
+
+    private CompletableFuture<Object> kills = new CompletableFuture<>();
+
+    private ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addBinaryOperator(binary("+", (value1, value2) -> (Double) value1 + (Double) value2));
+        parserExpression.addLazyBinaryOperator(lazyBinary("&&", (value1, value2) -> (Boolean) value1.get() && (Boolean) value2.get()));
+        parserExpression.setAsyncCondition("level", name -> {
+            started.incrementAndGet();
+            return level;
+        });
+        parserExpression.setAsyncCondition("kills", name -> {
+            started.incrementAndGet();
+            return kills;
+        });
+        parserExpression.setAsyncCondition("broken", name -> CompletableFuture.failedFuture(new IllegalStateException("backend is down")));
+        parserExpression.setCondition("[0-9]+", Double::valueOf, true);
+        parserExpression.setCondition("[a-z]+");
+        return parserExpression;
+    }
+
+    @Test
+    void concurrentConditionsTest() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+                ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+                parserExpression.setExecutionStrategy(executionStrategy);
+                started.set(0);
+                level = new CompletableFuture<>();
+                kills = new CompletableFuture<>();
+                Serializable code = parserExpression.compile("level + kills + 1");
+                CompletableFuture<Object> result = parserExpression.executeAsync(code, null, executor);
+                // Both handlers are started before either of them completes.
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (started.get() < 2 && System.nanoTime() < deadline) Thread.onSpinWait();
+                assertEquals(2, started.get(), executionStrategy.toString());
+                assertFalse(result.isDone());
+                kills.complete(3d);
+                level.complete(10d);
+                assertEquals(14d, result.get(5, TimeUnit.SECONDS), executionStrategy.toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void localArgumentsTest() throws Exception {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        level.complete(10d);
+        Serializable code = parserExpression.compile("level + $kills");
+        assertEquals(15d, parserExpression.executeAsync(code, Map.of("kills", 5d)).get(5, TimeUnit.SECONDS));
+        assertEquals(1, started.get());
+        assertEquals(12d, parserExpression.execute(code, Map.of("kills", 2d)));
+        assertEquals(1d, parserExpression.executeAsync(code, Map.of("level", 0d, "kills", 1d)).get(5, TimeUnit.SECONDS));
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void failureTest() throws CompileException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        ExecutionException conditionFailure = assertThrows(ExecutionException.class,
+                () -> parserExpression.executeAsync(parserExpression.compile("broken + 1"), null).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, conditionFailure.getCause());
+        ExecutionException interpreterFailure = assertThrows(ExecutionException.class,
+                () -> parserExpression.executeAsync(parserExpression.compile("unknown + 1"), null).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InterpreterException.class, interpreterFailure.getCause());
+        assertThrows(IllegalStateException.class, () -> parserExpression.execute("broken + 1"));
+    }
+}
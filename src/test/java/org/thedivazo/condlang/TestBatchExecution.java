@@ -0,0 +1,48 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestBatchExecution {
+
+    @Test
+    void batchTest() throws CompileException, InterpreterException {
+        Serializable compiledCode = parserExpression.compile("$variable * 2 + 1 > 100 ? $variable : -$variable");
+        List<Map<String, Constable>> localArgumentsList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            localArgumentsList.add(Map.of("variable", (double) i));
+        }
+        Constable[] expected = new Constable[localArgumentsList.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = parserExpression.execute(compiledCode, localArgumentsList.get(i));
+        }
+
+        Constable[] results = new Constable[localArgumentsList.size()];
+        parserExpression.executeBatch(compiledCode, localArgumentsList, results);
+        assertArrayEquals(expected, results);
+
+        Constable[] parallelResults = new Constable[localArgumentsList.size()];
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            parserExpression.executeBatch(compiledCode, localArgumentsList, parallelResults, forkJoinPool);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        assertArrayEquals(expected, parallelResults);
+
+        assertEquals(List.of(expected), parserExpression.executeBatch(((CompiledExpression<?>) compiledCode).getNode(), localArgumentsList));
+        assertThrows(IllegalArgumentException.class, () -> parserExpression.executeBatch(compiledCode, localArgumentsList, new Constable[1]));
+    }
+}
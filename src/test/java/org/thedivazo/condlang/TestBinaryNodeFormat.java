@@ -0,0 +1,126 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.parser.AST.BinaryOperatorNode;
+import org.thedivazo.condlang.parser.AST.ConstantNode;
+import org.thedivazo.condlang.parser.BinaryNodeFormat;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.CODES;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestBinaryNodeFormat {
+
+    @Test
+    void roundTripTest() throws CompileException, InterpreterException, IOException {
+        Map<String, Constable> variables = Map.of("variable", 41d);
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        for (String code : CODES) {
+            CompiledExpression<?> compiledExpression = (CompiledExpression<?>) parserExpression.compile(code);
+            byte[] bytes = compiledExpression.toByteArray();
+            assertTrue(bytes.length < javaSerializedSize(compiledExpression), code);
+            compiledExpression.writeTo(byteBuffer);
+
+            CompiledExpression<?> decodedExpression = CompiledExpression.readFrom(ByteBuffer.wrap(bytes));
+            assertEquals(compiledExpression.toString(), decodedExpression.toString(), code);
+            if (code.contains("#")) continue;
+            assertEquals(parserExpression.execute(compiledExpression, variables), parserExpression.execute(decodedExpression, variables), code);
+        }
+
+        byteBuffer.flip();
+        for (String code : CODES) {
+            assertEquals(parserExpression.compile(code).toString(), CompiledExpression.readFrom(byteBuffer).toString(), code);
+        }
+        assertFalse(byteBuffer.hasRemaining());
+    }
+
+    @Test
+    void corruptedDataTest() throws CompileException {
+        byte[] bytes = ((CompiledExpression<?>) parserExpression.compile("1 + $variable")).toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.readFrom(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.readFrom(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void truncatedAndGarbageTest() throws CompileException {
+        for (String code : CODES) {
+            byte[] bytes = ((CompiledExpression<?>) parserExpression.compile(code)).toByteArray();
+            for (int length = 0; length < bytes.length; length++) {
+                ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, length);
+                assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.readFrom(truncated), code);
+            }
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            byte[] bytes = new byte[3 + random.nextInt(64)];
+            random.nextBytes(bytes);
+            bytes[0] = 'C';
+            bytes[1] = 'L';
+            bytes[2] = BinaryNodeFormat.VERSION;
+            try {
+                BinaryNodeFormat.readFrom(ByteBuffer.wrap(bytes));
+            } catch (IllegalArgumentException e) {
+                // expected for almost all inputs
+            }
+        }
+
+        // A huge function arity and a huge string table must not allocate arrays of that size.
+        byte[] hugeArity = {'C', 'L', BinaryNodeFormat.VERSION, 1, 1, 'f', 5, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.readFrom(ByteBuffer.wrap(hugeArity)));
+        byte[] negativeCount = {'C', 'L', BinaryNodeFormat.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.readFrom(ByteBuffer.wrap(negativeCount)));
+
+        // Unary nodes nested far deeper than MAX_DEPTH.
+        ByteBuffer deep = ByteBuffer.allocate(6 + 2 * 100000 + 2);
+        deep.put(new byte[]{'C', 'L', BinaryNodeFormat.VERSION, 1, 1, '-'});
+        for (int i = 0; i < 100000; i++) deep.put(new byte[]{3, 0});
+        deep.put(new byte[]{7, 0});
+        deep.flip();
+        assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.readFrom(deep));
+    }
+
+    @Test
+    void constantTypesTest() {
+        Serializable[] values = {null, true, 1.5d, 2.5f, 3L, 4, (short) 5, (byte) 6, 'c', "text",
+                new BigInteger("123456789012345678901234567890"), new BigDecimal("-1234.5678"), new BigDecimal("1E+5")};
+        for (Serializable value : values) {
+            Node decodedNode = BinaryNodeFormat.readFrom(ByteBuffer.wrap(BinaryNodeFormat.toByteArray(new ConstantNode(value))));
+            assertEquals(value, ((ConstantNode) decodedNode).getValue(), String.valueOf(value));
+        }
+
+        BinaryOperatorNode node = new BinaryOperatorNode("+");
+        node.setNodes(new Node[]{new ConstantNode(1d), new ConstantNode(new CustomValue(1))});
+        assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.toByteArray(node));
+        // The former serialized-object constant type must not be read.
+        byte[] serialized = {'C', 'L', BinaryNodeFormat.VERSION, 0, 7, 7, 1, 0};
+        assertThrows(IllegalArgumentException.class, () -> BinaryNodeFormat.readFrom(ByteBuffer.wrap(serialized)));
+    }
+
+    private record CustomValue(int value) implements Serializable {
+    }
+
+    private static int javaSerializedSize(Object object) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+        return byteArrayOutputStream.size();
+    }
+}
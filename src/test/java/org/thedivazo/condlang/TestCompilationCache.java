@@ -0,0 +1,47 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+
+public class TestCompilationCache {
+
+    @Test
+    void cacheTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = new ParserExpression<>();
+        parserExpression.setCondition("[0-9]+", Integer::valueOf);
+        parserExpression.addSkipSymbols(" +");
+        parserExpression.setCompilationCache(2, null);
+
+        assertEquals(1, parserExpression.execute("1"));
+        assertEquals(1, parserExpression.execute("1"));
+        assertEquals(1, parserExpression.getCompilationCacheStats().hitCount());
+        assertEquals(1, parserExpression.getCompilationCacheStats().missCount());
+
+        parserExpression.execute("2");
+        parserExpression.execute("3");
+        assertEquals(1, parserExpression.getCompilationCacheStats().evictionCount());
+        assertEquals(2, parserExpression.getCompilationCacheStats().size());
+
+        assertThrows(CompileException.class, () -> parserExpression.execute("1 & 2"));
+        parserExpression.addBinaryOperator(binary("&", (value1, value2) -> (Integer) value1 & (Integer) value2));
+        assertEquals(0, parserExpression.execute("1 & 2"));
+        assertEquals(1, parserExpression.getCompilationCacheStats().size());
+    }
+
+    @Test
+    void compilerFailureTest() {
+        CompilationCache<Object> compilationCache = new CompilationCache<>(2, null);
+        // Guava wraps exceptions and errors of the loader, the cache rethrows the original ones
+        assertThrows(IllegalStateException.class, () -> compilationCache.get("1", 0, code -> {
+            throw new IllegalStateException(code);
+        }));
+        assertThrows(StackOverflowError.class, () -> compilationCache.get("1", 0, code -> {
+            throw new StackOverflowError(code);
+        }));
+    }
+}
@@ -0,0 +1,74 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.EXECUTABLE_CODES;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestConcurrentExecution {
+
+    @Test
+    void immutableTest() {
+        ParserExpression<Constable, Constable, Constable> immutableExpression = parserExpression.snapshot();
+        assertTrue(immutableExpression.isImmutable());
+        assertFalse(parserExpression.isImmutable());
+        assertThrows(UnsupportedOperationException.class, () -> immutableExpression.setCondition("test", Boolean.TRUE));
+        assertThrows(UnsupportedOperationException.class, () -> immutableExpression.addDelimiter(";"));
+        assertThrows(UnsupportedOperationException.class, () -> immutableExpression.setFunction("test", arguments -> Boolean.TRUE));
+        assertThrows(UnsupportedOperationException.class, () -> immutableExpression.disableCompilationCache());
+
+        ParserExpression<Object, Object, Object> builtExpression = ParserExpression.builder()
+                .setCondition("[0-9]+", Integer::valueOf)
+                .addSkipSymbols(" +")
+                .build();
+        assertTrue(builtExpression.isImmutable());
+        assertThrows(UnsupportedOperationException.class, () -> builtExpression.addSkipSymbols("\t"));
+    }
+
+    @Test
+    void stressTest() throws CompileException, InterpreterException, InterruptedException, ExecutionException {
+        ParserExpression<Constable, Constable, Constable> immutableExpression = parserExpression.snapshot();
+        List<Serializable> compiledCodes = new ArrayList<>();
+        List<Object> expectedResults = new ArrayList<>();
+        for (String code : EXECUTABLE_CODES) {
+            compiledCodes.add(immutableExpression.compile(code));
+            expectedResults.add(parserExpression.execute(code, Map.of("variable", 20d)));
+        }
+
+        int threads = 64;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int threadIndex = thread;
+                futures.add(executorService.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < 2000; i++) {
+                        int codeIndex = (threadIndex + i) % EXECUTABLE_CODES.size();
+                        Map<String, Constable> variables = Map.of("variable", 20d);
+                        assertEquals(expectedResults.get(codeIndex), immutableExpression.execute(EXECUTABLE_CODES.get(codeIndex), variables));
+                        assertEquals(expectedResults.get(codeIndex), immutableExpression.execute(compiledCodes.get(codeIndex), variables));
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
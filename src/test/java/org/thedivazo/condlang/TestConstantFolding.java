@@ -0,0 +1,150 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.parser.AST.BinaryOperatorNode;
+import org.thedivazo.condlang.parser.AST.ConditionNode;
+import org.thedivazo.condlang.parser.AST.ConstantNode;
+import org.thedivazo.condlang.parser.Node;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+import static org.thedivazo.condlang.TestFixtures.lazyBinary;
+
+public class TestConstantFolding {
+
+    private final AtomicInteger randomCalls = new AtomicInteger();
+
+    private ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addUnaryOperator(new ParserExpression.UnaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return "!";
+            }
+
+            @Override
+            public Function<Object, Object> getUnaryOperator() {
+                return value -> !(Boolean) value;
+            }
+
+            @Override
+            public boolean isPure() {
+                return true;
+            }
+
+            @Override
+            public boolean isInvolution() {
+                return true;
+            }
+        });
+        parserExpression.addBinaryOperator(binary("*", (value1, value2) -> (Double) value1 * (Double) value2, true));
+        parserExpression.addBinaryOperator(binary("+", (value1, value2) -> (Double) value1 + (Double) value2, true));
+        parserExpression.setFunction("random", arguments -> (double) randomCalls.incrementAndGet());
+        parserExpression.setCondition("true", name -> Boolean.TRUE, true);
+        parserExpression.setCondition("answer", 42d);
+        parserExpression.setCondition("[0-9]+");
+        parserExpression.setCondition("[a-z]+", name -> 10d);
+        parserExpression.setAlternativeConditionParser(Double::valueOf, true);
+        return parserExpression;
+    }
+
+    private static Node getNode(Serializable compiledCode) {
+        return ((CompiledExpression<?>) compiledCode).getNode();
+    }
+
+    @Test
+    void foldingTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+
+        Node constantNode = getNode(parserExpression.compile("1 + 2 * 3"));
+        assertInstanceOf(ConstantNode.class, constantNode);
+        assertEquals(7d, ((ConstantNode) constantNode).getValue());
+        assertInstanceOf(ConstantNode.class, getNode(parserExpression.compile("!true")));
+
+        Node partialNode = getNode(parserExpression.compile("2 * 3 + $x"));
+        assertInstanceOf(BinaryOperatorNode.class, partialNode);
+        assertInstanceOf(ConstantNode.class, partialNode.getChildrenNodes().get(0));
+        assertInstanceOf(ConditionNode.class, partialNode.getChildrenNodes().get(1));
+
+        assertInstanceOf(ConditionNode.class, getNode(parserExpression.compile("!!$x")));
+        Node tripleNegationNode = getNode(parserExpression.compile("!!!$x"));
+        assertEquals("!", tripleNegationNode.getNodeName());
+        assertInstanceOf(ConditionNode.class, tripleNegationNode.getChildrenNodes().get(0));
+
+        Serializable impureCode = parserExpression.compile("random() + 1");
+        assertEquals(0, randomCalls.get());
+        assertEquals(2d, parserExpression.execute(impureCode));
+        assertEquals(3d, parserExpression.execute(impureCode));
+
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            assertEquals(17d, parserExpression.execute("1 + 2 * 3 + $x"));
+            assertEquals(11d, parserExpression.execute("1 + 2 * 3 + $x", Map.of("x", 4d)));
+        }
+
+        parserExpression.setConstantFolding(false);
+        assertInstanceOf(BinaryOperatorNode.class, getNode(parserExpression.compile("1 + 2 * 3")));
+        assertEquals(7d, parserExpression.execute("1 + 2 * 3"));
+    }
+
+    @Test
+    void localOverrideTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        // A static condition is not pure, so folding keeps it and a local argument still overrides it
+        assertInstanceOf(ConditionNode.class, getNode(parserExpression.compile("answer")));
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            assertEquals(42d, parserExpression.execute("answer"), executionStrategy.name());
+            assertEquals(1d, parserExpression.execute("answer", Map.of("answer", 1d)), executionStrategy.name());
+            assertEquals(3d, parserExpression.execute("answer + 2", Map.of("answer", 1d)), executionStrategy.name());
+        }
+    }
+
+    @Test
+    void deepExpressionTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        parserExpression.setExecutionStrategy(ExecutionStrategy.STACK_MACHINE);
+        // Folding walks the tree without recursion, so a long chain of operators does not overflow the stack
+        assertEquals(200010d, parserExpression.execute(parserExpression.compile("a" + " + a".repeat(20000))));
+        assertEquals(20002d, parserExpression.execute(parserExpression.compile("1 + 1" + " + 1".repeat(20000))));
+    }
+
+    @Test
+    void serializationTest() throws CompileException, InterpreterException, IOException, ClassNotFoundException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        Serializable compiledCode = parserExpression.compile("(1 + 2) * 3 + $x");
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(compiledCode);
+        }
+        Serializable deserializedCode;
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))) {
+            deserializedCode = (Serializable) objectInputStream.readObject();
+        }
+        assertInstanceOf(ConstantNode.class, getNode(deserializedCode).getChildrenNodes().get(0));
+        assertEquals(19d, parserExpression.execute(deserializedCode));
+    }
+
+    @Test
+    void handlerExceptionTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        parserExpression.addLazyBinaryOperator(lazyBinary("&&", (bol1, bol2) -> (Boolean) bol1.get() && (Boolean) bol2.get()));
+        // A failing pure handler keeps its node, so the error can only happen if the node is really executed
+        assertFalse(getNode(parserExpression.compile("!1")) instanceof ConstantNode);
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            assertEquals(false, parserExpression.execute("$x && !1", Map.of("x", false)), executionStrategy.name());
+            assertThrows(ClassCastException.class, () -> parserExpression.execute("$x && !1", Map.of("x", true)), executionStrategy.name());
+        }
+    }
+}
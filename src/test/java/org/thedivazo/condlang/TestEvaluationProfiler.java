@@ -0,0 +1,95 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.EvaluationProfiler;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestEvaluationProfiler {
+
+    private static void assertPositions(String expression, EvaluationProfiler.ProfileNode profileNode) {
+        assertTrue(expression.startsWith(profileNode.getName(), profileNode.getPosition()), profileNode.getName());
+        long childrenTime = 0;
+        for (EvaluationProfiler.ProfileNode child : profileNode.getChildren()) {
+            assertTrue(child.getPosition() >= profileNode.getPosition());
+            assertTrue(child.getPosition() + child.getLength() <= profileNode.getPosition() + profileNode.getLength());
+            childrenTime += child.getTotalTime();
+            assertPositions(expression, child);
+        }
+        assertEquals(profileNode.getTotalTime(), profileNode.getSelfTime() + childrenTime);
+    }
+
+    @Test
+    void profileTest() throws CompileException, InterpreterException {
+        Serializable code = parserExpression.compile("$variable > 100 && pow(cos($variable),2) > 1 || max(1, -$variable) > 2");
+        EvaluationProfiler<Constable> profiler = new EvaluationProfiler<>();
+        Map<String, Constable> arguments = Map.of("variable", 41d);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(parserExpression.execute(code, arguments), parserExpression.execute(code, arguments, profiler));
+        }
+        String expression = profiler.getExpressions().iterator().next();
+        assertEquals(List.of(expression), List.copyOf(profiler.getExpressions()));
+        EvaluationProfiler.ProfileNode root = profiler.getRoot(expression);
+        assertEquals(3, root.getCount());
+        assertEquals(0, root.getPosition());
+        assertEquals(expression.length(), root.getLength());
+        assertPositions(expression, root);
+
+        EvaluationProfiler.ProfileNode and = root.getChildren().get(0);
+        assertEquals("&&", and.getName());
+        assertEquals(2, and.getChildren().size());
+        assertEquals(3, and.getChildren().get(1).getCount());
+        EvaluationProfiler.ProfileNode max = root.getChildren().get(1).getChildren().get(0);
+        assertEquals("max", max.getName());
+        EvaluationProfiler.ProfileNode negation = max.getChildren().get(1);
+        assertEquals("-", negation.getName());
+        assertEquals(3, negation.getChildren().get(0).getCount());
+
+        String report = profiler.toTreeReport();
+        assertTrue(report.startsWith(expression + "\n"));
+        assertTrue(report.contains(") " + expression.substring(max.getPosition(), max.getPosition() + max.getLength()) + " calls=3 "));
+        for (String line : profiler.toFlameGraph().split("\n")) {
+            assertTrue(line.matches(".+;[^;]+@[0-9]+ [0-9]+"), line);
+        }
+    }
+
+    @Test
+    void exceptionTest() throws CompileException {
+        EvaluationProfiler<Constable> profiler = new EvaluationProfiler<>();
+        Serializable code = parserExpression.compile("1 + $variable#length()");
+        assertThrows(InterpreterException.class, () -> parserExpression.execute(code, Map.of("variable", 1d), profiler));
+        EvaluationProfiler.ProfileNode root = profiler.getRoot(profiler.getExpressions().iterator().next());
+        assertEquals(1, root.getExceptionCount());
+        assertEquals(1, root.getChildren().get(1).getExceptionCount());
+        assertEquals(0, root.getChildren().get(0).getExceptionCount());
+        assertTrue(profiler.toTreeReport().contains("exceptions=1"));
+        profiler.reset();
+        assertTrue(profiler.getExpressions().isEmpty());
+    }
+
+    @Test
+    void flatTreeTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> flatParserExpression = new ParserExpression<>();
+        flatParserExpression.setExecutionStrategy(ExecutionStrategy.FLAT_TREE);
+        flatParserExpression.setFunction("first", arguments -> arguments.get(0));
+        flatParserExpression.setCondition("[ab]");
+        flatParserExpression.addCompoundOperators("\\(", "\\)");
+        flatParserExpression.addDelimiter("\\,");
+        flatParserExpression.addSkipSymbols(" +");
+        Serializable code = flatParserExpression.compile("first(a, b)");
+        EvaluationProfiler<Object> profiler = new EvaluationProfiler<>();
+        flatParserExpression.execute(code, Map.of("a", 1, "b", 2), profiler);
+        flatParserExpression.execute(code, Map.of("a", 1, "b", 2), profiler);
+        assertEquals(1, profiler.getExpressions().size());
+        assertEquals(2, profiler.getRoot("first(a,b)").getCount());
+    }
+}
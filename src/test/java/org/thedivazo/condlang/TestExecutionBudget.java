@@ -0,0 +1,114 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.BudgetExceededException;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionBudget;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestExecutionBudget {
+
+    @Test
+    void stepLimitTest() throws CompileException, InterpreterException {
+        Serializable code = parserExpression.compile("1 + 2 * 3");
+        ExecutionBudget<Constable> budget = ExecutionBudget.ofSteps(5);
+        assertEquals(parserExpression.execute(code), parserExpression.execute(code, null, budget));
+        assertEquals(5, budget.getSteps());
+        assertEquals(0, budget.getRemainingSteps());
+
+        BudgetExceededException exception = assertThrows(BudgetExceededException.class,
+                () -> parserExpression.execute(code, null, ExecutionBudget.ofSteps(3)));
+        assertEquals(3, exception.getSteps());
+        assertFalse(exception.isDeadlineExceeded());
+        assertFalse(exception.getNode().isEmpty());
+    }
+
+    @Test
+    void sharedBudgetTest() throws CompileException, InterpreterException {
+        Serializable code = parserExpression.compile("$variable * 2");
+        ExecutionBudget<Constable> budget = ExecutionBudget.ofSteps(7);
+        Map<String, Constable> variables = Map.of("variable", 4d);
+        parserExpression.execute(code, variables, budget);
+        parserExpression.execute(code, variables, budget);
+        assertEquals(6, budget.getSteps());
+        assertThrows(BudgetExceededException.class, () -> parserExpression.execute(code, variables, budget));
+        assertEquals(7, budget.getSteps());
+    }
+
+    @Test
+    void deadlineTest() throws CompileException, InterpreterException {
+        Serializable code = parserExpression.compile("max(1, 2, 3)");
+        BudgetExceededException exception = assertThrows(BudgetExceededException.class,
+                () -> parserExpression.execute(code, null, ExecutionBudget.ofDeadline(System.nanoTime())));
+        assertTrue(exception.isDeadlineExceeded());
+        assertEquals(0, exception.getSteps());
+        assertInstanceOf(InterpreterException.class, exception);
+
+        ExecutionBudget<Constable> budget = ExecutionBudget.ofTimeout(Duration.ofMinutes(1));
+        assertEquals(parserExpression.execute(code), parserExpression.execute(code, null, budget));
+        assertEquals(Long.MAX_VALUE - 4, budget.getRemainingSteps());
+    }
+
+    @Test
+    void strategiesTest() throws CompileException, InterpreterException {
+        String code = "max(1, 2, 3) + $variable * 2";
+        Map<String, Constable> variables = Map.of("variable", 4d);
+        ExecutionBudget<Constable> treeBudget = ExecutionBudget.ofSteps(100);
+        Constable expected = parserExpression.execute(parserExpression.compile(code), variables, treeBudget);
+        try {
+            for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+                parserExpression.setExecutionStrategy(executionStrategy);
+                Serializable compiled = parserExpression.compile(code);
+                ExecutionBudget<Constable> budget = ExecutionBudget.ofSteps(100);
+                assertEquals(expected, parserExpression.execute(compiled, variables, budget), executionStrategy.toString());
+                assertEquals(treeBudget.getSteps(), budget.getSteps(), executionStrategy.toString());
+
+                BudgetExceededException exception = assertThrows(BudgetExceededException.class,
+                        () -> parserExpression.execute(compiled, variables, ExecutionBudget.ofSteps(3)));
+                assertEquals(3, exception.getSteps(), executionStrategy.toString());
+                assertFalse(exception.getNode().isEmpty());
+            }
+        } finally {
+            parserExpression.setExecutionStrategy(ExecutionStrategy.EVALUATOR_TREE);
+        }
+    }
+
+    @Test
+    void cachedEvaluatorTest() throws CompileException {
+        CompiledExpression<Constable> compiled = (CompiledExpression<Constable>) parserExpression.compile("1 + 2 * 3");
+        // The budgeted evaluator is compiled once and reused by every budgeted execution
+        assertSame(compiled.getBudgetedEvaluator(parserExpression.getInterpreter()), compiled.getBudgetedEvaluator(parserExpression.getInterpreter()));
+        assertNotSame(compiled.getEvaluator(parserExpression.getInterpreter()), compiled.getBudgetedEvaluator(parserExpression.getInterpreter()));
+    }
+
+    @Test
+    void deepNestingTest() throws CompileException, InterpreterException {
+        int depth = 100_000;
+        StringBuilder code = new StringBuilder("$variable");
+        for (int i = 0; i < depth; i++) {
+            code.append(" + 1");
+        }
+        parserExpression.setExecutionStrategy(ExecutionStrategy.STACK_MACHINE);
+        parserExpression.setConstantFolding(false);
+        try {
+            Serializable compiled = parserExpression.compile(code.toString());
+            ExecutionBudget<Constable> budget = ExecutionBudget.ofSteps(Long.MAX_VALUE);
+            assertEquals(depth + 1d, parserExpression.execute(compiled, Map.of("variable", 1d), budget));
+            assertEquals(2L * depth + 1, budget.getSteps());
+            assertThrows(BudgetExceededException.class, () -> parserExpression.execute(compiled, Map.of("variable", 1d), ExecutionBudget.ofSteps(1000)));
+        } finally {
+            parserExpression.setConstantFolding(true);
+            parserExpression.setExecutionStrategy(ExecutionStrategy.EVALUATOR_TREE);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.thedivazo.condlang;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.EXECUTABLE_CODES;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestExecutionStrategy {
+
+    @AfterEach
+    void resetStrategy() {
+        parserExpression.setExecutionStrategy(ExecutionStrategy.EVALUATOR_TREE);
+    }
+
+    @Test
+    void strategiesTest() throws CompileException, InterpreterException {
+        Map<String, Constable> variables = new HashMap<>();
+        variables.put("variable", 41d);
+        for (String code : EXECUTABLE_CODES) {
+            Serializable compiledCode = parserExpression.compile(code);
+            Object expected = parserExpression.execute(((CompiledExpression<?>) compiledCode).getNode(), variables);
+            for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+                parserExpression.setExecutionStrategy(executionStrategy);
+                assertEquals(expected, parserExpression.execute(compiledCode, variables), executionStrategy + ": " + code);
+            }
+        }
+    }
+
+    @Test
+    void unknownConditionTest() throws CompileException, InterpreterException {
+        parserExpression.setAlternativeConditionParser(null);
+        try {
+            Serializable compiledCode = parserExpression.compile("$unknownVariable");
+            for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+                parserExpression.setExecutionStrategy(executionStrategy);
+                assertThrows(InterpreterException.class, () -> parserExpression.execute(compiledCode));
+                assertEquals(1d, parserExpression.execute(compiledCode, Map.of("unknownVariable", 1d)));
+            }
+        } finally {
+            parserExpression.setAlternativeConditionParser(NumberUtils::createDouble);
+        }
+    }
+}
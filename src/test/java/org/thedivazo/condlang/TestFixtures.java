@@ -0,0 +1,60 @@
+package org.thedivazo.condlang;
+
+import org.thedivazo.condlang.utils.LazyBiFunction;
+
+import java.util.function.BiFunction;
+
+/**
+ * Shared building blocks for the tests that set up their own {@link ParserExpression}.
+ */
+public class TestFixtures {
+
+    /**
+     * @return Returns an expression parser with the common syntax: spaces are skipped, "(" and ")" group operands
+     * and "$" starts a variable.
+     */
+    public static ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = new ParserExpression<>();
+        parserExpression.addCompoundOperators("\\(", "\\)");
+        parserExpression.addSkipSymbols(" +");
+        parserExpression.addVariableStartSymbols("\\$");
+        return parserExpression;
+    }
+
+    public static ParserExpression.BinaryOperatorWrapper<Object, Object> binary(String sign, BiFunction<Object, Object, Object> operator) {
+        return binary(sign, operator, false);
+    }
+
+    public static ParserExpression.BinaryOperatorWrapper<Object, Object> binary(String sign, BiFunction<Object, Object, Object> operator, boolean pure) {
+        return new ParserExpression.BinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public BiFunction<Object, Object, Object> getBinaryOperator() {
+                return operator;
+            }
+
+            @Override
+            public boolean isPure() {
+                return pure;
+            }
+        };
+    }
+
+    public static ParserExpression.LazyBinaryOperatorWrapper<Object, Object> lazyBinary(String sign, LazyBiFunction<Object, Object, Object> operator) {
+        return new ParserExpression.LazyBinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public LazyBiFunction<Object, Object, Object> getBinaryOperator() {
+                return operator;
+            }
+        };
+    }
+}
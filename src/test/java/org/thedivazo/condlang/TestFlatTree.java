@@ -0,0 +1,89 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.SlotLayout;
+import org.thedivazo.condlang.parser.FlatTree;
+import org.thedivazo.condlang.parser.Node;
+
+import java.lang.constant.Constable;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.CODES;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestFlatTree {
+
+    @AfterEach
+    void resetStrategy() {
+        parserExpression.setExecutionStrategy(ExecutionStrategy.EVALUATOR_TREE);
+    }
+
+    @Test
+    void nodeViewTest() throws CompileException {
+        for (String code : CODES) {
+            Node node = ((CompiledExpression<?>) parserExpression.compile(code)).getNode();
+            FlatTree flatTree = FlatTree.of(node);
+            assertEquals(node.toString(), flatTree.toNode().toString(), code);
+            assertEquals(node.getNodeName(), flatTree.getName(0), code);
+        }
+
+        FlatTree flatTree = FlatTree.of(((CompiledExpression<?>) parserExpression.compile("$variable + $variable * 2")).getNode());
+        assertEquals(FlatTree.BINARY, flatTree.getKind(0));
+        assertEquals(2, flatTree.getChildCount(0));
+        int first = flatTree.getChild(0, 0);
+        int second = flatTree.getChild(flatTree.getChild(0, 1), 0);
+        assertEquals(FlatTree.CONDITION, flatTree.getKind(first));
+        assertEquals(0, flatTree.getChildCount(first));
+        assertEquals(flatTree.getNameIndex(first), flatTree.getNameIndex(second));
+        assertTrue(flatTree.getStringCount() < flatTree.size());
+    }
+
+    @Test
+    void flatExecutionTest() throws CompileException, InterpreterException {
+        Map<String, Constable> variables = Map.of("variable", 41d);
+        for (String code : CODES) {
+            if (code.contains("#")) continue;
+            CompiledExpression<?> compiledExpression = (CompiledExpression<?>) parserExpression.compile(code);
+            Object expected = parserExpression.execute(compiledExpression, variables);
+            CompiledExpression<?> flatExpression = compiledExpression.flatten();
+            assertNotNull(flatExpression.getFlatTree());
+            assertEquals(compiledExpression.getSlotLayout().getSlotNames(), flatExpression.getSlotLayout().getSlotNames(), code);
+            for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+                parserExpression.setExecutionStrategy(executionStrategy);
+                assertEquals(expected, parserExpression.execute(flatExpression, variables), executionStrategy + ": " + code);
+            }
+        }
+
+        parserExpression.setExecutionStrategy(ExecutionStrategy.FLAT_TREE);
+        CompiledExpression<?> compiledExpression = (CompiledExpression<?>) parserExpression.compile("$variable + 1");
+        assertNotNull(compiledExpression.getFlatTree());
+        assertEquals(42d, parserExpression.execute(compiledExpression, variables));
+    }
+
+    @Test
+    void memoSlotsTest() throws CompileException {
+        String[] codes = {
+                "$variable#getName()#length() + $variable#getName()#length()",
+                "$variable#getName() == $other#getName() ? $variable#getName()#length() : 'a'#length()",
+                "$variable#equals(1 + 2)#toString()",
+        };
+        for (String code : codes) {
+            Node node = ((CompiledExpression<?>) parserExpression.compile(code)).getNode();
+            FlatTree flatTree = FlatTree.of(node);
+            SlotLayout nodeLayout = SlotLayout.of(node);
+            SlotLayout flatLayout = SlotLayout.of(flatTree);
+            assertEquals(nodeLayout.getMemoSize(), flatLayout.getMemoSize(), code);
+            // Memo slots computed from the flat arrays must match the slots of the equivalent Node view
+            int[] memoSlots = flatLayout.getMemoSlots(flatTree);
+            for (int i = 0; i < flatTree.size(); i++) {
+                assertEquals(nodeLayout.getMemoSlot(flatTree.toNode(i)), memoSlots[i], code + " node " + i);
+            }
+        }
+    }
+}
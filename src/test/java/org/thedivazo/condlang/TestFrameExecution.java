@@ -0,0 +1,52 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.Frame;
+import org.thedivazo.condlang.interpreter.SlotLayout;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+
+public class TestFrameExecution {
+
+    private static ParserExpression<Object, Object, Object> createParserExpression(ExecutionStrategy executionStrategy) {
+        return ParserExpression.builder()
+                .addBinaryOperator(binary("+", (value1, value2) -> (Double) value1 + (Double) value2))
+                .setCondition("[a-z]+", name -> 100d)
+                .addVariableStartSymbols("\\$")
+                .addSkipSymbols(" +")
+                .setExecutionStrategy(executionStrategy)
+                .build();
+    }
+
+    @Test
+    void frameTest() throws CompileException, InterpreterException {
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            ParserExpression<Object, Object, Object> parserExpression = createParserExpression(executionStrategy);
+            CompiledExpression<?> compiledExpression = (CompiledExpression<?>) parserExpression.compile("$x + $y + $x + global");
+
+            SlotLayout slotLayout = compiledExpression.getSlotLayout();
+            assertEquals(List.of("x", "y", "global"), slotLayout.getSlotNames());
+            assertEquals(-1, slotLayout.getSlot("unknown"));
+
+            Frame frame = compiledExpression.newFrame();
+            frame.set("x", 1d).set("y", 2d).set("unknown", 3d);
+            assertEquals(104d, parserExpression.executeFrame(compiledExpression, frame), executionStrategy.toString());
+            assertEquals(parserExpression.execute(compiledExpression, Map.of("x", 1d, "y", 2d)), parserExpression.executeFrame(compiledExpression, frame));
+
+            frame.clear().setAll(Map.of("x", 5d, "global", 0d));
+            assertEquals(110d, parserExpression.executeFrame(compiledExpression, frame), executionStrategy.toString());
+
+            Object[] values = new Object[slotLayout.size()];
+            values[slotLayout.getSlot("y")] = 10d;
+            assertEquals(310d, parserExpression.executeFrame(compiledExpression, values), executionStrategy.toString());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.parser.ParseResult;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestIncrementalParse {
+
+    // The shared expressions and the ones that are only parsed, never executed
+    private static final List<String> CODES = Stream.concat(TestVariables.CODES.stream(), Stream.of(
+            "cos(random(0,10)) < 2 && sin(random(0,100)) > -2 ? 1:0",
+            "emptyFunction() % 3 == 2"
+    )).toList();
+
+    private static String fullParse(String code) {
+        try {
+            return parserExpression.getParser().parsing(parserExpression.getLexer().analyze(code)).toString();
+        } catch (CompileException e) {
+            return e.getMessage().lines().findFirst().orElse("") + " at " + e.getPosition();
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String describe(ParseResult parseResult) {
+        if (!parseResult.hasErrors()) return parseResult.getNode().toString();
+        ParseResult.Diagnostic diagnostic = parseResult.getDiagnostics().get(0);
+        return diagnostic.message() + " at " + diagnostic.position();
+    }
+
+    /**
+     * The parser itself throws runtime exceptions on some incomplete input, the incremental parser does the same.
+     */
+    private static ParseResult reparse(ParseResult previous, int offset, int removedLength, String insertedText) {
+        try {
+            return previous == null ? null : parserExpression.reparse(previous, offset, removedLength, insertedText);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Test
+    void typingTest() {
+        for (String code : CODES) {
+            ParseResult parseResult = parserExpression.parseIncremental("");
+            for (int i = 0; i < code.length(); i++) {
+                String typed = code.substring(0, i + 1);
+                ParseResult next = reparse(parseResult, i, 0, code.substring(i, i + 1));
+                if (next == null) {
+                    if (parseResult != null) assertTrue(fullParse(typed).startsWith("java."), typed);
+                    parseResult = fullParse(typed).startsWith("java.") ? null : parserExpression.parseIncremental(typed);
+                    continue;
+                }
+                parseResult = next;
+                assertEquals(typed, parseResult.getCode());
+                assertEquals(fullParse(typed), describe(parseResult), typed);
+            }
+        }
+    }
+
+    @Test
+    void randomEditTest() {
+        Random random = new Random(42);
+        String alphabet = "1+*()?:,PI ";
+        for (String code : CODES) {
+            ParseResult original = parserExpression.parseIncremental(code);
+            for (int i = 0; i < 200; i++) {
+                int offset = random.nextInt(code.length() + 1);
+                int removedLength = random.nextInt(Math.min(3, code.length() - offset) + 1);
+                String insertedText = random.nextBoolean() ? "" : String.valueOf(alphabet.charAt(random.nextInt(alphabet.length())));
+                String edited = code.substring(0, offset) + insertedText + code.substring(offset + removedLength);
+                ParseResult parseResult = reparse(original, offset, removedLength, insertedText);
+                if (parseResult == null) assertTrue(fullParse(edited).startsWith("java."), edited);
+                else assertEquals(fullParse(edited), describe(parseResult), edited);
+                assertEquals(fullParse(code), describe(original));
+            }
+        }
+    }
+
+    @Test
+    void reparseSubtreeTest() {
+        String code = "max(1+2, sin(3)) * 4";
+        ParseResult previous = parserExpression.parseIncremental(code);
+        Node previousNode = previous.getNode();
+        ParseResult parseResult = parserExpression.reparse(previous, code.indexOf('2'), 1, "5*6");
+        assertEquals("max(1+5*6, sin(3)) * 4", parseResult.getCode());
+        assertEquals(fullParse(parseResult.getCode()), parseResult.getNode().toString());
+        assertEquals(4, parseResult.getReparsed().from());
+        assertEquals(9, parseResult.getReparsed().to());
+
+        Node max = parseResult.getNode().getChildrenNodes().get(0);
+        Node previousMax = previousNode.getChildrenNodes().get(0);
+        assertNotSame(previousMax, max);
+        assertSame(previousMax.getChildrenNodes().get(1), max.getChildrenNodes().get(1));
+        assertSame(previousNode.getChildrenNodes().get(1), parseResult.getNode().getChildrenNodes().get(1));
+        assertEquals(fullParse(code), previousNode.toString());
+
+        ParseResult shifted = parserExpression.reparse(parseResult, parseResult.getCode().indexOf('3'), 1, "PI");
+        assertEquals(fullParse(shifted.getCode()), shifted.getNode().toString());
+        assertTrue(shifted.getReparsed().to() - shifted.getReparsed().from() < shifted.getCode().length());
+    }
+
+    @Test
+    void diagnosticsTest() {
+        ParseResult parseResult = parserExpression.parseIncremental("max(1, 2)");
+        ParseResult broken = parserExpression.reparse(parseResult, 8, 1, "");
+        assertTrue(broken.hasErrors());
+        assertNull(broken.getNode());
+        assertEquals(1, broken.getDiagnostics().size());
+        assertThrows(CompileException.class, () -> parserExpression.compile(broken));
+
+        ParseResult fixed = parserExpression.reparse(broken, 8, 0, ")");
+        assertFalse(fixed.hasErrors());
+        assertEquals(fullParse("max(1, 2)"), fixed.getNode().toString());
+
+        ParseResult unknownToken = parserExpression.reparse(fixed, 4, 0, "@");
+        assertTrue(unknownToken.hasErrors());
+        assertNull(unknownToken.getTokens());
+        assertEquals(4, unknownToken.getDiagnostics().get(0).position());
+    }
+
+    @Test
+    void unfinishedMethodTest() {
+        ParseResult parseResult = parserExpression.parseIncremental("PI#getX");
+        assertTrue(parseResult.hasErrors());
+        assertEquals(fullParse("PI#getX"), describe(parseResult));
+
+        ParseResult edited = parserExpression.reparse(parserExpression.parseIncremental("PI#getX()"), 0, 0, "-");
+        ParseResult unfinished = parserExpression.reparse(edited, 8, 2, "");
+        assertEquals("-PI#getX", unfinished.getCode());
+        assertTrue(unfinished.hasErrors());
+        assertEquals(fullParse("-PI#getX"), describe(unfinished));
+    }
+
+    @Test
+    void compileTest() throws CompileException, InterpreterException {
+        ParseResult parseResult = parserExpression.parseIncremental("1 + 2 * 3");
+        ParseResult edited = parserExpression.reparse(parseResult, 4, 1, "(2 + 4)");
+        String tree = edited.getNode().toString();
+        assertEquals(parserExpression.execute("1 + (2 + 4) * 3"), parserExpression.execute(parserExpression.compile(edited)));
+        assertEquals(tree, edited.getNode().toString());
+    }
+}
@@ -0,0 +1,77 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.CompiledExpression;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.utils.LazyTernFunction;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.lazyBinary;
+
+public class TestLazyOperators {
+
+    private final AtomicInteger expensiveCalls = new AtomicInteger();
+
+    private ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addLazyBinaryOperator(lazyBinary("&&", (bol1, bol2) -> (Boolean) bol1.get() && (Boolean) bol2.get()));
+        parserExpression.addLazyTernaryOperator(new ParserExpression.LazyTernaryOperatorWrapper<>() {
+            @Override
+            public String getSignOne() {
+                return "?";
+            }
+
+            @Override
+            public String getSignTwo() {
+                return ":";
+            }
+
+            @Override
+            public LazyTernFunction<Boolean, Object, Object, Object> getTernaryOperator() {
+                return (condition, value1, value2) -> condition ? value1.get() : value2.get();
+            }
+        });
+        parserExpression.setCondition("true", Boolean.TRUE);
+        parserExpression.setCondition("false", Boolean.FALSE);
+        parserExpression.setCondition("expensive", name -> {
+            expensiveCalls.incrementAndGet();
+            return Boolean.TRUE;
+        });
+        parserExpression.setCondition("[a-z]+");
+        return parserExpression;
+    }
+
+    @Test
+    void shortCircuitTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            expensiveCalls.set(0);
+            assertEquals(Boolean.FALSE, parserExpression.execute("false && expensive"));
+            assertEquals(Boolean.FALSE, parserExpression.execute("true ? false : expensive"));
+            assertEquals(Boolean.TRUE, parserExpression.execute("false ? false : true && expensive"));
+            assertEquals(1, expensiveCalls.get(), executionStrategy.toString());
+
+            Serializable compiledCode = parserExpression.compile("false && expensive ? expensive : false");
+            assertEquals(Boolean.FALSE, parserExpression.execute(((CompiledExpression<?>) compiledCode).getNode()));
+            assertEquals(Boolean.FALSE, parserExpression.execute(compiledCode));
+            assertEquals(1, expensiveCalls.get(), executionStrategy.toString());
+        }
+    }
+
+    @Test
+    void operandErrorTest() throws CompileException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        Serializable compiledCode = parserExpression.compile("true && unknown");
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            assertThrows(InterpreterException.class, () -> parserExpression.execute(compiledCode));
+        }
+        assertThrows(InterpreterException.class, () -> parserExpression.execute(((CompiledExpression<?>) compiledCode).getNode()));
+    }
+}
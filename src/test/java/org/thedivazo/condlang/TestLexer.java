@@ -0,0 +1,36 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.SyntaxException;
+import org.thedivazo.condlang.lexer.Lexer;
+import org.thedivazo.condlang.lexer.Token;
+import org.thedivazo.condlang.lexer.TokenType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestLexer {
+
+    @Test
+    void groupReferencesTest() throws SyntaxException {
+        Lexer lexer = new Lexer();
+        lexer.putOperator("(['\"]).*?\\1", TokenType.CONDITION);
+        // The same group name in two rules must not clash in the combined pattern
+        lexer.putOperator("(?<letter>[a-z])\\k<letter>", TokenType.OPERATOR);
+        lexer.putOperator("(?<letter>[0-9])\\k<letter>+", TokenType.FUNCTION);
+        lexer.putOperator("\\Q(1)\\E", TokenType.DELIMITER);
+        lexer.putOperator(" +", TokenType.SPACE);
+
+        List<Token> tokens = lexer.analyze("'a\"b' aa 111 \"x\" (1)");
+        assertEquals(List.of(TokenType.CONDITION, TokenType.SPACE, TokenType.OPERATOR, TokenType.SPACE, TokenType.FUNCTION,
+                TokenType.SPACE, TokenType.CONDITION, TokenType.SPACE, TokenType.DELIMITER, TokenType.EOF),
+                tokens.stream().map(Token::lexemeType).toList());
+        assertEquals("'a\"b'", tokens.get(0).getSign());
+        assertEquals("111", tokens.get(4).getSign());
+
+        assertThrows(SyntaxException.class, () -> lexer.analyze("ab"));
+        assertThrows(SyntaxException.class, () -> lexer.analyze("'a\""));
+        assertThrows(SyntaxException.class, () -> lexer.analyze("12"));
+    }
+}
@@ -0,0 +1,103 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.WrapperManager;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+import static org.thedivazo.condlang.TestFixtures.lazyBinary;
+
+public class TestMemoization {
+
+    private static final AtomicInteger worldCalls = new AtomicInteger();
+
+    private static final AtomicInteger nameCalls = new AtomicInteger();
+
+    public static class World {
+        public String getName() {
+            nameCalls.incrementAndGet();
+            return "world";
+        }
+    }
+
+    public static class Player {
+        private final World world = new World();
+
+        public World getWorld() {
+            worldCalls.incrementAndGet();
+            return world;
+        }
+    }
+
+    private final AtomicInteger rankCalls = new AtomicInteger();
+
+    private ParserExpression<Object, Object, Object> createParserExpression(ExecutionStrategy executionStrategy, boolean memoization) {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addMethodReferenceSymbols("#");
+        parserExpression.addMethod("[a-zA-Z]+");
+        parserExpression.setCondition("rank", name -> {
+            rankCalls.incrementAndGet();
+            return "b";
+        });
+        parserExpression.setCondition("player", name -> WrapperManager.generateWrapperObject(new Player(), Player.class, Constable.class));
+        parserExpression.setCondition("'.*?'", string -> string.substring(1, string.length() - 1));
+        parserExpression.setCondition("[a-zA-Z]+");
+        parserExpression.setPureMethod("getWorld");
+        parserExpression.setMemoization(memoization);
+        parserExpression.setExecutionStrategy(executionStrategy);
+        parserExpression.addBinaryOperator(binary("==", Object::equals));
+        parserExpression.addBinaryOperator(binary("+", (value1, value2) -> String.valueOf(value1) + value2));
+        parserExpression.addLazyBinaryOperator(lazyBinary("||", (value1, value2) -> (Boolean) value1.get() || (Boolean) value2.get()));
+        return parserExpression;
+    }
+
+    @Test
+    void conditionTest() throws CompileException, InterpreterException {
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            ParserExpression<Object, Object, Object> parserExpression = createParserExpression(executionStrategy, true);
+            Serializable code = parserExpression.compile("rank == 'a' || rank == 'b' || rank == 'c'");
+            rankCalls.set(0);
+            assertEquals(true, parserExpression.execute(code));
+            assertEquals(1, rankCalls.get(), executionStrategy.toString());
+            assertEquals(true, parserExpression.execute(code));
+            assertEquals(2, rankCalls.get(), executionStrategy.toString());
+
+            assertEquals(false, parserExpression.execute(code, Map.of("rank", "d")));
+            assertEquals(2, rankCalls.get(), executionStrategy.toString());
+
+            parserExpression.setMemoization(false);
+            assertEquals(true, parserExpression.execute(code));
+            assertEquals(4, rankCalls.get(), executionStrategy.toString());
+        }
+    }
+
+    @Test
+    void pureMethodTest() throws CompileException, InterpreterException {
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            ParserExpression<Object, Object, Object> parserExpression = createParserExpression(executionStrategy, true);
+            Serializable code = parserExpression.compile("player#getWorld()#getName() + player#getWorld()#getName() + (player#getWorld()#getName())");
+            worldCalls.set(0);
+            nameCalls.set(0);
+            assertEquals("worldworldworld", parserExpression.execute(code));
+            assertEquals(1, worldCalls.get(), executionStrategy.toString());
+            assertEquals(3, nameCalls.get(), executionStrategy.toString());
+
+            parserExpression.setPureMethod("getName");
+            assertEquals("worldworldworld", parserExpression.execute(code));
+            assertEquals(2, worldCalls.get(), executionStrategy.toString());
+            assertEquals(4, nameCalls.get(), executionStrategy.toString());
+
+            assertEquals("worldworldworld", parserExpression.execute(parserExpression.compile("player#getWorld()#getName() + player#getWorld()#getName() + player#getWorld()#getName()")));
+            assertEquals(3, worldCalls.get(), executionStrategy.toString());
+            assertEquals(5, nameCalls.get(), executionStrategy.toString());
+        }
+    }
+}
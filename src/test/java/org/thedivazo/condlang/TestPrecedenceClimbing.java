@@ -0,0 +1,74 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.lexer.Token;
+import org.thedivazo.condlang.parser.Parser;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestPrecedenceClimbing {
+
+    // The shared expressions and the ones that are only parsed, never executed
+    private static final List<String> CODES = Stream.concat(TestVariables.CODES.stream(), Stream.of(
+            "PI",
+            "cos(random(0,10)) < 2 && sin(random(0,100)) > -2 ? 1:0",
+            "((((((2*random(5,5)))))))--4+1*6/2+-3*(((((((6*6)))))))-2+1",
+            "1 ? 2 ? 3 : 4 : 5 ? 6 : 7",
+            "!true == false || !(1 < 2) && -3 * -4 > 12",
+            "emptyFunction() % 3 == 2"
+    )).toList();
+
+    private static final String[] INVALID_CODES = {
+            "1 +",
+            "1 ? 2",
+            "(1 + 2",
+            "* 2",
+            "cos(1 2)",
+    };
+
+    @Test
+    void sameTreeTest() throws CompileException {
+        Parser parser = parserExpression.getParser();
+        for (String code : CODES) {
+            List<Token> tokens = parserExpression.getLexer().analyze(code);
+            assertTrue(parser.isPrecedenceClimbing());
+            String expected = parseRecursively(parser, tokens);
+            assertEquals(expected, parser.parsing(tokens).toString(), code);
+        }
+    }
+
+    @Test
+    void sameErrorTest() throws CompileException {
+        Parser parser = parserExpression.getParser();
+        for (String code : INVALID_CODES) {
+            List<Token> tokens = parserExpression.getLexer().analyze(code);
+            String expected;
+            try {
+                expected = parseRecursively(parser, tokens);
+            } catch (Exception e) {
+                expected = e.getClass().getName() + ": " + e.getMessage();
+            }
+            String actual;
+            try {
+                actual = parser.parsing(tokens).toString();
+            } catch (Exception e) {
+                actual = e.getClass().getName() + ": " + e.getMessage();
+            }
+            assertEquals(expected, actual, code);
+        }
+    }
+
+    private static String parseRecursively(Parser parser, List<Token> tokens) throws CompileException {
+        parser.setPrecedenceClimbing(false);
+        try {
+            return parser.parsing(tokens).toString();
+        } finally {
+            parser.setPrecedenceClimbing(true);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.evaluator.DoubleBinaryOperatorEvaluator;
+import org.thedivazo.condlang.interpreter.evaluator.EvaluationContext;
+import org.thedivazo.condlang.interpreter.evaluator.Evaluator;
+import org.thedivazo.condlang.parser.Node;
+import org.thedivazo.condlang.utils.BooleanBinaryOperator;
+import org.thedivazo.condlang.utils.DoubleBiPredicate;
+import org.thedivazo.condlang.utils.TernFunction;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPrimitiveOperators {
+
+    private final AtomicInteger levelCalls = new AtomicInteger();
+
+    private final AtomicInteger expensiveCalls = new AtomicInteger();
+
+    private static ParserExpression.DoubleBinaryOperatorWrapper<Object, Object> arithmetic(String sign, DoubleBinaryOperator operator) {
+        return new ParserExpression.DoubleBinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public DoubleBinaryOperator getDoubleBinaryOperator() {
+                return operator;
+            }
+
+            @Override
+            public boolean isPure() {
+                return true;
+            }
+        };
+    }
+
+    private static ParserExpression.DoublePredicateWrapper<Object, Object> comparison(String sign, DoubleBiPredicate predicate) {
+        return new ParserExpression.DoublePredicateWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public DoubleBiPredicate getDoublePredicate() {
+                return predicate;
+            }
+        };
+    }
+
+    private static ParserExpression.BooleanBinaryOperatorWrapper<Object, Object> logical(String sign, BooleanBinaryOperator operator) {
+        return new ParserExpression.BooleanBinaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return sign;
+            }
+
+            @Override
+            public BooleanBinaryOperator getBooleanBinaryOperator() {
+                return operator;
+            }
+        };
+    }
+
+    private ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addUnaryOperator(new ParserExpression.DoubleUnaryOperatorWrapper<>() {
+            @Override
+            public String getSign() {
+                return "-";
+            }
+
+            @Override
+            public DoubleUnaryOperator getDoubleUnaryOperator() {
+                return value -> -value;
+            }
+
+            @Override
+            public boolean isInvolution() {
+                return true;
+            }
+        });
+        parserExpression.addBinaryOperator(arithmetic("*", (value1, value2) -> value1 * value2));
+        parserExpression.addBinaryOperator(arithmetic("+", Double::sum), arithmetic("-", (value1, value2) -> value1 - value2));
+        parserExpression.addBinaryOperator(comparison(">", (value1, value2) -> value1 > value2));
+        parserExpression.addBinaryOperator(logical("&&", BooleanBinaryOperator.and()));
+        parserExpression.addBinaryOperator(logical("^", (value1, value2) -> value1 ^ value2));
+        parserExpression.addTernaryOperator(new ParserExpression.TernaryOperatorWrapper<>() {
+            @Override
+            public String getSignOne() {
+                return "?";
+            }
+
+            @Override
+            public String getSignTwo() {
+                return ":";
+            }
+
+            @Override
+            public TernFunction<Boolean, Object, Object, Object> getTernaryOperator() {
+                return (condition, value1, value2) -> Boolean.TRUE.equals(condition) ? value1 : value2;
+            }
+        });
+        parserExpression.setDoubleCondition("level", name -> {
+            levelCalls.incrementAndGet();
+            return 15;
+        });
+        parserExpression.setDoubleCondition("expensive", name -> {
+            expensiveCalls.incrementAndGet();
+            return 1;
+        });
+        parserExpression.setDoubleCondition("[0-9]+", Double::parseDouble, true);
+        parserExpression.setCondition("bonus");
+        parserExpression.setCondition("nul", name -> null);
+        return parserExpression;
+    }
+
+    @Test
+    void strategiesTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        Map<String, Object> variables = Map.of("bonus", 5d);
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            parserExpression.setExecutionStrategy(executionStrategy);
+            assertEquals(49d, parserExpression.execute("level * 3 + 2 * 2", null), executionStrategy.name());
+            assertEquals(-10d, parserExpression.execute("-(level - $bonus)", variables), executionStrategy.name());
+            assertEquals(true, parserExpression.execute("level + $bonus > 19 && level > 2", variables), executionStrategy.name());
+            assertEquals(true, parserExpression.execute("level > 20 ^ level > 2", null), executionStrategy.name());
+            assertEquals(7d, parserExpression.execute("level * 2 - --8 + 1", Map.of("level", 7)), executionStrategy.name());
+            // The condition of the ternary operator is read without boxing the comparison result
+            assertEquals(2d, parserExpression.execute("level > 20 ? 1 : 2", null), executionStrategy.name());
+            // A boxed condition reaches the operator as is, even when it is null
+            assertEquals(2d, parserExpression.execute("nul ? 1 : 2", null), executionStrategy.name());
+
+            expensiveCalls.set(0);
+            assertEquals(false, parserExpression.execute("level > 20 && expensive > 0", null), executionStrategy.name());
+            assertEquals(0, expensiveCalls.get(), executionStrategy.name());
+        }
+    }
+
+    @Test
+    void unboxedTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        Node node = parserExpression.getParser().parsing(parserExpression.getLexer().analyze("(level + 1) * (level - 1)"));
+        Evaluator<Object> evaluator = parserExpression.getInterpreter().compileEvaluatorTree(node);
+        assertInstanceOf(DoubleBinaryOperatorEvaluator.class, evaluator);
+        assertEquals(224d, evaluator.evaluateDouble(new EvaluationContext<>()));
+        assertEquals(1, levelCalls.get());
+
+        Serializable folded = parserExpression.compile("2 * 3 + 1");
+        assertEquals(7d, parserExpression.execute(folded));
+        assertEquals(1, levelCalls.get());
+    }
+}
@@ -0,0 +1,87 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.Frame;
+import org.thedivazo.condlang.interpreter.RuleSet;
+
+import java.lang.constant.Constable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestFixtures.binary;
+
+public class TestRuleSet {
+
+    private final AtomicInteger levelCalls = new AtomicInteger();
+
+    private final AtomicInteger randomCalls = new AtomicInteger();
+
+    private ParserExpression<Object, Object, Object> createParserExpression() {
+        ParserExpression<Object, Object, Object> parserExpression = TestFixtures.createParserExpression();
+        parserExpression.addBinaryOperator(binary("+", (value1, value2) -> (Double) value1 + (Double) value2));
+        parserExpression.addBinaryOperator(binary(">", (value1, value2) -> (Double) value1 > (Double) value2));
+        parserExpression.addBinaryOperator(binary("==", Object::equals));
+        parserExpression.setFunction("random", arguments -> (double) randomCalls.incrementAndGet());
+        parserExpression.setCondition("level", name -> {
+            levelCalls.incrementAndGet();
+            return 15d;
+        });
+        parserExpression.setCondition("[0-9]+", Double::valueOf, true);
+        parserExpression.setCondition("bonus");
+        return parserExpression;
+    }
+
+    @Test
+    void sharingTest() throws CompileException, InterpreterException {
+        ParserExpression<Object, Object, Object> parserExpression = createParserExpression();
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("high", "level > 10");
+        rules.put("same", "(level > 10) == (level + 1 > 16)");
+        rules.put("bonus", "level + $bonus > 20");
+        rules.put("random1", "random() > 0");
+        rules.put("random2", "random() > 0");
+        RuleSet<Object> ruleSet = parserExpression.compileRuleSet(rules);
+        assertEquals(List.copyOf(rules.keySet()), ruleSet.getRuleIds());
+        assertTrue(ruleSet.getNodeCount() < ruleSet.getTreeNodeCount());
+        assertTrue(ruleSet.getSharedNodeCount() >= 2);
+
+        Map<String, Object> results = ruleSet.execute(Map.of("bonus", 10d));
+        assertEquals(List.copyOf(rules.keySet()), List.copyOf(results.keySet()));
+        assertEquals(true, results.get("high"));
+        assertEquals(false, results.get("same"));
+        assertEquals(true, results.get("bonus"));
+        assertEquals(1, levelCalls.get());
+        assertEquals(2, randomCalls.get());
+
+        ruleSet.execute(Map.of("bonus", 1d));
+        assertEquals(2, levelCalls.get());
+
+        Frame frame = ruleSet.newFrame().set("bonus", 1d);
+        assertEquals(false, ruleSet.execute(frame).get("bonus"));
+        assertEquals(3, levelCalls.get());
+        Frame otherFrame = parserExpression.compileRuleSet(Map.of("other", "level + $bonus")).newFrame();
+        assertThrows(IllegalArgumentException.class, () -> ruleSet.execute(otherFrame));
+    }
+
+    @Test
+    void sameResultsTest() throws CompileException, InterpreterException {
+        ParserExpression<Constable, Constable, Constable> parserExpression = TestVariables.parserExpression;
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("trig", "pow(cos(PI/2),2)+pow(sin(PI/2),2) == 1 ? 4+3*cos(3)/sin(3) : PI");
+        rules.put("max", "max(11.214356,2,3.234567,4,(((((((((5))))))))),pow(sqrt(15),2),15)");
+        rules.put("strings", "'test_string' == 'test_string' && 'test2_string' == 'test2_string'");
+        rules.put("variable", "$variable + $variable * 2 > 100 ? cos(PI/2) : pow(cos(PI/2),2)");
+        rules.put("lazy", "$variable > 100 && pow(cos(PI/2),2) > 1");
+        Map<String, Constable> variables = Map.of("variable", 41d);
+        RuleSet<Constable> ruleSet = parserExpression.compileRuleSet(rules);
+        Map<String, Constable> results = ruleSet.execute(variables);
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            assertEquals(parserExpression.execute(rule.getValue(), variables), results.get(rule.getKey()), rule.getKey());
+        }
+    }
+}
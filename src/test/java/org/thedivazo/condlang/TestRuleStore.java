@@ -0,0 +1,83 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestRuleStore {
+
+    @Test
+    void lazyLoadingTest(@TempDir Path directory) throws CompileException, InterpreterException, IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            sources.put("rule-" + i, "$variable + " + i);
+        }
+        sources.put("\u043f\u0440\u0430\u0432\u0438\u043b\u043e", "max(1, 2, $variable)");
+        Map<String, Serializable> rules = new HashMap<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            rules.put(source.getKey(), parserExpression.compile(source.getValue()));
+        }
+        Path path = directory.resolve("rules.bin");
+        RuleStore.write(path, rules);
+
+        Map<String, Constable> variables = Map.of("variable", 10d);
+        try (RuleStore<Constable> ruleStore = RuleStore.open(path)) {
+            assertEquals(sources.size(), ruleStore.size());
+            assertEquals(0, ruleStore.getLoadedCount());
+            assertEquals(57d, parserExpression.execute(ruleStore.get("rule-47"), variables));
+            assertEquals(10d, parserExpression.execute(ruleStore.get("\u043f\u0440\u0430\u0432\u0438\u043b\u043e"), variables));
+            assertSame(ruleStore.get("rule-47"), ruleStore.get("rule-47"));
+            assertEquals(2, ruleStore.getLoadedCount());
+
+            assertNull(ruleStore.get("rule-100"));
+            assertFalse(ruleStore.contains("rule"));
+            assertTrue(ruleStore.contains("rule-0"));
+            assertEquals(new TreeSet<>(sources.keySet()), new TreeSet<>(ruleStore.getIds()));
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                assertEquals(parserExpression.execute(source.getValue(), variables), parserExpression.execute(ruleStore.get(source.getKey()), variables), source.getKey());
+            }
+        }
+    }
+
+    @Test
+    void depthLimitTest(@TempDir Path directory) throws CompileException, InterpreterException, IOException {
+        Path path = directory.resolve("rules.bin");
+        Serializable nested = parserExpression.compile("$variable" + " + 1".repeat(1000));
+        RuleStore.write(path, Map.of("nested", nested));
+        try (RuleStore<Constable> ruleStore = RuleStore.open(path)) {
+            assertEquals(1010d, parserExpression.execute(ruleStore.get("nested"), Map.of("variable", 10d)));
+        }
+
+        // A rule nested deeper than the reader accepts is rejected on write and the old file is kept
+        Serializable tooDeep = parserExpression.compile("$variable" + " + 1".repeat(1100));
+        assertThrows(IllegalArgumentException.class, () -> RuleStore.write(path, Map.of("nested", tooDeep)));
+        try (RuleStore<Constable> ruleStore = RuleStore.open(path)) {
+            assertTrue(ruleStore.contains("nested"));
+        }
+    }
+
+    @Test
+    void byteBufferTest() throws CompileException {
+        byte[] bytes = RuleStore.toByteArray(Map.of("single", parserExpression.compile("1 + 1")));
+        RuleStore<Constable> ruleStore = RuleStore.wrap(ByteBuffer.wrap(bytes));
+        assertEquals(List.of("single"), ruleStore.getIds());
+        assertNotNull(ruleStore.get("single"));
+        ruleStore.close();
+        assertThrows(IllegalStateException.class, () -> ruleStore.get("single"));
+
+        assertEquals(0, RuleStore.wrap(ByteBuffer.wrap(RuleStore.toByteArray(Map.of()))).size());
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> RuleStore.wrap(ByteBuffer.wrap(bytes)));
+    }
+}
@@ -0,0 +1,41 @@
+package org.thedivazo.condlang;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.thedivazo.condlang.TestVariables.parserExpression;
+
+public class TestStackMachine extends TestParser {
+
+    @BeforeEach
+    void useStackMachine() {
+        parserExpression.setExecutionStrategy(ExecutionStrategy.STACK_MACHINE);
+    }
+
+    @AfterEach
+    void resetStrategy() {
+        parserExpression.setExecutionStrategy(ExecutionStrategy.EVALUATOR_TREE);
+    }
+
+    @Test
+    void deepNestingTest() throws CompileException, InterpreterException {
+        int depth = 100_000;
+        StringBuilder code = new StringBuilder("$variable");
+        for (int i = 0; i < depth; i++) {
+            code.append(" + 1");
+        }
+        parserExpression.setConstantFolding(false);
+        try {
+            assertEquals(depth + 1d, parserExpression.execute(code.toString(), Map.of("variable", 1d)));
+        } finally {
+            parserExpression.setConstantFolding(true);
+        }
+    }
+}
@@ -12,10 +12,34 @@ import java.lang.constant.ConstantDesc;
 import java.lang.constant.ConstantDescs;
 import java.lang.invoke.ConstantBootstraps;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 public class TestVariables {
+    /**
+     * Deterministic expressions for the tests that compare parsers, formats and execution strategies.
+     * The variable "variable" is expected to hold a number.
+     */
+    public static final List<String> CODES = List.of(
+            "1+1-1+1-1+PI//2",
+            "---cos(PI/2)+signum(sin(3))",
+            "pow(cos(PI/2),2)+pow(sin(PI/2),2) == 1 ? 4+3*cos(3)/sin(3) : PI",
+            "max(11.214356,2,3.234567,4,(((((((((5))))))))),pow(sqrt(15),2),15)",
+            "cos(PI/2+3)>3 ? cos(0.8):sin(pow(sqrt(PI/2),2))==1 ? sqrt(9)*3==9 ? -228--3----3-6:1:1",
+            "'test_string' == 'test_string' && 'test2_string' == 'test2_string'",
+            "1+'2'+3+'4'+5 == '12345'",
+            "str('5'+'6')",
+            "emptyFunction()",
+            "$variable + $variable * 2",
+            "$variable#getName()#length() + 1"
+    );
+
+    /**
+     * {@link TestVariables#CODES} without method calls, which cannot be executed on a number.
+     */
+    public static final List<String> EXECUTABLE_CODES = CODES.stream().filter(code -> !code.contains("#")).toList();
+
     public static final ParserExpression<Constable, Constable, Constable> parserExpression = new ParserExpression<>();
     static {
         parserExpression.setCondition("'.*?'", (string)->string.substring(1,string.length()-1));
@@ -0,0 +1,128 @@
+package org.thedivazo.condlang;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.thedivazo.condlang.exception.CompileException;
+import org.thedivazo.condlang.exception.InterpreterException;
+import org.thedivazo.condlang.interpreter.ExecutionStrategy;
+import org.thedivazo.condlang.interpreter.WrapperManager;
+import org.thedivazo.condlang.interpreter.wrapper.WrapperClass;
+import org.thedivazo.condlang.interpreter.wrapper.WrapperObject;
+
+import java.io.Serializable;
+import java.lang.constant.Constable;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestWrapperManager {
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class World {
+        private final String name;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Location {
+        private final World world;
+
+        public String fail() {
+            throw new IllegalStateException();
+        }
+
+        public String failChecked() throws Exception {
+            throw new Exception();
+        }
+
+        public String crash() {
+            throw new AssertionError("crash");
+        }
+
+        public static String describe(String name) {
+            return "location:" + name;
+        }
+    }
+
+    public static class Overloads {
+        public String accept(double value) {
+            return "double";
+        }
+
+        public String accept(Object value) {
+            return "Object";
+        }
+
+        public String accept(Number value) {
+            return "Number";
+        }
+
+        public String widen(long value) {
+            return "long:" + value;
+        }
+
+        public String nullable(String value) {
+            return "String:" + value;
+        }
+    }
+
+    @Test
+    void methodChainTest() throws InterpreterException {
+        WrapperObject<Location> location = WrapperManager.generateWrapperObject(new Location(new World("world")), Location.class, Constable.class);
+        Object world = location.executeMethod("getWorld");
+        assertInstanceOf(WrapperObject.class, world);
+        assertEquals("world", ((WrapperObject<?>) world).executeMethod("getName"));
+        assertEquals("location:test", location.executeMethod("describe", "test"));
+        assertNull(location.executeMethod("fail"));
+        assertNull(location.executeMethod("failChecked"));
+        // Errors are not exceptions of the called method and must not be turned into null
+        assertThrows(AssertionError.class, () -> location.executeMethod("crash"));
+        assertNull(location.executeMethod("unknownMethod"));
+        assertTrue(location.getMethodsName().contains("getWorld"));
+        assertTrue(location.hasMethod("describe", String.class));
+
+        WrapperObject<Location> staticLocation = WrapperManager.generateWrapperObject(null, Location.class, Constable.class);
+        assertEquals("location:static", staticLocation.executeMethod("describe", "static"));
+    }
+
+    @Test
+    void overloadResolutionTest() throws InterpreterException {
+        WrapperObject<Overloads> overloads = WrapperManager.generateWrapperObject(new Overloads(), Overloads.class, Constable.class);
+        assertEquals("Number", overloads.executeMethod("accept", 1d));
+        assertEquals("Object", overloads.executeMethod("accept", "1"));
+        assertEquals("long:5", overloads.executeMethod("widen", 5));
+        assertNull(overloads.executeMethod("widen", 5d));
+        assertEquals("String:null", overloads.executeMethod("nullable", (Object) null));
+        assertEquals("Object", overloads.executeMethod("accept", WrapperManager.generateWrapperObject(new Overloads(), Overloads.class, Constable.class)));
+    }
+
+    @Test
+    void callSiteTest() throws CompileException, InterpreterException {
+        Map<String, Object> variables = Map.of("overloads", WrapperManager.generateWrapperObject(new Overloads(), Overloads.class, Object.class));
+        for (ExecutionStrategy executionStrategy : ExecutionStrategy.values()) {
+            ParserExpression<Object, Object, Object> parserExpression = ParserExpression.builder()
+                    .addVariableStartSymbols("\\$")
+                    .addMethodReferenceSymbols("#")
+                    .addCompoundOperators("\\(", "\\)")
+                    .addMethod("[a-zA-Z]+")
+                    .setCondition("[0-9]+", Integer::valueOf)
+                    .setCondition("[a-zA-Z]+")
+                    .setExecutionStrategy(executionStrategy)
+                    .build();
+            Serializable code = parserExpression.compile("$overloads#widen(7)");
+            for (int i = 0; i < 3; i++) {
+                assertEquals("long:7", parserExpression.execute(code, variables), executionStrategy.toString());
+                assertEquals("Number", parserExpression.execute("$overloads#accept(7)", variables), executionStrategy.toString());
+            }
+        }
+    }
+
+    @Test
+    void sharedMetadataTest() {
+        assertSame(WrapperClass.of(Location.class), WrapperClass.of(Location.class));
+        assertNotNull(WrapperClass.of(Location.class).findMethod("getWorld", new Class<?>[0]));
+        assertNull(WrapperClass.of(Location.class).findMethod("getWorld", new Class<?>[]{String.class}));
+    }
+}